@@ -0,0 +1,92 @@
+package com.taskapp.dataaccess;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * ベンチマーク用の合成データ(users.csv・tasks.csv・logs.csv)を作成します。
+ * 同じ件数を指定すれば毎回同じ内容になります。
+ */
+public class BenchmarkData {
+    /** タスクの担当者として割り当てるユーザー数 */
+    public static final int TASK_USERS = 200;
+
+    private static final LocalDate START_DATE = LocalDate.of(2024, 1, 1);
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * ユーザーのcsvを作成します。
+     * @param file 作成先
+     * @param users ユーザー数
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public static void writeUsers(Path file, int users) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("Code,Name,Email,Password");
+            writer.newLine();
+            for (int code = 1; code <= users; code++) {
+                writer.write(code + ",user" + code + "," + email(code) + "," + password(code));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * タスクのcsvを作成します。担当者は1から{@link #TASK_USERS}までのユーザーに順に割り当てます。
+     * @param file 作成先
+     * @param tasks タスク数
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public static void writeTasks(Path file, int tasks) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("Code,Name,Status,Rep_User_Code,Version");
+            for (int code = 1; code <= tasks; code++) {
+                writer.newLine();
+                writer.write(code + ",task" + code + "," + (code % 3) + "," + (code % TASK_USERS + 1) + ",0");
+            }
+        }
+    }
+
+    /**
+     * ログのcsvを作成します。1タスクにつき未着手・着手中・完了の3件のログを出力します。
+     * @param file 作成先
+     * @param logs ログ数
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public static void writeLogs(Path file, int logs) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("Task_Code,Change_User_Code,Status,Change_Date");
+            writer.newLine();
+            for (int i = 0; i < logs; i++) {
+                int taskCode = i / 3 + 1;
+                int status = i % 3;
+                LocalDate date = START_DATE.plusDays((taskCode + status) % 365);
+                writer.write(taskCode + "," + (taskCode % TASK_USERS + 1) + "," + status + "," + date);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * 合成データ上のユーザーのメールアドレスを取得します。
+     * @param code ユーザーコード
+     * @return メールアドレス
+     */
+    public static String email(int code) {
+        return "user" + code + "@example.com";
+    }
+
+    /**
+     * 合成データ上のユーザーのパスワードを取得します。
+     * @param code ユーザーコード
+     * @return パスワード
+     */
+    public static String password(int code) {
+        return "password" + code;
+    }
+}
@@ -0,0 +1,86 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.taskapp.model.Log;
+
+/**
+ * LogDataAccessの公開メソッドを計測します。
+ * findAllBinaryは同じ内容をバイナリ形式で読み込み、csvとの解析コストの差を比較します。
+ * forEachMappedはメモリマップしたcsvをLogを作成せずに走査します。
+ * findByTaskCodeはタスクコードの索引から1タスク分の行だけを読み込みます。
+ * findByTaskCodeColdは毎回新しいインスタンスで索引を用意してから読み込みます。
+ * csvが1MB以上の場合は、初回の読み込みで作成したスナップショットから索引を読み込みます。
+ */
+@State(Scope.Benchmark)
+public class LogDataAccessBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    private Path file;
+    private LogDataAccess logDataAccess;
+    private Path binaryFile;
+    private LogDataAccess binaryLogDataAccess;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("logs", ".csv");
+        BenchmarkData.writeLogs(file, rows);
+        logDataAccess = new LogDataAccess(file.toString());
+        binaryFile = Files.createTempFile("logs", ".bin");
+        BinaryFormat.csvToBinary(BinaryFormat.KIND_LOG, file.toString(), binaryFile.toString());
+        binaryLogDataAccess = new LogDataAccess(binaryFile.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(IndexSnapshot.path(file.toString()));
+        Files.deleteIfExists(binaryFile);
+    }
+
+    @Benchmark
+    public void save() {
+        logDataAccess.save(new Log(1, 1, 0, LocalDate.of(2024, 1, 1)));
+    }
+
+    @Benchmark
+    public List<Log> findAll() {
+        return logDataAccess.findAll();
+    }
+
+    @Benchmark
+    public List<Log> findAllBinary() {
+        return binaryLogDataAccess.findAll();
+    }
+
+    @Benchmark
+    public long forEachMapped() {
+        long[] sum = new long[1];
+        logDataAccess.forEach((taskCode, changeUserCode, status, epochDay) -> sum[0] += taskCode + status);
+        return sum[0];
+    }
+
+    @Benchmark
+    public List<Log> findByTaskCode() {
+        return logDataAccess.findByTaskCode(ThreadLocalRandom.current().nextInt(1, rows / 3 + 1));
+    }
+
+    @Benchmark
+    public List<Log> findByTaskCodeCold() {
+        return new LogDataAccess(file.toString()).findByTaskCode(ThreadLocalRandom.current().nextInt(1, rows / 3 + 1));
+    }
+
+    @Benchmark
+    public void deleteByTaskCode() {
+        // 存在しないタスクコードを指定する。索引に該当がないため書き換えは行われず、索引の確認のコストを計測する
+        logDataAccess.deleteByTaskCode(-ThreadLocalRandom.current().nextInt(1, rows + 1));
+    }
+}
@@ -0,0 +1,123 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+/**
+ * TaskDataAccessの公開メソッドを計測します。
+ * findAllColdは毎回新しいインスタンスで読み込み、起動直後のコストを計測します。
+ * findByCodeColdは毎回新しいインスタンスで1件だけ取得し、Taskの作成を除いた起動直後の索引の作成コストを計測します。
+ * csvが1MB以上の場合は、初回の読み込みで作成したスナップショットから索引を読み込みます。
+ * findAllColdBinaryは同じ内容をバイナリ形式で読み込み、解析コストの差を比較します。
+ * findByStatusAndRepUserはビットマップの積で1ユーザー・1ステータスのタスクを絞り込みます。
+ * countByStatusAndRepUserは変更のたびに増減している件数から、1ユーザー・1ステータスの件数を取得します。
+ */
+@State(Scope.Benchmark)
+public class TaskDataAccessBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    private Path dir;
+    private String taskFile;
+    private String binaryTaskFile;
+    private UserDataAccess binaryUserDataAccess;
+    private UserDataAccess userDataAccess;
+    private TaskDataAccess taskDataAccess;
+    private User repUser;
+    private int nextCode;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("task-bench");
+        Path userFile = dir.resolve("users.csv");
+        BenchmarkData.writeUsers(userFile, BenchmarkData.TASK_USERS);
+        BenchmarkData.writeTasks(dir.resolve("tasks.csv"), rows);
+
+        taskFile = dir.resolve("tasks.csv").toString();
+        binaryTaskFile = dir.resolve("tasks.bin").toString();
+        String binaryUserFile = dir.resolve("users.bin").toString();
+        BinaryFormat.csvToBinary(BinaryFormat.KIND_TASK, taskFile, binaryTaskFile);
+        BinaryFormat.csvToBinary(BinaryFormat.KIND_USER, userFile.toString(), binaryUserFile);
+        binaryUserDataAccess = new UserDataAccess(binaryUserFile);
+        userDataAccess = new UserDataAccess(userFile.toString());
+        taskDataAccess = new TaskDataAccess(taskFile, userDataAccess);
+        taskDataAccess.findAll();
+        repUser = userDataAccess.findByCode(1);
+        nextCode = rows + 1;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Benchmark
+    public List<Task> findAll() {
+        return taskDataAccess.findAll();
+    }
+
+    @Benchmark
+    public List<Task> findAllCold() {
+        return new TaskDataAccess(taskFile, userDataAccess).findAll();
+    }
+
+    @Benchmark
+    public Task findByCodeCold() {
+        return new TaskDataAccess(taskFile, userDataAccess).findByCode(ThreadLocalRandom.current().nextInt(1, rows + 1));
+    }
+
+    @Benchmark
+    public List<Task> findAllColdBinary() {
+        return new TaskDataAccess(binaryTaskFile, binaryUserDataAccess).findAll();
+    }
+
+    @Benchmark
+    public Task findByCode() {
+        return taskDataAccess.findByCode(ThreadLocalRandom.current().nextInt(1, rows + 1));
+    }
+
+    @Benchmark
+    public List<Task> findByStatusAndRepUser() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return taskDataAccess.findByStatusAndRepUser(random.nextInt(3), random.nextInt(1, BenchmarkData.TASK_USERS + 1));
+    }
+
+    @Benchmark
+    public int countByStatusAndRepUser() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return taskDataAccess.countByStatusAndRepUser(random.nextInt(3), random.nextInt(1, BenchmarkData.TASK_USERS + 1));
+    }
+
+    @Benchmark
+    public void save() {
+        taskDataAccess.save(new Task(nextCode++, "bench", 0, repUser));
+    }
+
+    @Benchmark
+    public void update() {
+        int code = ThreadLocalRandom.current().nextInt(1, rows + 1);
+        Task current = taskDataAccess.findByCode(code);
+        taskDataAccess.update(new Task(code, "task" + code, code % 3, repUser, current.getVersion()));
+    }
+
+    @Benchmark
+    public void deleteAndSave() {
+        int code = ThreadLocalRandom.current().nextInt(1, rows + 1);
+        Task task = taskDataAccess.findByCode(code);
+        taskDataAccess.delete(code);
+        if (task != null) taskDataAccess.save(task);
+    }
+}
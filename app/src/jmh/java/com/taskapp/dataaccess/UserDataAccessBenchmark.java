@@ -0,0 +1,62 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.taskapp.model.User;
+
+/**
+ * ログイン時のユーザー検索について、新しいインスタンスで検索する場合と同じインスタンスで検索する場合を比較します。
+ * 同じファイルを使うインスタンスはレジストリを共有するため、newInstanceもcsvを読み直しません。
+ */
+@State(Scope.Benchmark)
+public class UserDataAccessBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private Path file;
+    private UserDataAccess indexed;
+    private String email;
+    private String password;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("users", ".csv");
+        BenchmarkData.writeUsers(file, rows);
+        email = BenchmarkData.email(rows / 2);
+        password = BenchmarkData.password(rows / 2);
+
+        indexed = new UserDataAccess(file.toString());
+        indexed.findByEmailAndPassword(email, password);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public User newInstance() {
+        return new UserDataAccess(file.toString()).findByEmailAndPassword(email, password);
+    }
+
+    @Benchmark
+    public User indexed() {
+        return indexed.findByEmailAndPassword(email, password);
+    }
+
+    @Benchmark
+    public User findByCode() {
+        return indexed.findByCode(ThreadLocalRandom.current().nextInt(1, rows + 1));
+    }
+
+    @Benchmark
+    public Map<Integer, User> findAllAsMap() {
+        return indexed.findAllAsMap();
+    }
+}
@@ -0,0 +1,47 @@
+package com.taskapp.logic;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.taskapp.dataaccess.BenchmarkData;
+import com.taskapp.dataaccess.LogDataAccess;
+
+/**
+ * LogAnalytics.analyzeを計測します。
+ * threadsを変えて、ファイルの範囲ごとの並列解析がコア数に応じて速くなるかを比較します。0は利用可能な全てのコアです。
+ */
+@State(Scope.Benchmark)
+public class LogAnalyticsBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    @Param({"1", "0"})
+    public int threads;
+
+    private Path file;
+    private ForkJoinPool pool;
+    private LogAnalytics logAnalytics;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("logs", ".csv");
+        BenchmarkData.writeLogs(file, rows);
+        pool = new ForkJoinPool(threads == 0 ? Runtime.getRuntime().availableProcessors() : threads);
+        logAnalytics = new LogAnalytics(new LogDataAccess(file.toString()), pool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public LogStatistics analyze() {
+        return logAnalytics.analyze();
+    }
+}
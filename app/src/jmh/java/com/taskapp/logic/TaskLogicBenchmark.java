@@ -0,0 +1,64 @@
+package com.taskapp.logic;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.taskapp.dataaccess.BenchmarkData;
+import com.taskapp.dataaccess.LogDataAccess;
+import com.taskapp.dataaccess.TaskDataAccess;
+import com.taskapp.dataaccess.UserDataAccess;
+import com.taskapp.model.User;
+
+/**
+ * TaskLogic.showAllを計測します。標準出力は破棄し、出力先の端末の速度に左右されないようにします。
+ */
+@State(Scope.Benchmark)
+public class TaskLogicBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    private Path dir;
+    private TaskLogic taskLogic;
+    private User loginUser;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("logic-bench");
+        Path userFile = dir.resolve("users.csv");
+        Path taskFile = dir.resolve("tasks.csv");
+        Path logFile = dir.resolve("logs.csv");
+        BenchmarkData.writeUsers(userFile, BenchmarkData.TASK_USERS);
+        BenchmarkData.writeTasks(taskFile, rows);
+        BenchmarkData.writeLogs(logFile, 0);
+
+        UserDataAccess userDataAccess = new UserDataAccess(userFile.toString());
+        taskLogic = new TaskLogic(new TaskDataAccess(taskFile.toString(), userDataAccess),
+                new LogDataAccess(logFile.toString()), userDataAccess);
+        loginUser = userDataAccess.findByCode(1);
+
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.setOut(originalOut);
+        try (var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Benchmark
+    public void showAll() {
+        taskLogic.showAll(loginUser);
+    }
+}
@@ -1,11 +1,79 @@
 package com.taskapp;
 
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import com.taskapp.exception.AppException;
+import com.taskapp.logic.ImportResult;
+import com.taskapp.logic.TaskLogic;
+import com.taskapp.logic.UserLogic;
+import com.taskapp.metrics.Metrics;
+import com.taskapp.model.User;
+import com.taskapp.server.TaskServer;
 import com.taskapp.ui.TaskUI;
 
 public class App {
 
+    /**
+     * 引数がない場合はコンソールのメニューを表示します。
+     * 「--server [ポート]」を指定した場合は、メニューの代わりにHTTPのJSON APIを公開するサーバーとして起動します。
+     * 「--import csvファイル メールアドレス パスワード」を指定した場合は、ログインしたユーザーとしてタスクを一括登録します。
+     * システムプロパティ「taskapp.metrics.dump」を指定した場合は、計測値を定期的にファイルへ出力します。
+     * @param args 起動引数
+     */
     public static void main(String[] args) {
+        Metrics.startDumpIfConfigured();
+
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+            TaskServer server = new TaskServer();
+            try {
+                server.start(port);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+            System.out.println("ポート" + server.port() + "でサーバーを起動しました。");
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--import")) {
+            if (args.length < 4) {
+                System.err.println("引数：--import csvファイル メールアドレス パスワード");
+                System.exit(1);
+            }
+            importTasks(args[1], args[2], args[3]);
+            return;
+        }
+
         TaskUI ui = new TaskUI();
         ui.displayMenu();
     }
+
+    /**
+     * ログインしてからcsvファイルのタスクを一括登録し、登録できなかった行と件数を出力します。
+     * @param path csvファイルのパス
+     * @param email メールアドレス
+     * @param password パスワード
+     */
+    private static void importTasks(String path, String email, String password) {
+        try (Reader input = new FileReader(path)) {
+            User loginUser = new UserLogic().login(email, password);
+            long start = System.nanoTime();
+            ImportResult result = new TaskLogic().saveAll(input, loginUser);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+
+            for (String error : result.getErrors()) {
+                System.out.println(error);
+            }
+            System.out.println(result.getImported() + "件のタスクを" + millis + "ミリ秒で登録しました(登録できなかった行："
+                    + result.getErrors().size() + "件)");
+        } catch (AppException e) {
+            System.out.println(e.getMessage());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 }
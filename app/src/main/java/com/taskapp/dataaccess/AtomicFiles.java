@@ -0,0 +1,135 @@
+package com.taskapp.dataaccess;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * csvを途中で壊さずに書き換えるための処理をまとめたクラスです。
+ * 書き換え内容は同じディレクトリの「.tmp」に書き込んでディスクへ同期し、
+ * 最後に名前変更で元のファイルと置き換えます。
+ */
+public class AtomicFiles {
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private AtomicFiles() {
+    }
+
+    /**
+     * ファイルへの書き込み処理です。
+     */
+    @FunctionalInterface
+    public interface WriteAction {
+        /**
+         * @param writer 書き込み先
+         * @throws IOException 書き込みに失敗した場合
+         */
+        void write(BufferedWriter writer) throws IOException;
+    }
+
+    /**
+     * バイナリ形式のファイルへの書き込み処理です。
+     */
+    @FunctionalInterface
+    public interface ByteWriteAction {
+        /**
+         * @param out 書き込み先
+         * @throws IOException 書き込みに失敗した場合
+         */
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * 一時ファイルに書き込んでから元のファイルと置き換えます。
+     * 置き換え前に停止した場合、元のファイルは変更されません。
+     * @param filePath 書き換えるファイルのパス
+     * @param action 書き込み処理
+     * @throws IOException 書き込みまたは置き換えに失敗した場合
+     */
+    public static void rewrite(String filePath, WriteAction action) throws IOException {
+        Path target = Paths.get(filePath);
+        Path temp = tempPath(filePath);
+        try {
+            writeSynced(temp, action);
+            move(temp, target);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * バイナリ形式のファイルを、一時ファイルに書き込んでから元のファイルと置き換えます。
+     * @param filePath 書き換えるファイルのパス
+     * @param action 書き込み処理
+     * @throws IOException 書き込みまたは置き換えに失敗した場合
+     */
+    public static void rewriteBytes(String filePath, ByteWriteAction action) throws IOException {
+        Path target = Paths.get(filePath);
+        Path temp = tempPath(filePath);
+        try {
+            try (FileOutputStream out = new FileOutputStream(temp.toFile());
+                    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16))) {
+                action.write(data);
+                data.flush();
+                out.getChannel().force(true);
+            }
+            move(temp, target);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * ファイルに書き込み、内容をディスクへ同期します。
+     * @param path 書き込み先のパス
+     * @param action 書き込み処理
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public static void writeSynced(Path path, WriteAction action) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(path.toFile());
+                BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            action.write(writer);
+            writer.flush();
+            out.getChannel().force(true);
+        }
+    }
+
+    /**
+     * ファイルを名前変更で置き換えます。アトミックな名前変更ができない場合は通常の置き換えを行います。
+     * @param source 移動元
+     * @param target 移動先
+     * @throws IOException 移動に失敗した場合
+     */
+    public static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 前回の書き換えが途中で停止して残った一時ファイルを削除します。
+     * 元のファイルは置き換え前の内容のまま残っているため、一時ファイルは破棄して問題ありません。
+     * @param filePath 書き換え対象のファイルのパス
+     * @return 一時ファイルを削除した場合はtrue
+     */
+    public static boolean recover(String filePath) {
+        try {
+            boolean deleted = Files.deleteIfExists(tempPath(filePath));
+            if (deleted) {
+                System.err.println(filePath + "の書き換え途中の一時ファイルを削除しました");
+            }
+            return deleted;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private static Path tempPath(String filePath) {
+        return Paths.get(filePath + TEMP_SUFFIX);
+    }
+}
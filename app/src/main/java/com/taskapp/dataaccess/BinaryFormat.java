@@ -0,0 +1,491 @@
+package com.taskapp.dataaccess;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.taskapp.model.Log;
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+/**
+ * タスク・ユーザー・ログをバイナリ形式で読み書きするクラスです。
+ * 拡張子が「.bin」のファイルはこの形式で保存されているものとして扱います。
+ *
+ * <p>ファイルの先頭はマジックナンバー(int)・種類(byte)・版数(byte)のヘッダーです。
+ * <ul>
+ * <li>ログ：タスクコード(int)・変更ユーザーコード(int)・ステータス(byte)・変更日のエポック日(int)の13バイト固定長</li>
+ * <li>タスク：コード(int)・ステータス(byte)・担当ユーザーコード(int)・版数(int)・タスク名(長さ付きUTF-8)</li>
+ * <li>ユーザー：コード(int)・名前・メールアドレス・パスワード(いずれも長さ付きUTF-8)</li>
+ * </ul>
+ * 長さ付きUTF-8は、バイト数(int)に続けてUTF-8のバイト列を並べたものです。
+ *
+ * <p>タスクの版数の列は形式の版数2で追加しました。版数1のタスクのファイルも読み込めます(タスクの版数は0)。
+ * 版数1のファイルには追記できないため、書き換えて版数2にしてから追記してください。
+ */
+public class BinaryFormat {
+    /** 保存形式を切り替えるシステムプロパティ。「binary」の場合は既定のパスを.binにします */
+    public static final String STORAGE_PROPERTY = "taskapp.storage";
+
+    public static final byte KIND_TASK = 1;
+    public static final byte KIND_USER = 2;
+    public static final byte KIND_LOG = 3;
+
+    private static final int MAGIC = 0x54415050;
+    private static final byte VERSION = 1;
+
+    /** タスクのファイルの形式の版数。版数1にはタスクの版数の列がない */
+    private static final byte TASK_VERSION = 2;
+    private static final int HEADER_SIZE = 6;
+    private static final int LOG_RECORD_SIZE = 13;
+
+    private BinaryFormat() {
+    }
+
+    /**
+     * タスクの1レコードを受け取る処理です。
+     */
+    @FunctionalInterface
+    public interface TaskRowHandler {
+        /**
+         * @param code タスクコード
+         * @param name タスク名
+         * @param status ステータス
+         * @param repUserCode 担当ユーザーコード
+         * @param version 版数。版数の列がない形式の場合は0
+         */
+        void row(int code, String name, int status, int repUserCode, int version);
+    }
+
+    /**
+     * バイナリ形式のファイルかを判定します。
+     * @param filePath ファイルのパス
+     * @return 拡張子が.binの場合はtrue
+     */
+    public static boolean isBinary(String filePath) {
+        return filePath.endsWith(".bin");
+    }
+
+    /**
+     * 既定のcsvのパスを、設定に合わせたパスに変換します。
+     * @param csvPath 既定のcsvのパス
+     * @return システムプロパティでbinaryが指定されていれば拡張子を.binにしたパス、それ以外はcsvPath
+     */
+    public static String resolvePath(String csvPath) {
+        if (!"binary".equals(System.getProperty(STORAGE_PROPERTY))) return csvPath;
+        return csvPath.replaceFirst("\\.csv$", ".bin");
+    }
+
+    /**
+     * タスクのファイルを先頭から読み込みます。
+     * @param path ファイルのパス
+     * @param handler 1レコードごとに呼び出す処理
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public static void readTasks(Path path, TaskRowHandler handler) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            boolean versioned = readHeader(in, path, KIND_TASK) == TASK_VERSION;
+            int code;
+            while ((code = readIntOrEnd(in)) != Integer.MIN_VALUE) {
+                int status = in.readByte();
+                int repUserCode = in.readInt();
+                int version = versioned ? in.readInt() : 0;
+                String name = readString(in);
+                handler.row(code, name, status, repUserCode, version);
+            }
+        } catch (EOFException e) {
+            // 書き込み途中のレコードは読み飛ばす
+        }
+    }
+
+    /**
+     * タスクのファイルが現在の形式(版数の列がある形式)かを判定します。
+     * @param path ファイルのパス
+     * @return 現在の形式、またはファイルが存在しないか空の場合はtrue。版数1の形式の場合はfalse
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public static boolean isCurrentTaskFormat(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) == 0) return true;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            return readHeader(in, path, KIND_TASK) == TASK_VERSION;
+        }
+    }
+
+    /**
+     * タスクのファイルを表の全ての行で書き換えます。
+     * @param filePath ファイルのパス
+     * @param tasks 書き込むタスクの表
+     * @throws IOException 書き込みに失敗した場合
+     */
+    static void writeTasks(String filePath, TaskTable tasks) throws IOException {
+        AtomicFiles.rewriteBytes(filePath, out -> {
+            writeHeader(out, KIND_TASK);
+            for (int row = 0; row < tasks.size(); row++) {
+                writeTask(out, tasks.code(row), tasks.name(row), tasks.status(row), tasks.repUserCode(row),
+                        tasks.version(row));
+            }
+        });
+    }
+
+    /**
+     * タスクをファイルの末尾に追記します。
+     * @param filePath ファイルのパス
+     * @param task 追記するタスク
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public static void appendTask(String filePath, Task task) throws IOException {
+        appendTasks(filePath, List.of(task));
+    }
+
+    /**
+     * 複数のタスクをまとめてファイルの末尾に追記します。
+     * @param filePath ファイルのパス
+     * @param tasks 追記するタスク
+     * @throws IOException 書き込みに失敗した場合、またはファイルが版数1の形式の場合
+     */
+    public static void appendTasks(String filePath, List<Task> tasks) throws IOException {
+        try (DataOutputStream out = openForAppend(filePath, KIND_TASK)) {
+            for (Task task : tasks) {
+                writeTask(out, task.getCode(), task.getName(), task.getStatus(), task.getRepUser().getCode(),
+                        task.getVersion());
+            }
+        }
+    }
+
+    /**
+     * ユーザーのファイルを読み込みます。
+     * @param path ファイルのパス
+     * @return ファイル順のユーザーのリスト
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public static List<User> readUsers(Path path) throws IOException {
+        List<User> users = new ArrayList<>();
+        try (DataInputStream in = openForRead(path, KIND_USER)) {
+            int code;
+            while ((code = readIntOrEnd(in)) != Integer.MIN_VALUE) {
+                users.add(new User(code, readString(in), readString(in), readString(in)));
+            }
+        } catch (EOFException e) {
+            // 書き込み途中のレコードは読み飛ばす
+        }
+        return users;
+    }
+
+    /**
+     * ユーザーのファイルを書き換えます。
+     * @param filePath ファイルのパス
+     * @param users 書き込むユーザー
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public static void writeUsers(String filePath, List<User> users) throws IOException {
+        AtomicFiles.rewriteBytes(filePath, out -> {
+            writeHeader(out, KIND_USER);
+            for (User user : users) {
+                out.writeInt(user.getCode());
+                writeString(out, user.getName());
+                writeString(out, user.getEmail());
+                writeString(out, user.getPassword());
+            }
+        });
+    }
+
+    /**
+     * ログのファイルを読み込みます。固定長のため、ファイル全体を1回で読み込んでから解析します。
+     * @param path ファイルのパス
+     * @return ファイル順のログのリスト
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public static List<Log> readLogs(Path path) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            }
+        }
+        buffer.flip();
+        checkHeader(buffer, KIND_LOG);
+
+        List<Log> logs = new ArrayList<>(buffer.remaining() / LOG_RECORD_SIZE);
+        while (buffer.remaining() >= LOG_RECORD_SIZE) {
+            int taskCode = buffer.getInt();
+            int changeUserCode = buffer.getInt();
+            int status = buffer.get();
+            int epochDay = buffer.getInt();
+            logs.add(new Log(taskCode, changeUserCode, status, LocalDate.ofEpochDay(epochDay)));
+        }
+        return logs;
+    }
+
+    /**
+     * ログのファイルを書き換えます。
+     * @param filePath ファイルのパス
+     * @param logs 書き込むログ
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public static void writeLogs(String filePath, List<Log> logs) throws IOException {
+        AtomicFiles.rewriteBytes(filePath, out -> {
+            writeHeader(out, KIND_LOG);
+            for (Log log : logs) {
+                writeLog(out, log);
+            }
+        });
+    }
+
+    /**
+     * ログをファイルの末尾に追記します。
+     * @param filePath ファイルのパス
+     * @param log 追記するログ
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public static void appendLog(String filePath, Log log) throws IOException {
+        appendLogs(filePath, List.of(log));
+    }
+
+    /**
+     * 複数のログをまとめてファイルの末尾に追記します。
+     * @param filePath ファイルのパス
+     * @param logs 追記するログ
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public static void appendLogs(String filePath, List<Log> logs) throws IOException {
+        try (DataOutputStream out = openForAppend(filePath, KIND_LOG)) {
+            for (Log log : logs) {
+                writeLog(out, log);
+            }
+        }
+    }
+
+    /**
+     * csvのファイルをバイナリ形式に変換します。
+     * @param kind 種類({@link #KIND_TASK}・{@link #KIND_USER}・{@link #KIND_LOG})
+     * @param csvPath 変換元のcsvのパス
+     * @param binaryPath 変換先のパス
+     * @throws IOException 読み書きに失敗した場合
+     */
+    public static void csvToBinary(byte kind, String csvPath, String binaryPath) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(csvPath))) {
+            String line;
+            reader.readLine();
+            while ((line = reader.readLine()) != null) {
+                String[] values = line.split(",");
+                // タスクは版数の列がある5列と、版数の列がない4列のどちらも変換する
+                if (values.length == 4 || (kind == KIND_TASK && values.length == 5)) rows.add(values);
+            }
+        }
+
+        AtomicFiles.rewriteBytes(binaryPath, out -> {
+            writeHeader(out, kind);
+            for (String[] values : rows) {
+                switch (kind) {
+                    case KIND_TASK:
+                        writeTask(out, Integer.parseInt(values[0]), values[1],
+                                Integer.parseInt(values[2]), Integer.parseInt(values[3]),
+                                values.length == 5 ? Integer.parseInt(values[4]) : 0);
+                        break;
+                    case KIND_USER:
+                        out.writeInt(Integer.parseInt(values[0]));
+                        writeString(out, values[1]);
+                        writeString(out, values[2]);
+                        writeString(out, values[3]);
+                        break;
+                    default:
+                        writeLog(out, new Log(Integer.parseInt(values[0]), Integer.parseInt(values[1]),
+                                Integer.parseInt(values[2]), LocalDate.parse(values[3])));
+                        break;
+                }
+            }
+        });
+    }
+
+    /**
+     * バイナリ形式のファイルをcsvに変換します。
+     * @param kind 種類({@link #KIND_TASK}・{@link #KIND_USER}・{@link #KIND_LOG})
+     * @param binaryPath 変換元のパス
+     * @param csvPath 変換先のcsvのパス
+     * @throws IOException 読み書きに失敗した場合
+     */
+    public static void binaryToCsv(byte kind, String binaryPath, String csvPath) throws IOException {
+        List<String> lines = new ArrayList<>();
+        Path path = Paths.get(binaryPath);
+        String header;
+        switch (kind) {
+            case KIND_TASK:
+                header = "Code,Name,Status,Rep_User_Code,Version";
+                readTasks(path, (code, name, status, repUserCode, version) ->
+                        lines.add(code + "," + name + "," + status + "," + repUserCode + "," + version));
+                break;
+            case KIND_USER:
+                header = "Code,Name,Email,Password";
+                for (User user : readUsers(path)) {
+                    lines.add(user.getCode() + "," + user.getName() + "," + user.getEmail() + "," + user.getPassword());
+                }
+                break;
+            default:
+                header = "Task_Code,Change_User_Code,Status,Change_Date";
+                for (Log log : readLogs(path)) {
+                    lines.add(log.getTaskCode() + "," + log.getChangeUserCode() + "," + log.getStatus() + ","
+                            + log.getChangeDate());
+                }
+                break;
+        }
+
+        AtomicFiles.rewrite(csvPath, writer -> {
+            writer.write(header);
+            writer.newLine();
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+        });
+    }
+
+    /**
+     * csvとバイナリ形式を相互に変換します。
+     * 使い方：BinaryFormat (to-binary|to-csv) (tasks|users|logs) 変換元 変換先
+     * @param args コマンドライン引数
+     * @throws IOException 読み書きに失敗した場合
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.err.println("使い方：BinaryFormat (to-binary|to-csv) (tasks|users|logs) 変換元 変換先");
+            System.exit(1);
+        }
+        byte kind;
+        switch (args[1]) {
+            case "tasks":
+                kind = KIND_TASK;
+                break;
+            case "users":
+                kind = KIND_USER;
+                break;
+            default:
+                kind = KIND_LOG;
+                break;
+        }
+        if ("to-binary".equals(args[0])) {
+            csvToBinary(kind, args[2], args[3]);
+        } else {
+            binaryToCsv(kind, args[2], args[3]);
+        }
+    }
+
+    private static DataInputStream openForRead(Path path, byte kind) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16));
+        try {
+            readHeader(in, path, kind);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return in;
+    }
+
+    /**
+     * ヘッダーを読み込み、種類と形式の版数を確認します。
+     * @return 形式の版数
+     * @throws IOException 読み込みに失敗した場合、または読み込めない形式の場合
+     */
+    private static byte readHeader(DataInputStream in, Path path, byte kind) throws IOException {
+        if (in.readInt() != MAGIC || in.readByte() != kind) {
+            throw new IOException(path + "はこの形式のファイルではありません");
+        }
+        byte version = in.readByte();
+        if (version != versionOf(kind) && !(kind == KIND_TASK && version == VERSION)) {
+            throw new IOException(path + "はこの形式のファイルではありません");
+        }
+        return version;
+    }
+
+    private static DataOutputStream openForAppend(String filePath, byte kind) throws IOException {
+        boolean empty = !Files.exists(Paths.get(filePath)) || Files.size(Paths.get(filePath)) == 0;
+        if (kind == KIND_TASK && !empty && !isCurrentTaskFormat(Paths.get(filePath))) {
+            throw new IOException(filePath + "は版数1の形式のため追記できません");
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath, true)));
+        if (empty) writeHeader(out, kind);
+        return out;
+    }
+
+    private static void checkHeader(ByteBuffer buffer, byte kind) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.get() != kind
+                || buffer.get() != versionOf(kind)) {
+            throw new IOException("この形式のファイルではありません");
+        }
+    }
+
+    private static void writeHeader(DataOutputStream out, byte kind) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(kind);
+        out.writeByte(versionOf(kind));
+    }
+
+    /**
+     * @return 種類ごとの現在の形式の版数
+     */
+    private static byte versionOf(byte kind) {
+        return kind == KIND_TASK ? TASK_VERSION : VERSION;
+    }
+
+    private static void writeTask(DataOutputStream out, int code, String name, int status, int repUserCode,
+            int version) throws IOException {
+        out.writeInt(code);
+        out.writeByte(status);
+        out.writeInt(repUserCode);
+        out.writeInt(version);
+        writeString(out, name);
+    }
+
+    private static void writeLog(DataOutputStream out, Log log) throws IOException {
+        out.writeInt(log.getTaskCode());
+        out.writeInt(log.getChangeUserCode());
+        out.writeByte(log.getStatus());
+        out.writeInt((int) log.getChangeDate().toEpochDay());
+    }
+
+    /**
+     * 長さ付きUTF-8で文字列を書き込みます。
+     * @param out 書き込み先
+     * @param value 文字列
+     * @throws IOException 書き込みに失敗した場合
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * バッファから長さ付きUTF-8の文字列を読み込みます。
+     * @param in 読み込み元
+     * @return 文字列
+     */
+    static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * intを読み込みます。ファイルの終端に達している場合はInteger.MIN_VALUEを返します。
+     */
+    private static int readIntOrEnd(DataInputStream in) throws IOException {
+        int first = in.read();
+        if (first < 0) return Integer.MIN_VALUE;
+        return (first << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+    }
+}
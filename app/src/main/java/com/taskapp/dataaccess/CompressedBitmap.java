@@ -0,0 +1,324 @@
+package com.taskapp.dataaccess;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * intの集合を保持する圧縮ビットマップです。
+ * 値の上位16ビットごとにコンテナを分け、要素が少ないコンテナはソート済みの配列、
+ * 多いコンテナは65536ビットのビット列で保持します(Roaring Bitmapと同じ方式)。
+ * 値は符号なしの順に並びます。
+ */
+public class CompressedBitmap {
+    /** 配列で保持するコンテナの最大件数。これを超えるとビット列に切り替える */
+    private static final int ARRAY_MAX = 4096;
+
+    /** ビット列のコンテナのlongの個数(65536ビット) */
+    private static final int BITS_LENGTH = 1024;
+
+    /** 上位16ビットごとのコンテナです。 */
+    private static final class Container {
+        /** 配列で保持する場合のソート済みの下位16ビット。ビット列で保持する場合はnull */
+        private char[] array;
+        /** ビット列で保持する場合のビット列。配列で保持する場合はnull */
+        private long[] bits;
+        private int cardinality;
+
+        private Container() {
+            array = new char[4];
+        }
+
+        private boolean contains(char low) {
+            if (bits != null) return (bits[low >>> 6] & (1L << low)) != 0;
+            return Arrays.binarySearch(array, 0, cardinality, low) >= 0;
+        }
+
+        private void add(char low) {
+            if (bits != null) {
+                long before = bits[low >>> 6];
+                bits[low >>> 6] = before | (1L << low);
+                if (before != bits[low >>> 6]) cardinality++;
+                return;
+            }
+            int position = Arrays.binarySearch(array, 0, cardinality, low);
+            if (position >= 0) return;
+            if (cardinality == ARRAY_MAX) {
+                toBits();
+                add(low);
+                return;
+            }
+            position = -position - 1;
+            if (cardinality == array.length) array = Arrays.copyOf(array, Math.min(ARRAY_MAX, array.length * 2));
+            System.arraycopy(array, position, array, position + 1, cardinality - position);
+            array[position] = low;
+            cardinality++;
+        }
+
+        private void remove(char low) {
+            if (bits != null) {
+                long before = bits[low >>> 6];
+                bits[low >>> 6] = before & ~(1L << low);
+                if (before != bits[low >>> 6]) cardinality--;
+                if (cardinality <= ARRAY_MAX) toArray();
+                return;
+            }
+            int position = Arrays.binarySearch(array, 0, cardinality, low);
+            if (position < 0) return;
+            System.arraycopy(array, position + 1, array, position, cardinality - position - 1);
+            cardinality--;
+        }
+
+        private void toBits() {
+            bits = new long[BITS_LENGTH];
+            for (int i = 0; i < cardinality; i++) {
+                bits[array[i] >>> 6] |= 1L << array[i];
+            }
+            array = null;
+        }
+
+        private void toArray() {
+            char[] values = new char[Math.max(4, cardinality)];
+            int count = 0;
+            for (int word = 0; word < BITS_LENGTH; word++) {
+                long w = bits[word];
+                while (w != 0) {
+                    values[count++] = (char) (word * 64 + Long.numberOfTrailingZeros(w));
+                    w &= w - 1;
+                }
+            }
+            array = values;
+            bits = null;
+        }
+
+        private void forEach(int high, IntConsumer action) {
+            if (bits == null) {
+                for (int i = 0; i < cardinality; i++) {
+                    action.accept(high | array[i]);
+                }
+                return;
+            }
+            for (int word = 0; word < BITS_LENGTH; word++) {
+                long w = bits[word];
+                while (w != 0) {
+                    action.accept(high | (word * 64 + Long.numberOfTrailingZeros(w)));
+                    w &= w - 1;
+                }
+            }
+        }
+
+        /**
+         * 2つのコンテナの共通部分を作成します。
+         * @return 共通部分。空の場合はnull
+         */
+        private static Container and(Container a, Container b) {
+            Container result = new Container();
+            if (a.bits != null && b.bits != null) {
+                long[] bits = new long[BITS_LENGTH];
+                int cardinality = 0;
+                for (int i = 0; i < BITS_LENGTH; i++) {
+                    bits[i] = a.bits[i] & b.bits[i];
+                    cardinality += Long.bitCount(bits[i]);
+                }
+                result.bits = bits;
+                result.array = null;
+                result.cardinality = cardinality;
+                if (cardinality <= ARRAY_MAX) result.toArray();
+            } else if (a.bits == null && b.bits == null) {
+                char[] values = new char[Math.max(4, Math.min(a.cardinality, b.cardinality))];
+                int count = 0;
+                int i = 0;
+                int j = 0;
+                while (i < a.cardinality && j < b.cardinality) {
+                    if (a.array[i] < b.array[j]) {
+                        i++;
+                    } else if (a.array[i] > b.array[j]) {
+                        j++;
+                    } else {
+                        values[count++] = a.array[i];
+                        i++;
+                        j++;
+                    }
+                }
+                result.array = values;
+                result.cardinality = count;
+            } else {
+                Container array = a.bits == null ? a : b;
+                Container bitmap = a.bits == null ? b : a;
+                char[] values = new char[Math.max(4, array.cardinality)];
+                int count = 0;
+                for (int i = 0; i < array.cardinality; i++) {
+                    if (bitmap.contains(array.array[i])) values[count++] = array.array[i];
+                }
+                result.array = values;
+                result.cardinality = count;
+            }
+            return result.cardinality == 0 ? null : result;
+        }
+    }
+
+    /** 上位16ビットの値(昇順) */
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size;
+
+    /**
+     * 値を追加します。
+     * @param value 値
+     */
+    public void add(int value) {
+        char high = (char) (value >>> 16);
+        int position = Arrays.binarySearch(keys, 0, size, high);
+        if (position < 0) {
+            position = -position - 1;
+            insertContainer(position, high, new Container());
+        }
+        containers[position].add((char) value);
+    }
+
+    /**
+     * 値を取り除きます。
+     * @param value 値
+     */
+    public void remove(int value) {
+        int position = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        if (position < 0) return;
+        Container container = containers[position];
+        container.remove((char) value);
+        if (container.cardinality == 0) {
+            System.arraycopy(keys, position + 1, keys, position, size - position - 1);
+            System.arraycopy(containers, position + 1, containers, position, size - position - 1);
+            size--;
+            containers[size] = null;
+        }
+    }
+
+    /**
+     * 値が含まれるかを判定します。
+     * @param value 値
+     * @return 含まれる場合はtrue
+     */
+    public boolean contains(int value) {
+        int position = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        return position >= 0 && containers[position].contains((char) value);
+    }
+
+    /**
+     * @return 値の件数
+     */
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    /**
+     * 両方に含まれる値のビットマップを作成します。自身と引数は変更しません。
+     * @param other もう一方のビットマップ
+     * @return 共通部分のビットマップ
+     */
+    public CompressedBitmap and(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container container = Container.and(containers[i], other.containers[j]);
+                if (container != null) result.insertContainer(result.size, keys[i], container);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 全ての値を符号なしの昇順に渡します。
+     * @param action 値ごとに呼び出す処理
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    /**
+     * 全ての値を取り除きます。
+     */
+    public void clear() {
+        keys = new char[4];
+        containers = new Container[4];
+        size = 0;
+    }
+
+    /**
+     * 全てのコンテナを書き込みます。
+     * コンテナの数(int)に続けて、コンテナごとに上位16ビット(char)・件数(int)・形式(byte)と、
+     * 配列の場合は下位16ビット(char)を件数分、ビット列の場合はlongを1024個並べます。
+     * @param out 書き込み先
+     * @throws IOException 書き込みに失敗した場合
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            Container container = containers[i];
+            out.writeChar(keys[i]);
+            out.writeInt(container.cardinality);
+            out.writeBoolean(container.bits != null);
+            if (container.bits != null) {
+                IndexSnapshot.writeLongs(out, container.bits, 0, BITS_LENGTH);
+            } else {
+                for (int j = 0; j < container.cardinality; j++) {
+                    out.writeChar(container.array[j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * {@link #writeTo}で書き込んだコンテナからビットマップを作成します。
+     * @param in 読み込み元
+     * @return ビットマップ
+     */
+    static CompressedBitmap readFrom(ByteBuffer in) {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            char high = in.getChar();
+            Container container = new Container();
+            container.cardinality = in.getInt();
+            if (in.get() != 0) {
+                container.array = null;
+                container.bits = new long[BITS_LENGTH];
+                in.asLongBuffer().get(container.bits);
+                in.position(in.position() + BITS_LENGTH * Long.BYTES);
+            } else {
+                container.array = new char[Math.max(4, container.cardinality)];
+                in.asCharBuffer().get(container.array, 0, container.cardinality);
+                in.position(in.position() + container.cardinality * Character.BYTES);
+            }
+            bitmap.insertContainer(bitmap.size, high, container);
+        }
+        return bitmap;
+    }
+
+    private void insertContainer(int position, char high, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, position, keys, position + 1, size - position);
+        System.arraycopy(containers, position, containers, position + 1, size - position);
+        keys[position] = high;
+        containers[position] = container;
+        size++;
+    }
+}
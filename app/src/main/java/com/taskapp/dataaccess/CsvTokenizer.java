@@ -0,0 +1,347 @@
+package com.taskapp.dataaccess;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * csvを1行ずつ読み込み、列の位置だけを記録するクラスです。
+ * 行や列ごとのStringや配列は作成せず、数値の列はバッファから直接解析します。
+ * 文字列の列は {@link #getString(int)} を呼び出したときにだけ作成します。
+ *
+ * <p>列の数え方は {@code line.split(",")} と同じで、末尾の空の列は数えません。
+ */
+public class CsvTokenizer implements Closeable {
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+    private static final int INITIAL_COLUMNS = 8;
+
+    private final Reader reader;
+    private char[] buffer = new char[INITIAL_BUFFER_SIZE];
+    private int filled;
+    private int position;
+    private boolean eof;
+
+    private int[] starts = new int[INITIAL_COLUMNS];
+    private int[] ends = new int[INITIAL_COLUMNS];
+    private int columnCount;
+
+    /**
+     * @param reader 読み込むcsv
+     */
+    public CsvTokenizer(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * csvファイルを開き、ヘッダーの行を読み飛ばします。
+     * 開いた時点のファイルの長さまでだけを読み込むため、開いた後に追記された行(書き込み途中の行を含む)は読みません。
+     * 読み込み用のロックを取得した状態で開けば、ロックを解放した後に読み進めても開いた時点の行だけを読み込みます。
+     * @param filePath csvのパス
+     * @return ヘッダーの次の行から読み込むcsv
+     * @throws IOException ファイルを開けない、または読み込みに失敗した場合
+     */
+    public static CsvTokenizer openSkippingHeader(String filePath) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        InputStream in;
+        try {
+            in = new LimitedInputStream(Channels.newInputStream(channel), channel.size());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        CsvTokenizer csv = new CsvTokenizer(new InputStreamReader(in));
+        try {
+            csv.next();
+        } catch (IOException e) {
+            csv.close();
+            throw e;
+        }
+        return csv;
+    }
+
+    /**
+     * 次の行へ進みます。
+     * @return 次の行がある場合はtrue
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public boolean next() throws IOException {
+        int lineStart = position;
+        int scan = position;
+        while (true) {
+            while (scan < filled) {
+                char c = buffer[scan];
+                if (c == '\n' || c == '\r') {
+                    tokenize(lineStart, scan);
+                    position = scan + 1;
+                    if (c == '\r') skipLineFeed();
+                    return true;
+                }
+                scan++;
+            }
+            if (eof) {
+                if (lineStart == filled) return false;
+                tokenize(lineStart, filled);
+                position = filled;
+                return true;
+            }
+            int shift = lineStart;
+            fill(lineStart);
+            scan -= shift;
+            lineStart = 0;
+        }
+    }
+
+    /**
+     * @return 現在の行の列数
+     */
+    public int columnCount() {
+        return columnCount;
+    }
+
+    /**
+     * 列を整数として解析します。{@link Integer#parseInt(String)} と同じ形式を受け付けます。
+     * @param column 列番号(0始まり)
+     * @return 解析した値
+     * @throws NumberFormatException 整数でない場合
+     */
+    public int getInt(int column) {
+        int i = starts[column];
+        int end = ends[column];
+        if (i == end) throw new NumberFormatException("For input string: \"\"");
+
+        boolean negative = false;
+        char first = buffer[i];
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+            if (i == end) throw invalidNumber(column);
+        }
+        long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) throw invalidNumber(column);
+            value = value * 10 + digit;
+            if (value > limit) throw invalidNumber(column);
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * 列を「yyyy-MM-dd」形式の日付として解析します。
+     * @param column 列番号(0始まり)
+     * @return 解析した日付
+     * @throws java.time.DateTimeException 日付として解析できない場合
+     */
+    public LocalDate getDate(int column) {
+        int i = starts[column];
+        if (ends[column] - i != 10 || buffer[i + 4] != '-' || buffer[i + 7] != '-') {
+            return LocalDate.parse(getString(column));
+        }
+        int year = digits(i, 4);
+        int month = digits(i + 5, 2);
+        int day = digits(i + 8, 2);
+        if (year < 0 || month < 0 || day < 0) return LocalDate.parse(getString(column));
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * 列をStringとして取得します。
+     * @param column 列番号(0始まり)
+     * @return 列の文字列
+     */
+    public String getString(int column) {
+        return new String(buffer, starts[column], ends[column] - starts[column]);
+    }
+
+    /**
+     * 列が指定した文字列と一致するか判定します。Stringを作成せずに比較します。
+     * @param column 列番号(0始まり)
+     * @param value 比較する文字列
+     * @return 一致する場合はtrue
+     */
+    public boolean columnEquals(int column, String value) {
+        int start = starts[column];
+        int length = ends[column] - start;
+        if (length != value.length()) return false;
+        for (int i = 0; i < length; i++) {
+            if (buffer[start + i] != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 残りの行を1行ずつ読み込むStreamを作成します。行は要素を取り出すたびに読み込み、全体を保持しません。
+     * Streamを閉じるとcsvも閉じます。読み込みに失敗した場合は {@link UncheckedIOException} をスローします。
+     * @param <T> 要素の型
+     * @param parser 現在の行から要素を作成する処理。nullを返した行は読み飛ばす
+     * @return 要素のStream
+     */
+    public <T> Stream<T> stream(Function<CsvTokenizer, T> parser) {
+        Iterator<T> iterator = new Iterator<>() {
+            private T next;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (next == null && CsvTokenizer.this.next()) {
+                        next = parser.apply(CsvTokenizer.this);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                T result = next;
+                next = null;
+                return result;
+            }
+        };
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * 行を「,」で区切り、各列の開始・終了位置を記録します。
+     */
+    private void tokenize(int lineStart, int lineEnd) {
+        int count = 0;
+        int start = lineStart;
+        for (int i = lineStart; i <= lineEnd; i++) {
+            if (i < lineEnd && buffer[i] != ',') continue;
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = i;
+            count++;
+            start = i + 1;
+        }
+        // split(",")と同じく末尾の空の列は数えない(空行は1列とする)
+        if (lineStart != lineEnd) {
+            while (count > 0 && starts[count - 1] == ends[count - 1]) count--;
+        }
+        columnCount = count;
+    }
+
+    /**
+     * 「\r\n」の「\n」を読み飛ばします。
+     */
+    private void skipLineFeed() throws IOException {
+        if (position == filled && !eof) fill(position);
+        if (position < filled && buffer[position] == '\n') position++;
+    }
+
+    /**
+     * 読み込み途中の行をバッファの先頭に移し、続きを読み込みます。行がバッファに収まらない場合は拡張します。
+     * @param keepFrom バッファに残す先頭の位置
+     */
+    private void fill(int keepFrom) throws IOException {
+        int remaining = filled - keepFrom;
+        if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        } else if (keepFrom > 0) {
+            System.arraycopy(buffer, keepFrom, buffer, 0, remaining);
+        }
+        filled = remaining;
+        position -= keepFrom;
+        int read = reader.read(buffer, filled, buffer.length - filled);
+        if (read < 0) {
+            eof = true;
+        } else {
+            filled += read;
+        }
+    }
+
+    /**
+     * 指定した桁数の数字を解析します。
+     * @return 解析した値。数字以外を含む場合は-1
+     */
+    private int digits(int from, int length) {
+        int value = 0;
+        for (int i = from; i < from + length; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private NumberFormatException invalidNumber(int column) {
+        return new NumberFormatException("For input string: \"" + getString(column) + "\"");
+    }
+
+    /**
+     * 指定したバイト数を読み込んだ時点で終端とするInputStreamです。
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+
+        private LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int read = super.read();
+            if (read >= 0) remaining--;
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) return -1;
+            int read = super.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) remaining -= read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 1つのファイルを共有するための読み書きロックと変更番号です。
+ * 同じパスを指すデータアクセスのインスタンスは、インスタンスが異なっても同じFileGuardを利用します。
+ * 読み込みは並行して行え、書き込みは他の読み書きと排他になります。
+ *
+ * <p>JVM内のスレッド間はReentrantReadWriteLockで、別のプロセスとの間は「.lock」ファイルのOSのロックで排他します。
+ * 読み込み中は共有ロック、書き込み中は排他ロックを取得します。
+ * csvは名前変更で置き換えられるため、ロックはcsvではなく置き換えられない「.lock」ファイルに対して取得します。
+ * OSのロックはJVM内で最初にロックしたスレッドが取得し、最後に解放したスレッドが解放します。
+ * 「.lock」ファイルを作成できない場合(ディレクトリが存在しない、書き込み権限がないなど)は、
+ * スタックトレースを出力し、以降はJVM内のロックだけで排他します。
+ *
+ * <p>変更番号は書き込みのたびに増えます。キャッシュを持つクラスは、
+ * ファイルのサイズや更新日時が同じでも変更番号の違いで同じJVM内の他のインスタンスの書き込みを検出できます。
+ */
+public final class FileGuard {
+    private static final ConcurrentHashMap<Path, FileGuard> GUARDS = new ConcurrentHashMap<>();
+
+    private static final String LOCK_SUFFIX = ".lock";
+
+    /** 別のプロセスのロックの解放を待つ最大時間(ミリ秒) */
+    private static final long LOCK_TIMEOUT_MILLIS = 10_000;
+
+    /** ロックを再試行するまでの待ち時間の上限(ミリ秒) */
+    private static final long MAX_BACKOFF_MILLIS = 50;
+
+    private final Path lockPath;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong version = new AtomicLong();
+
+    /** OSのロックの取得・解放と利用数を保護するロック。別のプロセスのロックの解放を待つ間は保持しない */
+    private final ReentrantLock osLock = new ReentrantLock();
+
+    /** 「.lock」ファイルのチャネル。未使用の場合はnull */
+    private FileChannel channel;
+
+    /** 取得中のOSのロック。JVM内で誰もロックしていない場合はnull */
+    private FileLock fileLock;
+
+    /** OSのロックを利用しているロックの数 */
+    private int holders;
+
+    /** 「.lock」ファイルを開けず、JVM内のロックだけで排他している場合はtrue */
+    private boolean inProcessOnly;
+
+    private FileGuard(Path path) {
+        this.lockPath = Paths.get(path + LOCK_SUFFIX);
+    }
+
+    /**
+     * ファイルに対応するFileGuardを取得します。同じファイルであれば相対パスと絶対パスのどちらでも同じものを返します。
+     * @param filePath ファイルのパス
+     * @return FileGuard
+     */
+    public static FileGuard of(String filePath) {
+        Path key = Paths.get(filePath).toAbsolutePath().normalize();
+        return GUARDS.computeIfAbsent(key, FileGuard::new);
+    }
+
+    /**
+     * 読み込み用のロックを取得します。別のプロセスが書き込み中の場合は、解放されるまで待ちます。
+     * @throws UncheckedIOException 別のプロセスのロックが一定時間内に解放されない場合
+     */
+    public void lockRead() {
+        lock.readLock().lock();
+        try {
+            acquire(true);
+        } catch (RuntimeException e) {
+            lock.readLock().unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * 読み込み用のロックを解放します。
+     */
+    public void unlockRead() {
+        release();
+        lock.readLock().unlock();
+    }
+
+    /**
+     * 書き込み用のロックを取得します。別のプロセスが読み書き中の場合は、解放されるまで待ちます。
+     * 書き込み用のロックを持ったまま読み込み用のロックを取得し、書き込み用のロックを解放すると、
+     * 他の書き込みを挟まずに読み込み用のロックへ切り替えられます。
+     * @throws UncheckedIOException 別のプロセスのロックが一定時間内に解放されない場合
+     */
+    public void lockWrite() {
+        lock.writeLock().lock();
+        try {
+            acquire(false);
+        } catch (RuntimeException e) {
+            lock.writeLock().unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * 書き込み用のロックを解放します。
+     */
+    public void unlockWrite() {
+        release();
+        lock.writeLock().unlock();
+    }
+
+    /**
+     * @return 現在の変更番号
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * ファイルを書き込んだことを記録します。書き込み用のロックを取得した状態で呼び出してください。
+     * @return 記録後の変更番号
+     */
+    public long changed() {
+        return version.incrementAndGet();
+    }
+
+    /**
+     * OSのロックを利用します。JVM内の誰もOSのロックを取得していない場合は取得します。
+     * JVM内の書き込み用のロックは他のロックと排他のため、共有ロックを保持中に排他ロックが必要になることはありません。
+     * 書き込み中に読み込み用のロックへ切り替える場合は、解放されるまで排他ロックをそのまま利用します。
+     *
+     * <p>別のプロセスがロックしている場合は、待ち時間を倍にしながら再試行します。
+     * 複数のプロセスが同じ間隔で再試行し続けないよう、待ち時間にはばらつきを加えます。
+     * 待っている間はosLockを解放するため、他のスレッドのロックの解放を妨げません。
+     * @param shared 共有ロックの場合はtrue
+     * @throws UncheckedIOException 別のプロセスのロックが一定時間内に解放されない場合
+     */
+    private void acquire(boolean shared) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LOCK_TIMEOUT_MILLIS);
+        long backoff = 1;
+        while (true) {
+            if (tryAcquire(shared)) return;
+            if (System.nanoTime() >= deadline) {
+                throw new UncheckedIOException(new IOException(
+                        lockPath + "のロックを" + LOCK_TIMEOUT_MILLIS + "ミリ秒以内に取得できませんでした"));
+            }
+            try {
+                Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException(lockPath + "のロックの待機中に割り込まれました"));
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+
+    /**
+     * OSのロックの利用を1回だけ試みます。
+     * @param shared 共有ロックの場合はtrue
+     * @return 利用できる場合はtrue。別のプロセスがロックしている場合はfalse
+     */
+    private boolean tryAcquire(boolean shared) {
+        osLock.lock();
+        try {
+            if (inProcessOnly) return true;
+            if (fileLock != null) {
+                holders++;
+                return true;
+            }
+            if (channel == null || !channel.isOpen()) {
+                try {
+                    channel = FileChannel.open(lockPath,
+                            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                } catch (IOException e) {
+                    // ロックのためにファイルの読み書きを失敗させず、JVM内のロックだけで続ける
+                    e.printStackTrace();
+                    inProcessOnly = true;
+                    return true;
+                }
+            }
+            fileLock = channel.tryLock(0, Long.MAX_VALUE, shared);
+            if (fileLock == null) return false;
+            holders = 1;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            osLock.unlock();
+        }
+    }
+
+    /**
+     * OSのロックの利用を終えます。JVM内で最後の利用者の場合はOSのロックを解放します。
+     */
+    private void release() {
+        osLock.lock();
+        try {
+            if (inProcessOnly || --holders > 0) return;
+            FileLock released = fileLock;
+            fileLock = null;
+            released.release();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            osLock.unlock();
+        }
+    }
+}
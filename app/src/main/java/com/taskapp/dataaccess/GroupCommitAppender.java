@@ -0,0 +1,292 @@
+package com.taskapp.dataaccess;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ファイルを開いたままにして、追記をまとめて書き込むクラスです。
+ * 追記された行はキューに溜め、件数か待ち時間のどちらかが閾値に達した時点で1回の書き込みで出力します。
+ * 同期モードでは書き込みのたびにディスクへ同期してから完了を通知します。
+ * 書き込みはファイルのFileGuardの書き込み用のロックを取得して行い、
+ * 別のプロセスがファイルを名前変更で置き換えていた場合は開き直してから追記します。
+ */
+public class GroupCommitAppender implements Closeable {
+    /** ファイル操作の処理です。 */
+    @FunctionalInterface
+    public interface IOAction {
+        /**
+         * @throws IOException ファイル操作に失敗した場合
+         */
+        void run() throws IOException;
+    }
+
+    private static final byte[] FLUSH_MARKER = new byte[0];
+
+    private static final class Entry {
+        private final byte[] bytes;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Entry(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    private final Path path;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final boolean durable;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final ReentrantLock channelLock = new ReentrantLock();
+    private final Thread writerThread;
+    private final Thread shutdownHook;
+    private final FileGuard guard;
+    private FileChannel channel;
+
+    /** 開いているファイルの識別子 */
+    private Object openedFileKey;
+    private volatile boolean closed;
+
+    /** 書き込み用のスレッドが終了した場合はtrue */
+    private volatile boolean stopped;
+
+    /**
+     * @param filePath 追記するファイルのパス
+     * @param batchSize 1回の書き込みでまとめる最大件数
+     * @param maxDelayMillis 最初の追記から書き込みまでに待つ最大時間(ミリ秒)
+     * @param durable 書き込みのたびにディスクへ同期する場合はtrue
+     * @throws IOException ファイルを開けない場合
+     */
+    public GroupCommitAppender(String filePath, int batchSize, long maxDelayMillis, boolean durable) throws IOException {
+        this.path = Paths.get(filePath);
+        this.batchSize = batchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.durable = durable;
+        this.guard = FileGuard.of(filePath);
+        guard.lockWrite();
+        try {
+            this.channel = open();
+        } finally {
+            guard.unlockWrite();
+        }
+        writerThread = new Thread(this::run, "group-commit-" + path.getFileName());
+        writerThread.setDaemon(true);
+        writerThread.start();
+        shutdownHook = new Thread(this::close);
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * 行を追記します。書き込みは書き込み用のスレッドでまとめて行います。
+     * @param line 追記する行(改行を含まない)
+     * @return 行が書き込まれたとき(同期モードではディスクへ同期されたとき)に完了するFuture
+     */
+    public CompletableFuture<Void> append(String line) {
+        return enqueue(new Entry((line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * ここまでに追記された行が全て書き込まれるまで待ちます。
+     */
+    public void flush() {
+        enqueue(new Entry(FLUSH_MARKER)).join();
+    }
+
+    /**
+     * 追記を止めた状態でファイルを書き換え、書き換え後のファイルを開き直します。
+     * 書き換え前に追記された行を書き換えに含めるには、FileGuardのロックを取得する前にflushを呼び出してください。
+     * 書き込み用のスレッドはFileGuardのロックを取得して書き込むため、ロックを持ったままflushを待つと処理が止まります。
+     * @param action ファイルを書き換える処理
+     * @throws IOException 書き換えまたは開き直しに失敗した場合
+     */
+    public void rewrite(IOAction action) throws IOException {
+        channelLock.lock();
+        try {
+            action.run();
+            channel.close();
+            channel = open();
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    /**
+     * キューに残っている行を書き込んでからファイルを閉じます。
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // 終了処理の最中(シャットダウンフックからの呼び出しを含む)はフックを削除できないため、そのまま閉じる
+        }
+        try {
+            writerThread.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private CompletableFuture<Void> enqueue(Entry entry) {
+        if (closed || stopped) {
+            entry.done.completeExceptionally(new IllegalStateException(path + "は既に閉じられています"));
+            return entry.done;
+        }
+        queue.add(entry);
+        /*
+         * 追加の直前にcloseされた場合、書き込み用のスレッドが既に終了していて行が取り出されないことがある。
+         * キューから取り除けた場合は書き込まれないため失敗させる。取り除けなかった場合は書き込み用のスレッドが完了させる
+         */
+        if ((closed || stopped) && queue.remove(entry)) {
+            entry.done.completeExceptionally(new IllegalStateException(path + "は既に閉じられています"));
+        }
+        return entry.done;
+    }
+
+    /**
+     * キューから行を取り出し、件数か待ち時間の閾値に達したらまとめて書き込みます。
+     */
+    private void run() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        try {
+            runLoop(batch);
+        } finally {
+            /* 終了後に追記やflushが完了しないまま待ち続けないよう、残っている行を全て失敗させる */
+            stopped = true;
+            List<Entry> rest = new ArrayList<>(batch);
+            queue.drainTo(rest);
+            fail(rest, new IllegalStateException(path + "の書き込み用のスレッドは終了しています"));
+        }
+    }
+
+    private void runLoop(List<Entry> batch) {
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < batchSize && batch.get(batch.size() - 1).bytes != FLUSH_MARKER) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    Entry next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // 1回の書き込みの失敗で書き込み用のスレッドを終了させず、その回の行だけを失敗させる
+                e.printStackTrace();
+                fail(batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private static void fail(List<Entry> entries, Throwable cause) {
+        for (Entry entry : entries) {
+            entry.done.completeExceptionally(cause);
+        }
+    }
+
+    private void writeBatch(List<Entry> batch) {
+        int length = 0;
+        for (Entry entry : batch) {
+            length += entry.bytes.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (Entry entry : batch) {
+            buffer.put(entry.bytes);
+        }
+        buffer.flip();
+
+        try {
+            guard.lockWrite();
+        } catch (UncheckedIOException e) {
+            fail(batch, e.getCause());
+            return;
+        }
+        channelLock.lock();
+        try {
+            if (!Objects.equals(currentFileKey(), openedFileKey)) {
+                channel.close();
+                channel = open();
+            }
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (durable) channel.force(false);
+            guard.changed();
+        } catch (IOException e) {
+            fail(batch, e);
+            return;
+        } finally {
+            channelLock.unlock();
+            guard.unlockWrite();
+        }
+        for (Entry entry : batch) {
+            entry.done.complete(null);
+        }
+    }
+
+    /**
+     * 追記用にファイルを開きます。末尾が改行で終わっていない場合は、前の行と繋がらないよう改行を補います。
+     * @return 開いたチャネル
+     * @throws IOException ファイルを開けない場合
+     */
+    private FileChannel open() throws IOException {
+        boolean endsWithNewLine = true;
+        if (Files.exists(path) && Files.size(path) > 0) {
+            try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer last = ByteBuffer.allocate(1);
+                reader.read(last, reader.size() - 1);
+                endsWithNewLine = last.get(0) == '\n';
+            }
+        }
+
+        FileChannel opened = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (!endsWithNewLine) {
+            opened.write(ByteBuffer.wrap(System.lineSeparator().getBytes(StandardCharsets.UTF_8)));
+        }
+        openedFileKey = currentFileKey();
+        return opened;
+    }
+
+    /**
+     * @return 現在のファイルの識別子。取得できない場合はnull
+     */
+    private Object currentFileKey() {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
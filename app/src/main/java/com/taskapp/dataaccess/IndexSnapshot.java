@@ -0,0 +1,288 @@
+package com.taskapp.dataaccess;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+import com.taskapp.metrics.MetricGroup;
+import com.taskapp.metrics.Metrics;
+
+/**
+ * データファイルから作成した索引を、データファイルの隣の「.snapshot」に保存して再利用するクラスです。
+ * 起動直後のように索引を一から作成する場合、スナップショットが有効であればデータファイルを解析せずに索引を読み込めます。
+ * スナップショットはメモリマップして読み込み、列はヒープへ1回だけ複製します。
+ *
+ * <p>スナップショットには作成時のデータファイルのサイズ・更新日時・CRC32Cを記録し、読み込む際に現在のデータファイルと比べます。
+ * CRC32Cは起動のたびにデータファイル全体を読み直さないよう、先頭と末尾の{@value #CHECKSUM_SAMPLE_SIZE}バイトずつから求めます。
+ * データファイルは追記か一時ファイルからの置き換えでしか変更しないため、途中だけが書き換わることは想定しません。
+ * <ul>
+ * <li>サイズと更新日時が同じで、CRC32Cも一致する場合は、ファイル全体に対応する索引として読み込みます。</li>
+ * <li>追記を許可した場合、ファイルが大きくなっていても記録したサイズまでのCRC32Cが一致し、
+ * その位置が行の境界であれば、先頭からその位置までに対応する索引として読み込みます。呼び出し元は続きだけを解析します。</li>
+ * <li>それ以外は古いスナップショットとして読み込みません。</li>
+ * </ul>
+ * スナップショットとデータファイルから読み込んだバイト数は「IndexSnapshot」のメトリクスに加算します。
+ *
+ * <p>ファイルの先頭はマジックナンバー(int)・種類(byte)・版数(byte)・データファイルのサイズ(long)・更新日時(long)・CRC32C(int)のヘッダーで、
+ * 続けて種類ごとの索引を並べ、末尾にそれまでの全てのバイトのCRC32C(int)を置きます。
+ * 書き込みは一時ファイルからの名前変更で行うため、書き込み途中のスナップショットを読み込むことはありません。
+ */
+final class IndexSnapshot {
+    /** データファイルがこのサイズ以上の場合にだけスナップショットを作成します */
+    static final long MIN_SOURCE_SIZE = 1024 * 1024;
+
+    private static final String SUFFIX = ".snapshot";
+    private static final int MAGIC = 0x54415053;
+    private static final byte VERSION = 3;
+    private static final int HEADER_SIZE = 4 + 1 + 1 + 8 + 8 + 4;
+
+    /** CRC32Cを求める際に、データファイルの先頭と末尾からそれぞれ読み込むバイト数 */
+    static final int CHECKSUM_SAMPLE_SIZE = 64 * 1024;
+
+    private static final MetricGroup METRICS = Metrics.group("IndexSnapshot");
+
+    /** 配列をまとめて書き込む際の1回の要素数 */
+    private static final int WRITE_CHUNK = 1 << 14;
+
+    private IndexSnapshot() {
+    }
+
+    /**
+     * スナップショットの索引を読み込む処理です。
+     */
+    @FunctionalInterface
+    interface IndexReader {
+        /**
+         * @param in ヘッダーの直後から索引の末尾までを参照するバッファ
+         */
+        void read(ByteBuffer in);
+    }
+
+    /**
+     * スナップショットが有効であれば索引を読み込みます。
+     * ヘッダーと全体のCRC32C、データファイルとの対応を全て確認してからreaderを呼び出します。
+     * @param sourcePath データファイルのパス
+     * @param kind 索引の種類({@link BinaryFormat#KIND_TASK}など)
+     * @param appendable データファイルが追記された場合も先頭部分の索引として読み込む場合はtrue
+     * @param reader 索引を読み込む処理
+     * @return 読み込んだ索引が対応するデータファイルの先頭からのバイト数。有効なスナップショットがない場合は-1
+     * @throws IOException 読み込みに失敗した場合
+     */
+    static long load(String sourcePath, byte kind, boolean appendable, IndexReader reader) throws IOException {
+        /*
+         * 1．スナップショット全体をメモリマップし、ヘッダーと末尾のCRC32Cを確認する
+         * 2．データファイルのサイズ・更新日時を記録と比べ、追記されている場合は記録したサイズの位置が行の境界かを確認する
+         * 3．データファイルの記録したサイズまでの先頭と末尾のCRC32Cが記録と一致すれば、索引を読み込む
+         */
+        ByteBuffer snapshot;
+        try (FileChannel channel = FileChannel.open(path(sourcePath), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE + 4 || channel.size() > Integer.MAX_VALUE) return -1;
+            snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return -1;
+        }
+        METRICS.addBytesRead(snapshot.limit());
+        int end = snapshot.limit() - 4;
+        CRC32C crc = new CRC32C();
+        crc.update(snapshot.duplicate().limit(end));
+        if ((int) crc.getValue() != snapshot.getInt(end)) return -1;
+        if (snapshot.getInt() != MAGIC || snapshot.get() != kind || snapshot.get() != VERSION) return -1;
+        long sourceSize = snapshot.getLong();
+        long sourceModified = snapshot.getLong();
+        int sourceChecksum = snapshot.getInt();
+
+        BasicFileAttributes attributes = Files.readAttributes(Paths.get(sourcePath), BasicFileAttributes.class);
+        if (attributes.size() == sourceSize) {
+            if (attributes.lastModifiedTime().toMillis() != sourceModified) return -1;
+        } else if (!appendable || attributes.size() < sourceSize || !isLineBoundary(sourcePath, sourceSize)) {
+            return -1;
+        }
+        if (checksum(sourcePath, sourceSize) != sourceChecksum) return -1;
+
+        try {
+            reader.read(snapshot.limit(end).slice());
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException(path(sourcePath) + "の索引を読み込めません", e);
+        }
+        return sourceSize;
+    }
+
+    /**
+     * データファイルの現在の内容に対応する索引をスナップショットに保存します。
+     * データファイルが{@link #MIN_SOURCE_SIZE}より小さい場合と、索引を作成した後にデータファイルが変更されていた場合は保存しません。
+     * 呼び出し元は、データファイルを変更されないよう書き込み用のロックを取得した状態で呼び出してください。
+     * @param sourcePath データファイルのパス
+     * @param kind 索引の種類
+     * @param sourceSize 索引を作成した時点のデータファイルのサイズ
+     * @param sourceModified 索引を作成した時点のデータファイルの更新日時
+     * @param writer 索引を書き込む処理
+     * @return 保存した場合はtrue
+     * @throws IOException 書き込みに失敗した場合
+     */
+    static boolean save(String sourcePath, byte kind, long sourceSize, long sourceModified,
+            AtomicFiles.ByteWriteAction writer) throws IOException {
+        if (sourceSize < MIN_SOURCE_SIZE) return false;
+        int sourceChecksum = checksum(sourcePath, sourceSize);
+        BasicFileAttributes attributes = Files.readAttributes(Paths.get(sourcePath), BasicFileAttributes.class);
+        if (attributes.size() != sourceSize || attributes.lastModifiedTime().toMillis() != sourceModified) return false;
+
+        AtomicFiles.rewriteBytes(path(sourcePath).toString(), out -> {
+            CRC32C crc = new CRC32C();
+            DataOutputStream checked = new DataOutputStream(new CheckedOutputStream(out, crc));
+            checked.writeInt(MAGIC);
+            checked.writeByte(kind);
+            checked.writeByte(VERSION);
+            checked.writeLong(sourceSize);
+            checked.writeLong(sourceModified);
+            checked.writeInt(sourceChecksum);
+            writer.write(checked);
+            checked.flush();
+            out.writeInt((int) crc.getValue());
+        });
+        METRICS.addBytesWritten(Files.size(path(sourcePath)));
+        return true;
+    }
+
+    /**
+     * 前回の書き込みが途中で停止して残った一時ファイルを削除します。
+     * @param sourcePath データファイルのパス
+     */
+    static void recover(String sourcePath) {
+        AtomicFiles.recover(path(sourcePath).toString());
+    }
+
+    /**
+     * @param sourcePath データファイルのパス
+     * @return スナップショットのパス
+     */
+    static Path path(String sourcePath) {
+        return Paths.get(sourcePath + SUFFIX);
+    }
+
+    /**
+     * intの配列の先頭からlength個を書き込みます。
+     * @param out 書き込み先
+     * @param values 配列
+     * @param length 個数
+     * @throws IOException 書き込みに失敗した場合
+     */
+    static void writeInts(DataOutputStream out, int[] values, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.min(length, WRITE_CHUNK) * Integer.BYTES);
+        for (int from = 0; from < length; from += WRITE_CHUNK) {
+            int count = Math.min(WRITE_CHUNK, length - from);
+            buffer.clear();
+            buffer.asIntBuffer().put(values, from, count);
+            out.write(buffer.array(), 0, count * Integer.BYTES);
+        }
+    }
+
+    /**
+     * {@link #writeInts}で書き込んだintを配列の先頭からlength個に読み込みます。
+     * @param in 読み込み元
+     * @param values 配列
+     * @param length 個数
+     */
+    static void readInts(ByteBuffer in, int[] values, int length) {
+        in.asIntBuffer().get(values, 0, length);
+        in.position(in.position() + length * Integer.BYTES);
+    }
+
+    /**
+     * longの配列のfromからlength個を書き込みます。
+     * @param out 書き込み先
+     * @param values 配列
+     * @param from 開始位置
+     * @param length 個数
+     * @throws IOException 書き込みに失敗した場合
+     */
+    static void writeLongs(DataOutputStream out, long[] values, int from, int length) throws IOException {
+        for (int i = from; i < from + length; i++) {
+            out.writeLong(values[i]);
+        }
+    }
+
+    /**
+     * {@link #writeLongs}で書き込んだlongを配列のfromからlength個に読み込みます。
+     * 数個ずつ何度も呼び出す用途のため、ビューのバッファを作成せずに1個ずつ読み込みます。
+     * @param in 読み込み元
+     * @param values 配列
+     * @param from 開始位置
+     * @param length 個数
+     */
+    static void readLongs(ByteBuffer in, long[] values, int from, int length) {
+        for (int i = from; i < from + length; i++) {
+            values[i] = in.getLong();
+        }
+    }
+
+    /**
+     * データファイルの先頭から指定したバイト数までの範囲について、先頭と末尾の{@value #CHECKSUM_SAMPLE_SIZE}バイトずつのCRC32Cを求めます。
+     * 範囲がその2倍以下の場合は範囲全体から求めます。
+     * @param sourcePath データファイルのパス
+     * @param length バイト数
+     * @return CRC32C
+     * @throws IOException 読み込みに失敗した場合
+     */
+    private static int checksum(String sourcePath, long length) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(Paths.get(sourcePath), StandardOpenOption.READ)) {
+            if (length <= CHECKSUM_SAMPLE_SIZE * 2) {
+                update(crc, sourcePath, channel, 0, (int) length);
+            } else {
+                update(crc, sourcePath, channel, 0, CHECKSUM_SAMPLE_SIZE);
+                update(crc, sourcePath, channel, length - CHECKSUM_SAMPLE_SIZE, CHECKSUM_SAMPLE_SIZE);
+            }
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * データファイルの指定した範囲をCRC32Cに加えます。
+     * @param crc CRC32C
+     * @param sourcePath データファイルのパス
+     * @param channel データファイル
+     * @param position 開始位置
+     * @param length バイト数
+     * @throws IOException 読み込みに失敗した場合
+     */
+    private static void update(CRC32C crc, String sourcePath, FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException(sourcePath + "が途中で切り詰められました");
+            }
+        }
+        crc.update(buffer.flip());
+        METRICS.addBytesRead(length);
+    }
+
+    /**
+     * 指定した位置が行の境界かを判定します。
+     * 直前が改行で終わっている場合(行の末尾に改行を書く形式)と、
+     * その位置から改行が始まる場合(行の前に改行を書く形式)のどちらも境界とします。
+     * @param sourcePath データファイルのパス
+     * @param position 位置(バイト)
+     * @return 行の境界の場合はtrue
+     * @throws IOException 読み込みに失敗した場合
+     */
+    private static boolean isLineBoundary(String sourcePath, long position) throws IOException {
+        if (position == 0) return true;
+        try (FileChannel channel = FileChannel.open(Paths.get(sourcePath), StandardOpenOption.READ)) {
+            ByteBuffer bytes = ByteBuffer.allocate(2);
+            int read = channel.read(bytes, position - 1);
+            METRICS.addBytesRead(Math.max(0, read));
+            if (read < 2) return false;
+            return bytes.get(0) == '\n' || bytes.get(1) == '\n' || bytes.get(1) == '\r';
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.taskapp.dataaccess;
+
+import java.util.Arrays;
+
+/**
+ * intをキーにしたハッシュマップです。
+ * キーをボクシングせずに保持するため、コードによる索引に利用します。
+ * 値にnullは格納できません。
+ *
+ * @param <V> 値の型
+ */
+public class IntHashMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+
+    public IntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * 想定される件数を指定してマップを作成します。
+     * @param expectedSize 想定される件数
+     */
+    public IntHashMap(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity * 3 / 4 < expectedSize) capacity <<= 1;
+        keys = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    /**
+     * キーに対応する値を取得します。
+     * @param key キー
+     * @return 値。存在しない場合はnull
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) return (V) values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * キーが存在するかを判定します。
+     * @param key キー
+     * @return 存在すればtrue
+     */
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * 値を格納します。既に値がある場合は置き換えます。
+     * @param key キー
+     * @param value 値
+     * @return 以前の値。存在しない場合はnull
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) throw new IllegalArgumentException("value");
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length * 3 / 4) resize(keys.length << 1);
+        return null;
+    }
+
+    /**
+     * キーが存在しない場合のみ値を格納します。
+     * @param key キー
+     * @param value 値
+     * @return 既存の値。新たに格納した場合はnull
+     */
+    public V putIfAbsent(int key, V value) {
+        V current = get(key);
+        if (current != null) return current;
+        put(key, value);
+        return null;
+    }
+
+    /**
+     * キーに対応する値を削除します。
+     * @param key キー
+     * @return 削除した値。存在しない場合はnull
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                shiftBack(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * 全ての値を削除します。
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * 全てのキーを昇順に取得します。
+     * 格納順のキーで別のマップへ追加すると線形探索の衝突が連鎖しやすいため、書き出しなどでは昇順のキーを利用します。
+     * @return 昇順のキー
+     */
+    public int[] sortedKeys() {
+        int[] sorted = new int[size];
+        int count = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (values[slot] != null) sorted[count++] = keys[slot];
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * 格納されている件数を取得します。
+     * @return 件数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 線形探索の連鎖が途切れないよう、削除した位置以降の要素を詰めます。
+     * @param slot 削除した位置
+     */
+    private void shiftBack(int slot) {
+        int mask = keys.length - 1;
+        int empty = slot;
+        int current = (slot + 1) & mask;
+        while (values[current] != null) {
+            int home = hash(keys[current]) & mask;
+            boolean movable = (empty <= current) ? (home <= empty || home > current)
+                    : (home <= empty && home > current);
+            if (movable) {
+                keys[empty] = keys[current];
+                values[empty] = values[current];
+                empty = current;
+            }
+            current = (current + 1) & mask;
+        }
+        values[empty] = null;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] == null) continue;
+            int slot = hash(oldKeys[i]) & mask;
+            while (values[slot] != null) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
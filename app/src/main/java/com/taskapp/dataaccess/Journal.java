@@ -0,0 +1,166 @@
+package com.taskapp.dataaccess;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * csvへの変更を1行1レコードで追記するジャーナルです。
+ * 現在の状態はcsv(スナップショット)にジャーナルを先頭から適用して復元します。
+ *
+ * <p>コンパクションは次の順で行い、途中で停止しても {@link #recover()} でどちらかの状態に戻せます。
+ * <ol>
+ * <li>畳み込んだ内容を「.compact」に書き込み同期する</li>
+ * <li>ジャーナルを「.applied」に名前変更する(ここで確定)</li>
+ * <li>「.compact」をcsvへ名前変更する</li>
+ * <li>「.applied」を削除する</li>
+ * </ol>
+ */
+public class Journal {
+    /** ジャーナルがこのサイズを超えたらバックグラウンドでコンパクションします */
+    public static final long COMPACTION_THRESHOLD = 1024 * 1024;
+
+    private static final long COMPACTION_INTERVAL_SECONDS = 30;
+
+    private static final ScheduledExecutorService COMPACTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path dataFile;
+    private final Path journalFile;
+    private final Path compactFile;
+    private final Path appliedFile;
+
+    /**
+     * @param dataFilePath スナップショットとなるcsvのパス
+     */
+    public Journal(String dataFilePath) {
+        dataFile = Paths.get(dataFilePath);
+        journalFile = Paths.get(dataFilePath + ".journal");
+        compactFile = Paths.get(dataFilePath + ".compact");
+        appliedFile = Paths.get(dataFilePath + ".journal.applied");
+    }
+
+    /**
+     * 中断されたコンパクションを確定、または取り消します。
+     * @throws IOException ファイル操作に失敗した場合
+     */
+    public void recover() throws IOException {
+        if (Files.exists(appliedFile)) {
+            if (Files.exists(compactFile)) {
+                AtomicFiles.move(compactFile, dataFile);
+            }
+            Files.delete(appliedFile);
+        } else {
+            Files.deleteIfExists(compactFile);
+        }
+    }
+
+    /**
+     * レコードをジャーナルの末尾に追記し、ディスクへ同期します。
+     * @param record 追記するレコード(改行を含まない)
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public void append(String record) throws IOException {
+        appendAll(List.of(record));
+    }
+
+    /**
+     * 複数のレコードをまとめてジャーナルの末尾に追記し、最後に1回だけディスクへ同期します。
+     * @param records 追記するレコード(改行を含まない)
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public void appendAll(List<String> records) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (String record : records) {
+            content.append(record).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(journalFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * ジャーナルのレコードを書き込まれた順に取得します。
+     * 改行で終わっていない末尾のレコードは書き込み途中とみなし読み飛ばします。
+     * @return レコードのリスト
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public List<String> readRecords() throws IOException {
+        List<String> records = new ArrayList<>();
+        if (!Files.exists(journalFile)) return records;
+
+        String content = Files.readString(journalFile, StandardCharsets.UTF_8);
+        int start = 0;
+        int end;
+        while ((end = content.indexOf('\n', start)) >= 0) {
+            String record = content.substring(start, end);
+            if (record.endsWith("\r")) record = record.substring(0, record.length() - 1);
+            if (!record.isEmpty()) records.add(record);
+            start = end + 1;
+        }
+        return records;
+    }
+
+    /**
+     * ジャーナルのサイズを取得します。
+     * @return バイト数。ジャーナルがない場合は0
+     * @throws IOException 取得に失敗した場合
+     */
+    public long size() throws IOException {
+        return Files.exists(journalFile) ? Files.size(journalFile) : 0;
+    }
+
+    /**
+     * 畳み込んだ内容をcsvに書き出し、ジャーナルを空にします。
+     * @param header csvのヘッダー
+     * @param lines csvの各行
+     * @throws IOException ファイル操作に失敗した場合
+     */
+    public void compact(String header, List<String> lines) throws IOException {
+        AtomicFiles.writeSynced(compactFile, writer -> {
+            writer.write(header);
+            writer.newLine();
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+        });
+
+        if (Files.exists(journalFile)) {
+            AtomicFiles.move(journalFile, appliedFile);
+        } else {
+            Files.createFile(appliedFile);
+        }
+        AtomicFiles.move(compactFile, dataFile);
+        Files.delete(appliedFile);
+    }
+
+    /**
+     * 一定間隔でコンパクション処理を呼び出すよう登録します。
+     * @param task コンパクションを行う処理
+     */
+    public void scheduleCompaction(Runnable task) {
+        COMPACTOR.scheduleWithFixedDelay(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, COMPACTION_INTERVAL_SECONDS, COMPACTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+}
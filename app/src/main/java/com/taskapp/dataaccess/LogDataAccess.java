@@ -1,18 +1,73 @@
 package com.taskapp.dataaccess;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import java.time.LocalDate;
 
+import com.taskapp.metrics.MethodMetrics;
+import com.taskapp.metrics.MetricGroup;
+import com.taskapp.metrics.Metrics;
 import com.taskapp.model.*;
 
 public class LogDataAccess {
+    /** クラス全体の計測値 */
+    private static final MetricGroup METRICS = Metrics.group("LogDataAccess");
+    private static final MethodMetrics SAVE_METRICS = METRICS.method("save");
+    private static final MethodMetrics SAVE_ASYNC_METRICS = METRICS.method("saveAsync");
+    private static final MethodMetrics SAVE_ALL_METRICS = METRICS.method("saveAll");
+    private static final MethodMetrics FIND_ALL_METRICS = METRICS.method("findAll");
+    private static final MethodMetrics FOR_EACH_METRICS = METRICS.method("forEach");
+    private static final MethodMetrics REDUCE_METRICS = METRICS.method("reduce");
+    private static final MethodMetrics STREAM_ALL_METRICS = METRICS.method("streamAll");
+    private static final MethodMetrics FIND_BY_TASK_CODE_METRICS = METRICS.method("findByTaskCode");
+    private static final MethodMetrics DELETE_BY_TASK_CODE_METRICS = METRICS.method("deleteByTaskCode");
+    private static final MethodMetrics COMPACT_METRICS = METRICS.method("compact");
+
     private final String filePath;
 
+    /** ジャーナルモードの場合の変更ジャーナル。csvを直接書き換える場合はnull */
+    private final Journal journal;
+
+    /** ファイルを開いたまままとめて追記する場合の追記用オブジェクト。都度ファイルを開く場合はnull */
+    private final GroupCommitAppender appender;
+
+    /** タスクコードからcsvの行の位置を引き当てる索引 */
+    private final LogOffsetIndex offsetIndex = new LogOffsetIndex();
+
+    /** 索引を作成した時点のファイルサイズ。未作成の場合は-1 */
+    private long indexedSize = -1;
+
+    /** 索引を作成した時点のファイル更新日時。未作成の場合は-1 */
+    private long indexedModified = -1;
+
+    /** 索引を作成した時点のファイルの識別子。名前変更による置き換えを検出するために利用する */
+    private Object indexedFileKey;
+
+    /** 同じファイルを使う他のインスタンスと共有する読み書きロック */
+    private final FileGuard guard;
 
     public LogDataAccess() {
-        filePath = "app/src/main/resources/logs.csv";
+        filePath = BinaryFormat.resolvePath("app/src/main/resources/logs.csv");
+        journal = null;
+        appender = null;
+        guard = FileGuard.of(filePath);
+        recover();
     }
 
     /**
@@ -21,6 +76,50 @@ public class LogDataAccess {
      */
     public LogDataAccess(String filePath) {
         this.filePath = filePath;
+        this.journal = null;
+        this.appender = null;
+        this.guard = FileGuard.of(filePath);
+        recover();
+    }
+
+    /**
+     * 追記用オブジェクトを指定してインスタンスを作成します。
+     * saveはファイルを開き直さずに追記用オブジェクトのキューへ渡し、複数のログをまとめて書き込みます。
+     * 追記用オブジェクトはcsv形式のファイルでのみ利用できます。
+     * @param filePath csvのパス
+     * @param appender filePathに追記する追記用オブジェクト
+     */
+    public LogDataAccess(String filePath, GroupCommitAppender appender) {
+        if (BinaryFormat.isBinary(filePath)) {
+            throw new IllegalArgumentException("追記用オブジェクトはcsv形式のファイルでのみ利用できます：" + filePath);
+        }
+        this.filePath = filePath;
+        this.journal = null;
+        this.appender = appender;
+        this.guard = FileGuard.of(filePath);
+        recover();
+    }
+
+    /**
+     * 保存方式を指定してインスタンスを作成します。
+     * ジャーナルモードではログの追加・削除を「.journal」に追記し、csvの書き換えを行いません。
+     * ジャーナルは一定サイズを超えるとバックグラウンドでcsvへ畳み込まれます。
+     * ジャーナルモードはcsv形式のファイルでのみ利用できます。
+     * @param filePath csvのパス
+     * @param journaled ジャーナルモードで動作させる場合はtrue
+     */
+    public LogDataAccess(String filePath, boolean journaled) {
+        if (journaled && BinaryFormat.isBinary(filePath)) {
+            throw new IllegalArgumentException("ジャーナルモードはcsv形式のファイルでのみ利用できます：" + filePath);
+        }
+        this.filePath = filePath;
+        this.journal = journaled ? new Journal(filePath) : null;
+        this.appender = null;
+        this.guard = FileGuard.of(filePath);
+        recover();
+        if (journal == null) return;
+
+        journal.scheduleCompaction(this::compactIfNeeded);
     }
 
     /**
@@ -29,46 +128,313 @@ public class LogDataAccess {
      * @param log 保存するログ
      */
     public void save(Log log) {
+        SAVE_METRICS.run(() -> {
+            saveAsync(log);
+        });
+    }
+
+    /**
+     * ログをCSVファイルに保存し、書き込みの完了を待つためのFutureを返します。
+     * 追記用オブジェクトを利用している場合は、ログを含むまとまりが書き込まれた時点で完了します。
+     * それ以外の場合は書き込みを終えてから完了済みのFutureを返します。
+     *
+     * @param log 保存するログ
+     * @return 書き込みが完了したときに完了するFuture
+     */
+    public CompletableFuture<Void> saveAsync(Log log) {
+        return SAVE_ASYNC_METRICS.time(() -> {
+            if (appender != null) {
+                String line = createLine(log);
+                METRICS.addBytesWritten(Metrics.utf8Length(line) + 1);
+                return appender.append(line);
+            }
+            saveNow(log);
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * ログをCSVファイルに直接追記します。
+     *
+     * @param log 保存するログ
+     */
+    private void saveNow(Log log) {
         /*
          * 1．受け取ったlogをcreateLineに渡しフォーマットを作成
-         * 2．作成したフォーマットをcsvに追記
+         * 2．作成したフォーマットをcsvに追記。ジャーナルモードの場合はジャーナルに追記
          */
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, true))) {
-            String line = createLine(log);
-            writer.write(line);
-            writer.newLine();
+        guard.lockWrite();
+        long before = storedBytes();
+        try {
+            if (journal != null) {
+                appendJournal("A," + createLine(log));
+            } else if (BinaryFormat.isBinary(filePath)) {
+                BinaryFormat.appendLog(filePath, log);
+            } else {
+                try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, true))) {
+                    String line = createLine(log);
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
         } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            METRICS.addBytesWritten(storedBytes() - before);
+            guard.changed();
+            guard.unlockWrite();
         }
     }
 
+    /**
+     * 複数のログをまとめてCSVファイルに保存します。
+     * 書き込み用のロックの取得とファイルのオープンは1回だけ行い、全ての行を1つのバッファから書き込みます。
+     * 追記用オブジェクトを利用している場合は、追記用オブジェクトのキューへ順に渡します。
+     *
+     * @param logs 保存するログ
+     */
+    public void saveAll(List<Log> logs) {
+        SAVE_ALL_METRICS.run(() -> {
+            if (logs.isEmpty()) return;
+            if (appender != null) {
+                for (Log log : logs) {
+                    String line = createLine(log);
+                    METRICS.addBytesWritten(Metrics.utf8Length(line) + 1);
+                    appender.append(line);
+                }
+                return;
+            }
+
+            guard.lockWrite();
+            long before = storedBytes();
+            try {
+                if (journal != null) {
+                    List<String> records = new ArrayList<>(logs.size());
+                    for (Log log : logs) {
+                        records.add("A," + createLine(log));
+                    }
+                    journal.appendAll(records);
+                } else if (BinaryFormat.isBinary(filePath)) {
+                    BinaryFormat.appendLogs(filePath, logs);
+                } else {
+                    try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, true), 1 << 16)) {
+                        for (Log log : logs) {
+                            writer.write(createLine(log));
+                            writer.newLine();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                METRICS.addBytesWritten(storedBytes() - before);
+                guard.changed();
+                guard.unlockWrite();
+            }
+        });
+    }
+
     /**
      * すべてのログを取得します。
      *
      * @return すべてのログのリスト
      */
     public List<Log> findAll() {
+        return FIND_ALL_METRICS.time(() -> {
+            /*
+             * 1．追記用オブジェクトを利用している場合は、書き込み待ちのログを書き込む
+             * 2．csvから全てのログを読み込む
+             */
+            if (appender != null) appender.flush();
+            guard.lockRead();
+            try {
+                return readAll();
+            } finally {
+                guard.unlockRead();
+            }
+        });
+    }
+
+    /**
+     * すべてのログを、Logを作成せずに順に渡します。
+     * csv形式の場合はファイルをメモリマップして数値を直接解析します。
+     * バイナリ形式やジャーナルモードの場合はfindAllの結果を順に渡します。
+     *
+     * @param visitor 1件ごとに呼び出す処理
+     * @return 渡したログの件数
+     */
+    public long forEach(MappedLogReader.LogVisitor visitor) {
+        return FOR_EACH_METRICS.time(() -> {
+            if (appender != null) appender.flush();
+            guard.lockRead();
+            try {
+                if (journal != null || BinaryFormat.isBinary(filePath)) {
+                    List<Log> logs = readAll();
+                    for (Log log : logs) {
+                        visitor.visit(log.getTaskCode(), log.getChangeUserCode(), log.getStatus(),
+                                (int) log.getChangeDate().toEpochDay());
+                    }
+                    return (long) logs.size();
+                }
+                METRICS.addBytesRead(storedBytes());
+                return new MappedLogReader(filePath).forEach(visitor);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return 0L;
+            } finally {
+                guard.unlockRead();
+            }
+        });
+    }
+
+    /**
+     * すべてのログを、ファイルの範囲ごとの部分集計を並列に作成して結合することで集計します。
+     * csv形式の場合はファイルをバイト単位の範囲に分け、範囲ごとにメモリマップして並列に解析します。
+     * バイナリ形式やジャーナルモードの場合はfindAllの結果を1つの部分集計に順に加えます。
+     *
+     * @see MappedLogReader#reduce
+     * @param <A> 部分集計の型
+     * @param pool 集計に利用するスレッドプール
+     * @param supplier 空の部分集計を作成する処理
+     * @param accumulator 1件を部分集計に加える処理
+     * @param combiner 前後の範囲の部分集計を結合する処理。結合法則を満たす必要がある
+     * @return 全てのログの集計
+     */
+    public <A> A reduce(ForkJoinPool pool, Supplier<A> supplier, MappedLogReader.LogAccumulator<A> accumulator,
+            BinaryOperator<A> combiner) {
+        return REDUCE_METRICS.time(() -> {
+            if (appender != null) appender.flush();
+            guard.lockRead();
+            try {
+                if (journal != null || BinaryFormat.isBinary(filePath)) {
+                    A result = supplier.get();
+                    for (Log log : readAll()) {
+                        accumulator.accept(result, log.getTaskCode(), log.getChangeUserCode(), log.getStatus(),
+                                (int) log.getChangeDate().toEpochDay());
+                    }
+                    return result;
+                }
+                METRICS.addBytesRead(storedBytes());
+                return new MappedLogReader(filePath).reduce(pool, supplier, accumulator, combiner);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return supplier.get();
+            } finally {
+                guard.unlockRead();
+            }
+        });
+    }
+
+    /**
+     * すべてのログを、1行ずつ読み込むStreamで取得します。
+     * csv形式の場合はリストを作成せずにファイルを読み進めるため、件数が増えても使用するメモリは変わりません。
+     * 読み込み中にcsvが書き換えられた場合も、Streamは開いた時点のファイルを読み続けます。利用後は必ず閉じてください。
+     * csvは読み込み用のロックを取得している間に開いた時点の長さまでだけを読むため、開いた後の追記は含みません。
+     *
+     * @see #findAll()
+     * @return ログのStream
+     */
+    public Stream<Log> streamAll() {
+        return STREAM_ALL_METRICS.time(() -> {
+            /*
+             * 1．追記用オブジェクトを利用している場合は、書き込み待ちのログを書き込む
+             * 2．csvを開き、要素を取り出すたびに1行読み込む
+             */
+            if (appender != null) appender.flush();
+            guard.lockRead();
+            try {
+                return openStream();
+            } finally {
+                guard.unlockRead();
+            }
+        });
+    }
+
+    /**
+     * csv(とジャーナル)を1行ずつ読み込むStreamを開きます。
+     * ジャーナルモードの場合は、ジャーナルで削除されたタスクコードのcsvの行を除き、ジャーナルで追加されたログを後ろに繋げます。
+     * バイナリ形式の場合は全てのログを読み込んだリストのStreamを返します。
+     *
+     * @return ログのStream
+     */
+    private Stream<Log> openStream() {
+        if (BinaryFormat.isBinary(filePath)) {
+            return readAll().stream();
+        }
+        METRICS.addBytesRead(storedBytes());
+        Set<Integer> deleted = new HashSet<>();
+        List<Log> added = new ArrayList<>();
+        if (journal != null) {
+            try {
+                for (String record : journal.readRecords()) {
+                    if (record.charAt(0) == 'D') deleted.add(Integer.parseInt(record.substring(2)));
+                    applyRecord(record, added);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        try {
+            Stream<Log> rows = CsvTokenizer.openSkippingHeader(filePath).stream(this::parseLog);
+            if (journal == null) return rows;
+            return Stream.concat(rows.filter(log -> !deleted.contains(log.getTaskCode())), added.stream());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return Stream.empty();
+        }
+    }
+
+    /**
+     * csvの現在の行からログを作成します。
+     * @param csv 行を読み込んだ状態のcsv
+     * @return 作成したログ。列数が合わない場合はnull
+     */
+    private Log parseLog(CsvTokenizer csv) {
+        if (csv.columnCount() != 4) return null;
+
+        int taskCode = csv.getInt(0);
+        int changeUserCode = csv.getInt(1);
+        int status = csv.getInt(2);
+        LocalDate changeDate = csv.getDate(3);
+
+        return new Log(taskCode, changeUserCode, status, changeDate);
+    }
+
+    /**
+     * csv(とジャーナル)から全てのログを読み込みます。
+     *
+     * @return すべてのログのリスト
+     */
+    private List<Log> readAll() {
         /*
          * 1．csvを1行ずつ読み込いみ「,」で分割
          * 2．分割した情報からTaskクラスをインスタンス化
          * 3．インスタンス化したものをListへ追加
+         * 4．ジャーナルモードの場合はジャーナルのレコードを順に適用する
+         * バイナリ形式の場合はファイル全体を読み込み固定長のレコードを解析する
          */
+        METRICS.addBytesRead(storedBytes());
+        if (BinaryFormat.isBinary(filePath)) {
+            try {
+                return BinaryFormat.readLogs(Paths.get(filePath));
+            } catch (IOException e) {
+                e.printStackTrace();
+                return new ArrayList<>();
+            }
+        }
         List<Log> logs = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            reader.readLine();
+        try (CsvTokenizer csv = new CsvTokenizer(new FileReader(filePath))) {
+            csv.next();
 
-            while ((line = reader.readLine()) != null) {
-                String[] values = line.split(",");
-                if (values.length != 4) continue;
-
-                int taskCode = Integer.parseInt(values[0]);
-                int changeUserCode = Integer.parseInt(values[1]);
-                int status = Integer.parseInt(values[2]);
-                LocalDate changeDate = LocalDate.parse(values[3]);
+            while (csv.next()) {
+                Log log = parseLog(csv);
+                if (log != null) logs.add(log);
+            }
 
-                Log log = new Log(taskCode, changeUserCode, status, changeDate);
-                logs.add(log);
+            if (journal != null) {
+                for (String record : journal.readRecords()) {
+                    applyRecord(record, logs);
+                }
             }
         } catch (IOException e) {
             e.printStackTrace();
@@ -76,34 +442,408 @@ public class LogDataAccess {
         return logs;
     }
 
+    /**
+     * 指定したタスクコードのログを、ファイル順に取得します。
+     * csv形式の場合はタスクコードの索引から該当する行だけを読み込み、ファイル全体は走査しません。
+     * ジャーナルモードの場合は、csvの該当する行にジャーナルの追加・削除を適用します。
+     *
+     * @see #refreshOffsetIndex()
+     * @param taskCode タスクコード
+     * @return 該当するログのリスト
+     */
+    public List<Log> findByTaskCode(int taskCode) {
+        return FIND_BY_TASK_CODE_METRICS.time(() -> {
+            /*
+             * 1．追記用オブジェクトを利用している場合は、書き込み待ちのログを書き込む
+             * 2．索引が古ければ作り直す
+             * 3．索引からタスクコードに該当する行の位置を取得し、その行だけを読み込む
+             * 4．ジャーナルモードの場合はジャーナルのレコードを順に適用する
+             * バイナリ形式の場合は全てのログを読み込み絞り込む
+             */
+            if (appender != null) appender.flush();
+            boolean indexed;
+            if (BinaryFormat.isBinary(filePath)) {
+                guard.lockRead();
+                indexed = false;
+            } else {
+                indexed = lockWithOffsetIndex();
+            }
+            try {
+                return findByTaskCode(taskCode, indexed);
+            } finally {
+                guard.unlockRead();
+            }
+        });
+    }
+
+    /**
+     * 読み込み用のロックを取得した状態で、指定したタスクコードのログを取得します。
+     * @param taskCode タスクコード
+     * @param indexed タスクコードの索引が利用できる場合はtrue
+     * @return 該当するログのリスト
+     */
+    private List<Log> findByTaskCode(int taskCode, boolean indexed) {
+        List<Log> logs = new ArrayList<>();
+        if (!indexed) {
+            for (Log log : readAll()) {
+                if (log.getTaskCode() == taskCode) logs.add(log);
+            }
+            return logs;
+        }
+
+        long[] offsets = offsetIndex.get(taskCode);
+        if (offsets.length > 0) {
+            try (MappedLogReader.Cursor cursor = new MappedLogReader(filePath).open()) {
+                for (long offset : offsets) {
+                    cursor.seek(offset);
+                    if (!cursor.next() || cursor.taskCode() != taskCode) continue;
+                    logs.add(new Log(cursor.taskCode(), cursor.changeUserCode(), cursor.status(),
+                            LocalDate.ofEpochDay(cursor.epochDay())));
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        if (journal != null) {
+            try {
+                for (String record : journal.readRecords()) {
+                    applyRecord(record, logs);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            logs.removeIf(log -> log.getTaskCode() != taskCode);
+        }
+        return logs;
+    }
+
+    /**
+     * 読み込み用のロックを取得し、タスクコードの索引を最新にします。
+     * 索引が古い場合は、書き込み用のロックで索引を更新してから読み込み用のロックに切り替えます。
+     * 呼び出し元は処理の後に読み込み用のロックを解放してください。
+     *
+     * @return 索引が利用できる場合はtrue
+     */
+    private boolean lockWithOffsetIndex() {
+        guard.lockRead();
+        if (isOffsetIndexCurrent()) return true;
+        guard.unlockRead();
+
+        guard.lockWrite();
+        try {
+            boolean indexed = refreshOffsetIndex();
+            guard.lockRead();
+            return indexed;
+        } finally {
+            guard.unlockWrite();
+        }
+    }
+
+    /**
+     * タスクコードの索引がファイルの現在の内容と一致しているかを判定します。
+     * @return 一致している場合はtrue
+     */
+    private boolean isOffsetIndexCurrent() {
+        if (indexedSize < 0) return false;
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(Paths.get(filePath), BasicFileAttributes.class);
+            return attributes.size() == indexedSize && attributes.lastModifiedTime().toMillis() == indexedModified
+                    && Objects.equals(attributes.fileKey(), indexedFileKey);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * csvのサイズか更新日時が索引作成時から変わっていれば、タスクコードの索引を更新します。
+     * 同じファイルに追記されただけの場合は、追記された行だけを索引に加えます。
+     * 名前変更で置き換えられた場合や、追記以外で変更された場合は全体を作り直します。
+     * 全体を作り直す場合は、有効なスナップショットがあればそれを読み込み、スナップショットの作成後に追記された行だけを読み込みます。
+     *
+     * @see IndexSnapshot
+     * @return 索引が利用できる場合はtrue
+     */
+    private boolean refreshOffsetIndex() {
+        /*
+         * 1．ファイルのサイズ・更新日時・識別子を取得し、索引作成時と同じなら何もしない
+         * 2．前回の末尾が改行で終わっていて、同じファイルが大きくなっていれば前回の末尾から読み込む
+         * 3．それ以外は、有効なスナップショットがあれば読み込んでその続きから、なければ先頭から読み込む
+         * 4．各行のタスクコードと行の先頭位置を索引へ追加
+         * 5．全体を作り直した際にスナップショットを使わずに読み込んだ行があれば、スナップショットを作り直す
+         */
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(Paths.get(filePath), BasicFileAttributes.class);
+        } catch (IOException e) {
+            e.printStackTrace();
+            invalidateOffsetIndex();
+            return false;
+        }
+        long size = attributes.size();
+        long modified = attributes.lastModifiedTime().toMillis();
+        Object fileKey = attributes.fileKey();
+        if (size == indexedSize && modified == indexedModified && Objects.equals(fileKey, indexedFileKey)) {
+            return true;
+        }
+
+        long from = 0;
+        boolean rebuilt = false;
+        if (indexedSize > 0 && size > indexedSize && fileKey != null && fileKey.equals(indexedFileKey)
+                && endsWithNewLine(indexedSize)) {
+            from = indexedSize;
+        } else {
+            from = Math.max(0, loadSnapshot());
+            rebuilt = true;
+        }
+        try (MappedLogReader.Cursor cursor = new MappedLogReader(filePath).open(from, size)) {
+            while (cursor.next()) {
+                offsetIndex.add(cursor.taskCode(), cursor.lineStart());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            invalidateOffsetIndex();
+            return false;
+        }
+        METRICS.addBytesRead(size - from);
+        if (rebuilt && from < size) saveSnapshot(size, modified);
+        indexedSize = size;
+        indexedModified = modified;
+        indexedFileKey = fileKey;
+        return true;
+    }
+
+    /**
+     * スナップショットが有効であれば、タスクコードの索引を読み込みます。
+     * @return スナップショットが対応するファイルの先頭からのバイト数。読み込まなかった場合は-1で、索引は空になる
+     */
+    private long loadSnapshot() {
+        offsetIndex.clear();
+        try {
+            return IndexSnapshot.load(filePath, BinaryFormat.KIND_LOG, true, offsetIndex::readFrom);
+        } catch (IOException e) {
+            e.printStackTrace();
+            offsetIndex.clear();
+            return -1;
+        }
+    }
+
+    /**
+     * タスクコードの索引をスナップショットに保存します。保存に失敗しても索引はそのまま利用できます。
+     * @param size 読み込んだ時点のファイルサイズ
+     * @param modified 読み込んだ時点のファイル更新日時
+     */
+    private void saveSnapshot(long size, long modified) {
+        try {
+            IndexSnapshot.save(filePath, BinaryFormat.KIND_LOG, size, modified, offsetIndex::writeTo);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * ファイルの指定した位置の直前が改行かを判定します。
+     * @param position 位置(バイト)
+     * @return 改行の場合はtrue
+     */
+    private boolean endsWithNewLine(long position) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            return channel.read(last, position - 1) == 1 && last.get(0) == '\n';
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * タスクコードの索引を破棄し、次回の参照時に作り直すようにします。
+     */
+    private void invalidateOffsetIndex() {
+        offsetIndex.clear();
+        indexedSize = -1;
+        indexedModified = -1;
+        indexedFileKey = null;
+    }
+
     /**
      * 指定したタスクコードに該当するログを削除します。
      *
-     * @see #findAll()
+     * @see #streamAll()
      * @param taskCode 削除するログのタスクコード
      */
     public void deleteByTaskCode(int taskCode) {
-        /*
-         * 1．findAllからListを受け取る
-         * 2．Listの情報でcsvに上書き。taskCodeと一致するものは記載しない
-         */
-        List<Log> logs = findAll();
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
-            String line;
-            writer.write("Task_Code,Change_User_Code,Status,Change_Date");
-            writer.newLine();
-
-            for (Log log : logs) {
-                if (log.getTaskCode() == taskCode) continue;
-                line = createLine(log);
-                writer.write(line);
+        DELETE_BY_TASK_CODE_METRICS.run(() -> {
+            /*
+             * 1．csvを1行ずつ読み込むStreamを開く
+             * 2．Streamから1件ずつ一時ファイルに書き込み、csvと置き換える。taskCodeと一致するものは記載しない
+             * ジャーナルモードの場合は削除レコード(墓標)をジャーナルに追記するのみで、過去のログは書き換えない
+             * csv形式で索引に該当するログがない場合は書き換えない
+             */
+            if (appender != null) appender.flush();
+            guard.lockWrite();
+            try {
+                if (journal != null) {
+                    long before = storedBytes();
+                    appendJournal("D," + taskCode);
+                    METRICS.addBytesWritten(storedBytes() - before);
+                    return;
+                }
+                if (!BinaryFormat.isBinary(filePath) && refreshOffsetIndex() && !offsetIndex.contains(taskCode)) return;
+                if (appender != null) {
+                    appender.rewrite(() -> rewriteWithout(taskCode));
+                } else {
+                    rewriteWithout(taskCode);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                guard.changed();
+                guard.unlockWrite();
+            }
+        });
+    }
+
+    /**
+     * 指定したタスクコードのログを除いた内容でcsvを書き換えます。
+     *
+     * @param taskCode 除くログのタスクコード
+     * @throws IOException 書き換えに失敗した場合
+     */
+    private void rewriteWithout(int taskCode) throws IOException {
+        if (BinaryFormat.isBinary(filePath)) {
+            List<Log> logs = readAll();
+            logs.removeIf(log -> log.getTaskCode() == taskCode);
+            BinaryFormat.writeLogs(filePath, logs);
+            METRICS.addBytesWritten(storedBytes());
+            return;
+        }
+        try (Stream<Log> logs = openStream()) {
+            AtomicFiles.rewrite(filePath, writer -> {
+                writer.write("Task_Code,Change_User_Code,Status,Change_Date");
                 writer.newLine();
+
+                try {
+                    Iterator<Log> iterator = logs.iterator();
+                    while (iterator.hasNext()) {
+                        Log log = iterator.next();
+                        if (log.getTaskCode() == taskCode) continue;
+                        writer.write(createLine(log));
+                        writer.newLine();
+                    }
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            });
+        }
+        METRICS.addBytesWritten(storedBytes());
+    }
+
+    /**
+     * ジャーナルの内容をcsvに畳み込み、ジャーナルを空にします。
+     * ジャーナルモードでない場合は何もしません。
+     */
+    public void compact() {
+        COMPACT_METRICS.run(() -> {
+            if (journal == null) return;
+
+            guard.lockWrite();
+            try {
+                List<String> lines = new ArrayList<>();
+                for (Log log : readAll()) {
+                    lines.add(createLine(log));
+                }
+                journal.compact("Task_Code,Change_User_Code,Status,Change_Date", lines);
+                METRICS.addBytesWritten(storedBytes());
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                guard.changed();
+                guard.unlockWrite();
             }
+        });
+    }
+
+    /**
+     * 前回の書き換えやコンパクションが途中で停止して残ったファイルを片付けます。
+     * 別のプロセスが書き換え中のファイルを片付けないよう、書き込み用のロックを取得してから行います。
+     */
+    private void recover() {
+        guard.lockWrite();
+        try {
+            AtomicFiles.recover(filePath);
+            IndexSnapshot.recover(filePath);
+            if (journal != null) journal.recover();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            guard.unlockWrite();
+        }
+    }
+
+    /**
+     * ジャーナルが閾値を超えている場合にコンパクションします。
+     */
+    private void compactIfNeeded() {
+        try {
+            if (journal.size() < Journal.COMPACTION_THRESHOLD) return;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        compact();
+    }
+
+    /**
+     * 計測値のバイト数に利用する、csvとジャーナルの合計サイズを取得します。
+     * @return 合計サイズ。取得できない場合は0
+     */
+    private long storedBytes() {
+        try {
+            long size = Files.size(Paths.get(filePath));
+            return journal != null ? size + journal.size() : size;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * ジャーナルにレコードを追記します。
+     * @param record 追記するレコード
+     */
+    private void appendJournal(String record) {
+        try {
+            journal.append(record);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * ジャーナルのレコードをログのリストに適用します。
+     * @param record 「A,行」「D,タスクコード」のいずれかの形式のレコード
+     * @param logs 適用先のログのリスト
+     */
+    private void applyRecord(String record, List<Log> logs) {
+        String body = record.substring(2);
+        switch (record.charAt(0)) {
+            case 'A':
+                try (CsvTokenizer csv = new CsvTokenizer(new StringReader(body))) {
+                    if (!csv.next() || csv.columnCount() != 4) break;
+                    logs.add(new Log(csv.getInt(0), csv.getInt(1), csv.getInt(2), csv.getDate(3)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                break;
+            case 'D':
+                int taskCode = Integer.parseInt(body);
+                logs.removeIf(log -> log.getTaskCode() == taskCode);
+                break;
+            default:
+                break;
+        }
+    }
+
     /**
      * ログをCSVファイルに書き込むためのフォーマットを作成します。
      *
@@ -0,0 +1,103 @@
+package com.taskapp.dataaccess;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * タスクコードから、そのタスクのログの行がcsvのどこにあるかを引き当てる索引です。
+ * 1つのタスクコードに対して、行の先頭位置(バイト)をファイル順に保持します。
+ */
+public class LogOffsetIndex {
+    private static final long[] EMPTY = new long[0];
+
+    /** タスクコードごとの行の先頭位置。先頭の要素は件数で、末尾は未使用の場合がある */
+    private IntHashMap<long[]> offsets = new IntHashMap<>();
+
+    /**
+     * 行の先頭位置を追加します。位置はファイル順に追加してください。
+     * @param taskCode タスクコード
+     * @param offset 行の先頭位置(バイト)
+     */
+    public void add(int taskCode, long offset) {
+        long[] values = offsets.get(taskCode);
+        if (values == null) {
+            values = new long[4];
+            offsets.put(taskCode, values);
+        } else if (values[0] + 1 == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+            offsets.put(taskCode, values);
+        }
+        values[(int) ++values[0]] = offset;
+    }
+
+    /**
+     * タスクコードに対応する行の先頭位置を取得します。
+     * @param taskCode タスクコード
+     * @return ファイル順の行の先頭位置。該当する行がない場合は空の配列
+     */
+    public long[] get(int taskCode) {
+        long[] values = offsets.get(taskCode);
+        if (values == null) return EMPTY;
+        return Arrays.copyOfRange(values, 1, (int) values[0] + 1);
+    }
+
+    /**
+     * タスクコードに対応する行があるかを判定します。
+     * @param taskCode タスクコード
+     * @return 行がある場合はtrue
+     */
+    public boolean contains(int taskCode) {
+        return offsets.containsKey(taskCode);
+    }
+
+    /**
+     * タスクコードに対応する行を全て取り除きます。
+     * @param taskCode タスクコード
+     */
+    public void remove(int taskCode) {
+        offsets.remove(taskCode);
+    }
+
+    /**
+     * 全ての行を取り除きます。
+     */
+    public void clear() {
+        offsets.clear();
+    }
+
+    /**
+     * 全てのタスクコードの行の位置を書き込みます。
+     * タスクコードの件数(int)に続けて、タスクコード(int)・行数(int)・行の先頭位置(long)をタスクコードの昇順に並べます。
+     * @param out 書き込み先
+     * @throws IOException 書き込みに失敗した場合
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        int[] taskCodes = offsets.sortedKeys();
+        out.writeInt(taskCodes.length);
+        for (int taskCode : taskCodes) {
+            long[] values = offsets.get(taskCode);
+            out.writeInt(taskCode);
+            out.writeInt((int) values[0]);
+            IndexSnapshot.writeLongs(out, values, 1, (int) values[0]);
+        }
+    }
+
+    /**
+     * {@link #writeTo}で書き込んだ行の位置で、全ての行を置き換えます。
+     * @param in 読み込み元
+     */
+    void readFrom(ByteBuffer in) {
+        int taskCodes = in.getInt();
+        offsets = new IntHashMap<>(taskCodes);
+        for (int i = 0; i < taskCodes; i++) {
+            int taskCode = in.getInt();
+            int count = in.getInt();
+            long[] values = new long[Math.max(4, count + 1)];
+            values[0] = count;
+            IndexSnapshot.readLongs(in, values, 1, count);
+            offsets.put(taskCode, values);
+        }
+    }
+}
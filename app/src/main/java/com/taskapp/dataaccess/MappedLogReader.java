@@ -0,0 +1,427 @@
+package com.taskapp.dataaccess;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * logs.csvをメモリマップして読み込むクラスです。
+ * 数値と日付の列をバイト列から直接解析するため、1行ごとにStringや配列を作成しません。
+ * 大きなファイルは行の境界で区切って少しずつマップします。
+ * {@link #reduce}はファイルをバイト単位の範囲に分け、ForkJoinPoolで並列に集計します。
+ */
+public class MappedLogReader {
+    /** 1回にマップする最大バイト数 */
+    private static final int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    /** 0000-01-01から1970-01-01までの日数 */
+    private static final long DAYS_0000_TO_1970 = 719528;
+
+    /**
+     * ログの1行を受け取る処理です。
+     */
+    @FunctionalInterface
+    public interface LogVisitor {
+        /**
+         * @param taskCode タスクコード
+         * @param changeUserCode 変更したユーザーのコード
+         * @param status ステータス
+         * @param epochDay 変更日(1970-01-01からの日数)
+         */
+        void visit(int taskCode, int changeUserCode, int status, int epochDay);
+    }
+
+    /**
+     * ログの1行を部分集計に加える処理です。
+     * @param <A> 部分集計の型
+     */
+    @FunctionalInterface
+    public interface LogAccumulator<A> {
+        /**
+         * @param partial 部分集計
+         * @param taskCode タスクコード
+         * @param changeUserCode 変更したユーザーのコード
+         * @param status ステータス
+         * @param epochDay 変更日(1970-01-01からの日数)
+         */
+        void accept(A partial, int taskCode, int changeUserCode, int status, int epochDay);
+    }
+
+    /** 並列に集計する際の1つの範囲の最小バイト数 */
+    private static final long MIN_RANGE_SIZE = 1024 * 1024;
+
+    /** 並列に集計する際に、スレッド数の何倍の範囲に分けるか。範囲ごとの解析時間のばらつきを吸収する */
+    private static final int RANGES_PER_THREAD = 4;
+
+    private final Path path;
+    private final int chunkSize;
+
+    /**
+     * @param filePath logs.csvのパス
+     */
+    public MappedLogReader(String filePath) {
+        this(filePath, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param filePath logs.csvのパス
+     * @param chunkSize 1回にマップする最大バイト数
+     */
+    MappedLogReader(String filePath, int chunkSize) {
+        this.path = Paths.get(filePath);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * ヘッダーを除く全ての行を順に渡します。列数や形式が正しくない行は読み飛ばします。
+     * @param visitor 1行ごとに呼び出す処理
+     * @return 渡した行数
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public long forEach(LogVisitor visitor) throws IOException {
+        long count = 0;
+        try (Cursor cursor = open()) {
+            while (cursor.next()) {
+                visitor.visit(cursor.taskCode(), cursor.changeUserCode(), cursor.status(), cursor.epochDay());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * ファイルを行の境界をまたいでもよいバイト単位の範囲に分け、範囲ごとの部分集計を並列に作成して結合します。
+     * 範囲はpoolのスレッド数の数倍になるまで二分割し、{@link #open(long, long)}で読むため各行はちょうど1回ずつ集計されます。
+     * 部分集計を結合する順序は範囲の順序と同じですが、結合の組み合わせは決まっていないため、combinerは結合法則を満たす必要があります。
+     * @param <A> 部分集計の型
+     * @param pool 集計に利用するスレッドプール
+     * @param supplier 空の部分集計を作成する処理
+     * @param accumulator 1行を部分集計に加える処理
+     * @param combiner 前後の範囲の部分集計を結合する処理。どちらかの引数を変更して返してもよい
+     * @return 全ての行の集計
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public <A> A reduce(ForkJoinPool pool, Supplier<A> supplier, LogAccumulator<A> accumulator,
+            BinaryOperator<A> combiner) throws IOException {
+        long size;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = channel.size();
+        }
+        long rangeSize = Math.max(MIN_RANGE_SIZE, size / ((long) pool.getParallelism() * RANGES_PER_THREAD));
+        try {
+            return pool.invoke(new RangeTask<>(0, size, rangeSize, supplier, accumulator, combiner));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * ファイルの範囲を集計するタスクです。範囲が大きい場合は二分割して並列に集計します。
+     * @param <A> 部分集計の型
+     */
+    private final class RangeTask<A> extends RecursiveTask<A> {
+        private final long start;
+        private final long end;
+        private final long rangeSize;
+        private final Supplier<A> supplier;
+        private final LogAccumulator<A> accumulator;
+        private final BinaryOperator<A> combiner;
+
+        private RangeTask(long start, long end, long rangeSize, Supplier<A> supplier, LogAccumulator<A> accumulator,
+                BinaryOperator<A> combiner) {
+            this.start = start;
+            this.end = end;
+            this.rangeSize = rangeSize;
+            this.supplier = supplier;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected A compute() {
+            if (end - start > rangeSize) {
+                long middle = start + (end - start) / 2;
+                RangeTask<A> left = new RangeTask<>(start, middle, rangeSize, supplier, accumulator, combiner);
+                RangeTask<A> right = new RangeTask<>(middle, end, rangeSize, supplier, accumulator, combiner);
+                left.fork();
+                A rightResult = right.compute();
+                return combiner.apply(left.join(), rightResult);
+            }
+            A partial = supplier.get();
+            try (Cursor cursor = open(start, end)) {
+                while (cursor.next()) {
+                    accumulator.accept(partial, cursor.taskCode(), cursor.changeUserCode(), cursor.status(),
+                            cursor.epochDay());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return partial;
+        }
+    }
+
+    /**
+     * 1行ずつ読み進めるカーソルを開きます。
+     * @return カーソル
+     * @throws IOException ファイルを開けない場合
+     */
+    public Cursor open() throws IOException {
+        return new Cursor(FileChannel.open(path, StandardOpenOption.READ), 0, -1, chunkSize);
+    }
+
+    /**
+     * ファイルの一部の範囲を1行ずつ読み進めるカーソルを開きます。
+     * 範囲の先頭が行の途中の場合はその行を読み飛ばし、範囲の末尾をまたぐ行は最後まで読みます。
+     * そのため、ファイルを隙間なく区切った各範囲を読めば、全ての行をちょうど1回ずつ読むことになります。
+     * @param start 範囲の開始位置(バイト)
+     * @param end 範囲の終了位置(バイト)
+     * @return カーソル
+     * @throws IOException ファイルを開けない場合
+     */
+    public Cursor open(long start, long end) throws IOException {
+        return new Cursor(FileChannel.open(path, StandardOpenOption.READ), start, end, chunkSize);
+    }
+
+    /**
+     * ログを1行ずつ読み進めるカーソルです。現在の行の値はgetterで取得します。
+     */
+    public static class Cursor implements Closeable {
+        private final FileChannel channel;
+        private final long size;
+        private final long end;
+        private final int chunkSize;
+        private MappedByteBuffer buffer;
+        private long bufferStart;
+        private long nextChunkStart;
+        private boolean skipFirstLine;
+
+        private long lineStart;
+        private int taskCode;
+        private int changeUserCode;
+        private int status;
+        private int epochDay;
+
+        private Cursor(FileChannel channel, long start, long end, int chunkSize) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.end = end < 0 ? size : Math.min(end, size);
+            this.chunkSize = chunkSize;
+            // ファイルの先頭はヘッダー、途中からの場合は前の範囲に属する行なので読み飛ばす
+            this.nextChunkStart = start;
+            this.skipFirstLine = true;
+            if (start > 0) {
+                this.nextChunkStart = start - 1;
+            }
+        }
+
+        /**
+         * 次の行へ進みます。
+         * @return 次の行がある場合はtrue
+         * @throws IOException 読み込みに失敗した場合
+         */
+        public boolean next() throws IOException {
+            while (true) {
+                if (buffer == null || !buffer.hasRemaining()) {
+                    if (!mapNextChunk()) return false;
+                }
+                lineStart = bufferStart + buffer.position();
+                if (lineStart >= end && !skipFirstLine) return false;
+
+                boolean valid = parseLine();
+                if (skipFirstLine) {
+                    skipFirstLine = false;
+                    continue;
+                }
+                if (valid) return true;
+            }
+        }
+
+        /**
+         * 次にnextで読む行を、指定した位置から始まる行にします。
+         * 既にマップしている範囲内であればマップし直さずに移動します。
+         * @param offset 行の先頭の位置(バイト)
+         */
+        public void seek(long offset) {
+            skipFirstLine = false;
+            if (buffer != null && offset >= bufferStart && offset < bufferStart + buffer.limit()) {
+                buffer.position((int) (offset - bufferStart));
+                return;
+            }
+            buffer = null;
+            nextChunkStart = offset;
+        }
+
+        /**
+         * @return 現在の行の先頭のファイル上の位置(バイト)
+         */
+        public long lineStart() {
+            return lineStart;
+        }
+
+        /**
+         * @return 現在の行のタスクコード
+         */
+        public int taskCode() {
+            return taskCode;
+        }
+
+        /**
+         * @return 現在の行の変更ユーザーコード
+         */
+        public int changeUserCode() {
+            return changeUserCode;
+        }
+
+        /**
+         * @return 現在の行のステータス
+         */
+        public int status() {
+            return status;
+        }
+
+        /**
+         * @return 現在の行の変更日(1970-01-01からの日数)
+         */
+        public int epochDay() {
+            return epochDay;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        /**
+         * 続きの範囲を、末尾が行の境界になるようにマップします。
+         */
+        private boolean mapNextChunk() throws IOException {
+            if (nextChunkStart >= size) return false;
+            long length = Math.min(chunkSize, size - nextChunkStart);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, nextChunkStart, length);
+            int limit = (int) length;
+            if (nextChunkStart + length < size) {
+                while (limit > 0 && mapped.get(limit - 1) != '\n') limit--;
+                if (limit == 0) throw new IOException("1行が" + chunkSize + "バイトを超えています");
+            }
+            mapped.limit(limit);
+            buffer = mapped;
+            bufferStart = nextChunkStart;
+            nextChunkStart += limit;
+            return true;
+        }
+
+        /**
+         * 現在位置から1行を解析し、次の行の先頭まで進めます。
+         * @return 「整数,整数,整数,yyyy-MM-dd」の形式で、日付が実在する行であればtrue
+         */
+        private boolean parseLine() {
+            MappedByteBuffer b = buffer;
+            int p = b.position();
+            int limit = b.limit();
+            int lineEnd = p;
+            while (lineEnd < limit && b.get(lineEnd) != '\n') lineEnd++;
+            b.position(lineEnd < limit ? lineEnd + 1 : limit);
+
+            int contentEnd = lineEnd;
+            if (contentEnd > p && b.get(contentEnd - 1) == '\r') contentEnd--;
+
+            long value = 0;
+            boolean negative = false;
+            int fieldStart = p;
+            int field = 0;
+            int digits = 0;
+            int year = 0;
+            int month = 0;
+            for (int i = p; i <= contentEnd; i++) {
+                int c = i < contentEnd ? b.get(i) : ',';
+                if (c >= '0' && c <= '9') {
+                    value = value * 10 + (c - '0');
+                    if (++digits > 10) return false;
+                    continue;
+                }
+                // 数値の列はInteger#parseIntと同じく先頭の符号を受け付ける
+                if (field < 3 && i == fieldStart && (c == '-' || c == '+')) {
+                    negative = c == '-';
+                    continue;
+                }
+                if (digits == 0) return false;
+                if (field < 3 && c == ',') {
+                    if (value > (negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE)) return false;
+                    int signed = (int) (negative ? -value : value);
+                    if (field == 0) taskCode = signed;
+                    if (field == 1) changeUserCode = signed;
+                    if (field == 2) status = signed;
+                } else if (field == 3 && c == '-' && digits == 4) {
+                    year = (int) value;
+                } else if (field == 4 && c == '-' && digits == 2) {
+                    month = (int) value;
+                } else if (field == 5 && c == ',' && i == contentEnd && digits == 2) {
+                    if (month < 1 || month > 12 || value < 1 || value > lengthOfMonth(year, month)) return false;
+                    epochDay = (int) toEpochDay(year, month, (int) value);
+                    return true;
+                } else {
+                    return false;
+                }
+                field++;
+                fieldStart = i + 1;
+                value = 0;
+                negative = false;
+                digits = 0;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 月の日数を取得します。
+     * @param year 年
+     * @param month 月
+     * @return 日数
+     */
+    static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static boolean isLeapYear(long year) {
+        return (year % 4 == 0) && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    /**
+     * 年月日を1970-01-01からの日数に変換します。LocalDate#toEpochDayと同じ計算です。
+     * @param year 年
+     * @param month 月
+     * @param day 日
+     * @return 1970-01-01からの日数
+     */
+    static long toEpochDay(int year, int month, int day) {
+        long y = year;
+        long total = 365 * y;
+        total += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(y)) total--;
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+}
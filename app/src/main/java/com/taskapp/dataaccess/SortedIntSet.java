@@ -0,0 +1,114 @@
+package com.taskapp.dataaccess;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * intを昇順のまま保持する集合です。
+ * ソート済みの配列で保持し、二分探索で位置を求めるため、指定した値の前後の値を件数分だけ取り出せます。
+ */
+public class SortedIntSet {
+    private int[] values = new int[16];
+    private int size;
+
+    /**
+     * 値を追加します。現在の最大値より大きい値の追加は配列の末尾への追記になります。
+     * @param value 値
+     * @return 新たに追加した場合はtrue
+     */
+    public boolean add(int value) {
+        int position = size > 0 && values[size - 1] < value ? size : Arrays.binarySearch(values, 0, size, value);
+        if (position >= 0 && position < size) return false;
+        if (position < 0) position = -position - 1;
+        if (size == values.length) values = Arrays.copyOf(values, size * 2);
+        System.arraycopy(values, position, values, position + 1, size - position);
+        values[position] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * 値を取り除きます。
+     * @param value 値
+     * @return 取り除いた場合はtrue
+     */
+    public boolean remove(int value) {
+        int position = Arrays.binarySearch(values, 0, size, value);
+        if (position < 0) return false;
+        System.arraycopy(values, position + 1, values, position, size - position - 1);
+        size--;
+        return true;
+    }
+
+    /**
+     * 値が含まれるかを判定します。
+     * @param value 値
+     * @return 含まれる場合はtrue
+     */
+    public boolean contains(int value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    /**
+     * 指定した値より大きい値を、小さい順に最大limit件取得します。
+     * @param after この値より大きい値を取得する
+     * @param limit 最大件数
+     * @return 昇順の値
+     */
+    public int[] after(int after, int limit) {
+        int position = Arrays.binarySearch(values, 0, size, after);
+        int from = position >= 0 ? position + 1 : -position - 1;
+        int to = (int) Math.min(size, (long) from + Math.max(0, limit));
+        return Arrays.copyOfRange(values, from, to);
+    }
+
+    /**
+     * 指定した値より小さい値のうち、大きい方から最大limit件を昇順で取得します。
+     * @param before この値より小さい値を取得する
+     * @param limit 最大件数
+     * @return 昇順の値
+     */
+    public int[] before(int before, int limit) {
+        int position = Arrays.binarySearch(values, 0, size, before);
+        int to = position >= 0 ? position : -position - 1;
+        int from = Math.max(0, to - Math.max(0, limit));
+        return Arrays.copyOfRange(values, from, to);
+    }
+
+    /**
+     * @return 値の件数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 全ての値を取り除きます。
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * 全ての値を、件数(int)に続けて昇順に書き込みます。
+     * @param out 書き込み先
+     * @throws IOException 書き込みに失敗した場合
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        IndexSnapshot.writeInts(out, values, size);
+    }
+
+    /**
+     * {@link #writeTo}で書き込んだ値で、全ての値を置き換えます。
+     * @param in 読み込み元
+     */
+    void readFrom(ByteBuffer in) {
+        int count = in.getInt();
+        values = new int[Math.max(16, count)];
+        IndexSnapshot.readInts(in, values, count);
+        size = count;
+    }
+}
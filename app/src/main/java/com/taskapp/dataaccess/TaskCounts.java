@@ -0,0 +1,209 @@
+package com.taskapp.dataaccess;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 担当ユーザーとステータスの組ごとのタスクの件数です(集計済みのビュー)。
+ * タスクの追加・更新・削除のたびに件数を増減し、件数の取得はハッシュ表の1回の探索で行います。
+ * 担当ユーザーだけ・ステータスだけ・全体の件数も、条件を指定しない組として同時に増減します。
+ *
+ * <p>(担当ユーザー, ステータス)を1つのlongにまとめたキーと、intの件数を同じ位置の配列に保持します(線形探索のハッシュ表)。
+ * 件数が0になった組も削除せずに残します。組の数は担当ユーザー数とステータス数の積を超えません。
+ */
+final class TaskCounts {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /** 条件を指定しないことを表す値。担当ユーザーコードとステータスにこの値を使うタスクは想定しない */
+    private static final int ANY = Integer.MIN_VALUE;
+
+    private long[] keys = new long[DEFAULT_CAPACITY];
+    private int[] counts = new int[DEFAULT_CAPACITY];
+    private boolean[] used = new boolean[DEFAULT_CAPACITY];
+    private int size;
+
+    /**
+     * タスクを1件数えます。
+     * @param repUserCode 担当ユーザーコード
+     * @param status ステータス
+     */
+    void add(int repUserCode, int status) {
+        change(repUserCode, status, 1);
+    }
+
+    /**
+     * 数えたタスクを1件取り除きます。
+     * @param repUserCode 担当ユーザーコード
+     * @param status ステータス
+     */
+    void remove(int repUserCode, int status) {
+        change(repUserCode, status, -1);
+    }
+
+    /**
+     * 条件に一致するタスクの件数を取得します。
+     * @param repUserCode 担当ユーザーコード。nullの場合は絞り込まない
+     * @param status ステータス。nullの場合は絞り込まない
+     * @return 件数
+     */
+    int count(Integer repUserCode, Integer status) {
+        int slot = find(key(repUserCode != null ? repUserCode : ANY, status != null ? status : ANY));
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    /**
+     * 全ての件数を0にします。
+     */
+    void clear() {
+        keys = new long[DEFAULT_CAPACITY];
+        counts = new int[DEFAULT_CAPACITY];
+        used = new boolean[DEFAULT_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * 他の集計と件数を比べ、異なる組を列挙します。
+     * @param expected 比べる集計
+     * @return 件数が異なる組ごとの「担当ユーザー・ステータス：件数」のメッセージ。一致する場合は空
+     */
+    List<String> diff(TaskCounts expected) {
+        long[] all = new long[size + expected.size];
+        int count = 0;
+        for (TaskCounts counts : List.of(this, expected)) {
+            for (int slot = 0; slot < counts.keys.length; slot++) {
+                if (counts.used[slot]) all[count++] = counts.keys[slot];
+            }
+        }
+        Arrays.sort(all, 0, count);
+
+        List<String> differences = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && all[i] == all[i - 1]) continue;
+            int repUserCode = (int) (all[i] >> 32);
+            int status = (int) all[i];
+            int actual = countOf(repUserCode, status);
+            int recounted = expected.countOf(repUserCode, status);
+            if (actual == recounted) continue;
+            differences.add("担当ユーザー" + label(repUserCode) + "・ステータス" + label(status)
+                    + "：集計=" + actual + "、再集計=" + recounted);
+        }
+        return differences;
+    }
+
+    /**
+     * 件数が0でない組を書き込みます。
+     * 組の数(int)に続けて、担当ユーザーコード(int)・ステータス(int)・件数(int)を並べます。
+     * @param out 書き込み先
+     * @throws IOException 書き込みに失敗した場合
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        int nonZero = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (used[slot] && counts[slot] != 0) nonZero++;
+        }
+        out.writeInt(nonZero);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (!used[slot] || counts[slot] == 0) continue;
+            out.writeInt((int) (keys[slot] >> 32));
+            out.writeInt((int) keys[slot]);
+            out.writeInt(counts[slot]);
+        }
+    }
+
+    /**
+     * {@link #writeTo}で書き込んだ件数で、全ての件数を置き換えます。
+     * @param in 読み込み元
+     */
+    void readFrom(ByteBuffer in) {
+        clear();
+        int entries = in.getInt();
+        for (int i = 0; i < entries; i++) {
+            int slot = insert(key(in.getInt(), in.getInt()));
+            counts[slot] = in.getInt();
+        }
+    }
+
+    private void change(int repUserCode, int status, int delta) {
+        change(key(repUserCode, status), delta);
+        change(key(repUserCode, ANY), delta);
+        change(key(ANY, status), delta);
+        change(key(ANY, ANY), delta);
+    }
+
+    private void change(long key, int delta) {
+        // insertで配列を広げる場合があるため、位置を求めてから配列を参照する
+        int slot = insert(key);
+        counts[slot] += delta;
+    }
+
+    private int countOf(int repUserCode, int status) {
+        int slot = find(key(repUserCode, status));
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    /**
+     * キーの位置を探します。
+     * @return 位置。存在しない場合は-1
+     */
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * キーの位置を探します。存在しない場合は件数0で追加します。
+     * @return 位置
+     */
+    private int insert(long key) {
+        int slot = find(key);
+        if (slot >= 0) return slot;
+        if (size + 1 > keys.length * 3 / 4) resize(keys.length << 1);
+        int mask = keys.length - 1;
+        slot = hash(key) & mask;
+        while (used[slot]) slot = (slot + 1) & mask;
+        keys[slot] = key;
+        used[slot] = true;
+        size++;
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        boolean[] oldUsed = used;
+        keys = new long[capacity];
+        counts = new int[capacity];
+        used = new boolean[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (!oldUsed[i]) continue;
+            int slot = hash(oldKeys[i]) & mask;
+            while (used[slot]) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            counts[slot] = oldCounts[i];
+            used[slot] = true;
+        }
+    }
+
+    private static long key(int repUserCode, int status) {
+        return ((long) repUserCode << 32) | (status & 0xFFFFFFFFL);
+    }
+
+    private static String label(int value) {
+        return value == ANY ? "(全て)" : String.valueOf(value);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
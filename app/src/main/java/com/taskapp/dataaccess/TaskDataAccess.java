@@ -2,22 +2,103 @@ package com.taskapp.dataaccess;
 
 import java.util.*;
 
+import com.taskapp.exception.VersionConflictException;
+import com.taskapp.metrics.MethodMetrics;
+import com.taskapp.metrics.MetricGroup;
+import com.taskapp.metrics.Metrics;
 import com.taskapp.model.Log;
 import com.taskapp.model.Task;
 import com.taskapp.model.User;
 import com.taskapp.model.Task;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.stream.Stream;
 
 public class TaskDataAccess {
 
+    /** クラス全体の計測値 */
+    private static final MetricGroup METRICS = Metrics.group("TaskDataAccess");
+    private static final MethodMetrics FIND_ALL_METRICS = METRICS.method("findAll");
+    private static final MethodMetrics FIND_ALL_AS_TABLE_METRICS = METRICS.method("findAllAsTable");
+    private static final MethodMetrics STREAM_ALL_METRICS = METRICS.method("streamAll");
+    private static final MethodMetrics FIND_PAGE_AFTER_METRICS = METRICS.method("findPageAfter");
+    private static final MethodMetrics FIND_PAGE_BEFORE_METRICS = METRICS.method("findPageBefore");
+    private static final MethodMetrics FIND_BY_STATUS_AND_REP_USER_METRICS = METRICS.method("findByStatusAndRepUser");
+    private static final MethodMetrics COUNT_BY_STATUS_AND_REP_USER_METRICS = METRICS.method("countByStatusAndRepUser");
+    private static final MethodMetrics VERIFY_COUNTS_METRICS = METRICS.method("verifyCounts");
+    private static final MethodMetrics SAVE_METRICS = METRICS.method("save");
+    private static final MethodMetrics SAVE_ALL_METRICS = METRICS.method("saveAll");
+    private static final MethodMetrics FIND_BY_CODE_METRICS = METRICS.method("findByCode");
+    private static final MethodMetrics UPDATE_METRICS = METRICS.method("update");
+    private static final MethodMetrics DELETE_METRICS = METRICS.method("delete");
+    private static final MethodMetrics COMPACT_METRICS = METRICS.method("compact");
+
     private final String filePath;
 
     private final UserDataAccess userDataAccess;
 
+    /** csvの行順にタスクを列ごとの配列で保持するキャッシュ。タスクコードから行を引き当てる主キー索引を兼ねる */
+    private final TaskTable table = new TaskTable();
+
+    /** ステータスごとの、該当するタスクコードのビットマップ */
+    private final IntHashMap<CompressedBitmap> statusBitmaps = new IntHashMap<>();
+
+    /** 担当ユーザーコードごとの、該当するタスクコードのビットマップ */
+    private final IntHashMap<CompressedBitmap> repUserBitmaps = new IntHashMap<>();
+
+    /** ページ単位の取得に利用する、タスクコードの昇順の索引 */
+    private final SortedIntSet sortedCodes = new SortedIntSet();
+
+    /**
+     * csvのヘッダー。全ての行を版数を含む5列で書き込む。
+     * 版数の列がない4列のcsvも読み込めるが(版数は0)、追記せずに最初の書き込みでこの形式に書き換える
+     */
+    private static final String HEADER = "Code,Name,Status,Rep_User_Code,Version";
+
+    /** 担当ユーザーとステータスの組ごとのタスクの件数 */
+    private final TaskCounts counts = new TaskCounts();
+
+    /** 索引を作成した時点のファイルサイズ。未作成の場合は-1 */
+    private long indexedSize = -1;
+
+    /** 索引を作成した時点のファイル更新日時。未作成の場合は-1 */
+    private long indexedModified = -1;
+
+    /** 索引を作成した時点のジャーナルのサイズ */
+    private long indexedJournalSize = -1;
+
+    /** 索引を作成した時点のファイルの識別子。別のプロセスによる名前変更での置き換えを検出するために利用する */
+    private Object indexedFileKey;
+
+    /** 索引を作成した時点のファイルの変更番号 */
+    private long indexedVersion = -1;
+
+    /** 索引を作成した時点のユーザーの世代番号。ユーザーが変更された場合に担当ユーザーを引き当て直すために利用する */
+    private long indexedUsersGeneration = -1;
+
+    /** 索引を作成した時点のファイルが現在の形式(版数を保存できる形式)の場合はtrue。古い形式のファイルには追記しない */
+    private boolean currentFormat = true;
+
+    /** 同じファイルを使う他のインスタンスと共有する読み書きロック */
+    private final FileGuard guard;
+
+    /** ジャーナルモードの場合の変更ジャーナル。csvを直接書き換える場合はnull */
+    private final Journal journal;
+
     public TaskDataAccess() {
-        filePath = "app/src/main/resources/tasks.csv";
+        filePath = BinaryFormat.resolvePath("app/src/main/resources/tasks.csv");
         userDataAccess = new UserDataAccess();
+        journal = null;
+        guard = FileGuard.of(filePath);
+        recover();
     }
 
     /**
@@ -28,60 +109,383 @@ public class TaskDataAccess {
     public TaskDataAccess(String filePath, UserDataAccess userDataAccess) {
         this.filePath = filePath;
         this.userDataAccess = userDataAccess;
+        this.journal = null;
+        this.guard = FileGuard.of(filePath);
+        recover();
+    }
+
+    /**
+     * 保存方式を指定してインスタンスを作成します。
+     * ジャーナルモードでは更新・削除のたびにcsvを書き換えず、変更を「.journal」に追記します。
+     * ジャーナルは一定サイズを超えるとバックグラウンドでcsvへ畳み込まれます。
+     * ジャーナルモードはcsv形式のファイルでのみ利用できます。
+     * @param filePath csvのパス
+     * @param userDataAccess ユーザーのデータアクセス
+     * @param journaled ジャーナルモードで動作させる場合はtrue
+     */
+    public TaskDataAccess(String filePath, UserDataAccess userDataAccess, boolean journaled) {
+        if (journaled && BinaryFormat.isBinary(filePath)) {
+            throw new IllegalArgumentException("ジャーナルモードはcsv形式のファイルでのみ利用できます：" + filePath);
+        }
+        this.filePath = filePath;
+        this.userDataAccess = userDataAccess;
+        this.journal = journaled ? new Journal(filePath) : null;
+        this.guard = FileGuard.of(filePath);
+        recover();
+        if (journal == null) return;
+
+        journal.scheduleCompaction(this::compactIfNeeded);
     }
 
     /**
      * CSVから全てのタスクデータを取得します。
      *
-     * @see com.taskapp.dataaccess.UserDataAccess#findByCode(int)
+     * @see #refreshIndex()
      * @return タスクのリスト
      */
     public List<Task> findAll() {
-        /*
-         * 1．csvを1行ずつ読み込いみ「,」で分割
-         * 2．分割した情報からTaskクラスをインスタンス化
-         * 3．インスタンス化したものをListへ追加
-         */
+        return FIND_ALL_METRICS.time(() -> {
+            /*
+             * 1．索引が古ければcsvから読み直す
+             * 2．キャッシュの各行からTaskを作成してListへ追加
+             */
+            lockForRead();
+            try {
+                List<Task> tasks = new ArrayList<>(table.size());
+                for (int row = 0; row < table.size(); row++) {
+                    tasks.add(table.task(row));
+                }
+                return tasks;
+            } finally {
+                guard.unlockRead();
+            }
+        });
+    }
 
-        List<Task> tasks = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            reader.readLine();
+    /**
+     * 全てのタスクデータを、列ごとの配列で保持する読み込み専用の表で取得します。
+     * 行ごとにTaskを作成しないため、件数の多い一覧や集計はfindAllよりも少ないメモリで行えます。
+     * 表は取得した時点の内容のまま変わらず、その後の保存・更新・削除は反映されません。
+     *
+     * @see TaskTable
+     * @return タスクの表
+     */
+    TaskTable findAllAsTable() {
+        return FIND_ALL_AS_TABLE_METRICS.time(() -> {
+            lockForRead();
+            try {
+                return table.snapshot();
+            } finally {
+                guard.unlockRead();
+            }
+        });
+    }
 
-            while ((line = reader.readLine()) != null) {
-                String[] values = line.split(",");
-                if (values.length != 4) continue;
+    /**
+     * CSVから全てのタスクデータを、1行ずつ読み込むStreamで取得します。
+     * csv形式の場合はキャッシュを作成せずにファイルを読み進めるため、件数が増えても使用するメモリは変わりません。
+     * 読み込み中にcsvが書き換えられた場合も、Streamは開いた時点のファイルを読み続けます。利用後は必ず閉じてください。
+     * csvは読み込み用のロックを取得している間に開いた時点の長さまでだけを読むため、開いた後の追記は含みません。
+     * キャッシュが既にファイルの内容と一致している場合と、ジャーナルモードやバイナリ形式の場合は、
+     * ファイルを読まずにfindAllAsTableの表の列から要素を取り出すたびにTaskを作成します。
+     *
+     * @see #findAllAsTable()
+     * @return タスクのStream
+     */
+    public Stream<Task> streamAll() {
+        return STREAM_ALL_METRICS.time(() -> {
+            /*
+             * 1．ユーザーをコードをキーにしたMapで取得
+             * 2．キャッシュがファイルと一致していれば、キャッシュの表から取り出す
+             * 3．一致していなければcsvを開きヘッダーを読み飛ばし、要素を取り出すたびに1行読み込みTaskを作成する
+             */
+            if (journal != null || BinaryFormat.isBinary(filePath)) {
+                return findAllAsTable().stream();
+            }
+            Map<Integer, User> users = userDataAccess.findAllAsMap();
+            guard.lockRead();
+            try {
+                if (isIndexCurrent()) return table.snapshot().stream();
+                CsvTokenizer csv = CsvTokenizer.openSkippingHeader(filePath);
+                return csv.stream(row -> parseTask(row, users));
+            } catch (IOException e) {
+                e.printStackTrace();
+                return Stream.empty();
+            } finally {
+                guard.unlockRead();
+            }
+        });
+    }
 
-                int code = Integer.parseInt(values[0]);
-                String name = values[1];
-                int status = Integer.parseInt(values[2]);
-                User user = userDataAccess.findByCode(Integer.parseInt(values[3]));
+    /**
+     * 指定したコードより後ろのタスクを、コードの昇順に最大limit件取得します。
+     * コードの昇順の索引を二分探索するため、ページの位置に関わらず取得件数分の処理で済みます。
+     * 同じコードの行が複数ある場合はfindByCodeと同じく先頭の行を返します。
+     *
+     * @param afterCode このコードより大きいタスクを取得する
+     * @param limit 最大件数
+     * @return コードの昇順のタスクのリスト
+     */
+    public List<Task> findPageAfter(int afterCode, int limit) {
+        return FIND_PAGE_AFTER_METRICS.time(() -> {
+            lockForRead();
+            try {
+                return tasksOf(sortedCodes.after(afterCode, limit));
+            } finally {
+                guard.unlockRead();
+            }
+        });
+    }
 
-                Task task = new Task(code, name, status, user);
-                tasks.add(task);
+    /**
+     * 指定したコードより前のタスクのうち、直前の最大limit件をコードの昇順に取得します。
+     *
+     * @see #findPageAfter(int, int)
+     * @param beforeCode このコードより小さいタスクを取得する
+     * @param limit 最大件数
+     * @return コードの昇順のタスクのリスト
+     */
+    public List<Task> findPageBefore(int beforeCode, int limit) {
+        return FIND_PAGE_BEFORE_METRICS.time(() -> {
+            lockForRead();
+            try {
+                return tasksOf(sortedCodes.before(beforeCode, limit));
+            } finally {
+                guard.unlockRead();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+        });
+    }
+
+    /**
+     * タスクコードで主キー索引を引き、該当する行からタスクのリストを作成します。
+     * @param codes タスクコード
+     * @return タスクのリスト
+     */
+    private List<Task> tasksOf(int[] codes) {
+        List<Task> tasks = new ArrayList<>(codes.length);
+        for (int code : codes) {
+            tasks.add(table.task(table.rowOf(code)));
         }
         return tasks;
     }
 
+    /**
+     * ステータスと担当ユーザーでタスクを絞り込みます。
+     * 条件ごとのビットマップの積で該当するタスクコードを求めるため、全てのタスクは走査しません。
+     * 同じコードの行が複数ある場合はfindByCodeと同じく先頭の行を返します。
+     *
+     * @param status ステータス。nullの場合は絞り込まない
+     * @param repUserCode 担当ユーザーのコード。nullの場合は絞り込まない
+     * @return タスクコード順のタスクのリスト。どちらもnullの場合はfindAllと同じ
+     */
+    public List<Task> findByStatusAndRepUser(Integer status, Integer repUserCode) {
+        return FIND_BY_STATUS_AND_REP_USER_METRICS.time(() -> {
+            /*
+             * 1．索引が古ければcsvから読み直す
+             * 2．指定された条件のビットマップを取得し、両方指定された場合は積を求める
+             * 3．ビットマップのタスクコードで主キー索引を引き、該当する行からTaskを作成してListへ追加
+             */
+            if (status == null && repUserCode == null) return findAll();
+            lockForRead();
+            try {
+                CompressedBitmap matched;
+                if (status == null) {
+                    matched = repUserBitmaps.get(repUserCode);
+                } else if (repUserCode == null) {
+                    matched = statusBitmaps.get(status);
+                } else {
+                    CompressedBitmap byStatus = statusBitmaps.get(status);
+                    CompressedBitmap byRepUser = repUserBitmaps.get(repUserCode);
+                    matched = byStatus == null || byRepUser == null ? null : byStatus.and(byRepUser);
+                }
+
+                List<Task> tasks = new ArrayList<>();
+                if (matched == null) return tasks;
+                matched.forEach(code -> tasks.add(table.task(table.rowOf(code))));
+                return tasks;
+            } finally {
+                guard.unlockRead();
+            }
+        });
+    }
+
+
+    /**
+     * ステータスと担当ユーザーに一致するタスクの件数を取得します。
+     * 件数は変更のたびに増減しているため、タスクを走査せずに1回の探索で求めます。
+     *
+     * @param status ステータス。nullの場合は絞り込まない
+     * @param repUserCode 担当ユーザーのコード。nullの場合は絞り込まない
+     * @return 件数。同じコードの行が複数ある場合は1件と数える
+     */
+    public int countByStatusAndRepUser(Integer status, Integer repUserCode) {
+        return COUNT_BY_STATUS_AND_REP_USER_METRICS.time(() -> {
+            lockForRead();
+            try {
+                return counts.count(repUserCode, status);
+            } finally {
+                guard.unlockRead();
+            }
+        });
+    }
+
+    /**
+     * 担当ユーザーとステータスの組ごとの件数を、キャッシュの全ての行から数え直して比べます。
+     * 変更のたびに増減している件数が、行の内容と食い違っていないかの確認に利用します。
+     *
+     * @return 件数が異なる組ごとのメッセージ。一致する場合は空
+     */
+    public List<String> verifyCounts() {
+        return VERIFY_COUNTS_METRICS.time(() -> {
+            /*
+             * 1．索引が古ければcsvから読み直す
+             * 2．キャッシュの行を走査し、コードごとに先頭の行だけを新しい集計に数える
+             * 3．変更のたびに増減している集計と、組ごとに件数を比べる
+             */
+            lockForRead();
+            try {
+                TaskCounts recounted = new TaskCounts();
+                for (int row = 0; row < table.size(); row++) {
+                    if (table.rowOf(table.code(row)) != row) continue;
+                    recounted.add(table.repUserCode(row), table.status(row));
+                }
+                return counts.diff(recounted);
+            } finally {
+                guard.unlockRead();
+            }
+        });
+    }
+
     /**
      * タスクをCSVに保存します。
      * @param task 保存するタスク
      */
     public void save(Task task) {
-        /*
-         * 1．受け取ったtaskをcreateLineに渡しフォーマットを作成
-         * 2．作成したフォーマットをcsvに追記
-         */
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, true))) {
-            String line = createLine(task);
-            writer.newLine();
-            writer.write(line);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        SAVE_METRICS.run(() -> {
+            /*
+             * 1．受け取ったtaskをcreateLineに渡しフォーマットを作成
+             * 2．作成したフォーマットをcsvに追記。ジャーナルモードの場合はジャーナルに追記
+             *    (古い形式のファイルの場合は、キャッシュに追加してから全ての行で書き換える)
+             * 3．キャッシュと索引にも追加する
+             */
+            guard.lockWrite();
+            try {
+                refreshIndex();
+                if (journal == null && !currentFormat) {
+                    // 古い形式のファイルには追記できないため、追加した後の全ての行で現在の形式に書き換える
+                    applySave(task);
+                    writeAll();
+                    markIndexed();
+                    return;
+                }
+                String line = createLine(task);
+                long before = storedBytes();
+                try {
+                    if (journal != null) {
+                        journal.append("A," + line);
+                    } else if (BinaryFormat.isBinary(filePath)) {
+                        BinaryFormat.appendTask(filePath, task);
+                    } else {
+                        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, true))) {
+                            writer.newLine();
+                            writer.write(line);
+                        }
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    guard.changed();
+                    invalidateIndex();
+                    return;
+                }
+
+                METRICS.addBytesWritten(storedBytes() - before);
+                applySave(task);
+                markIndexed();
+            } finally {
+                guard.unlockWrite();
+            }
+        });
+    }
+
+    /**
+     * 複数のタスクをまとめてCSVに保存します。
+     * 書き込み用のロックの取得とファイルのオープンは1回だけ行い、全ての行を1つのバッファから書き込みます。
+     * 既に保存されているコード、またはリストの前方と重複するコードのタスクは保存しません。
+     * @param tasks 保存するタスク
+     * @return 各タスクを保存した場合はtrue、コードが重複していたため保存しなかった場合はfalse(引数と同じ順)
+     * @throws UncheckedIOException 書き込みに失敗した場合。どのタスクも保存されていない状態として次回csvから読み直します
+     */
+    public boolean[] saveAll(List<Task> tasks) {
+        return SAVE_ALL_METRICS.time(() -> {
+            /*
+             * 1．索引が古ければcsvから読み直す
+             * 2．索引とリスト内で重複しないタスクだけを選ぶ
+             * 3．選んだタスクをまとめてcsvに追記。ジャーナルモードの場合はジャーナルにまとめて追記
+             *    (古い形式のファイルの場合は、キャッシュに追加してから全ての行で書き換える)
+             * 4．キャッシュと索引にも追加する
+             */
+            boolean[] saved = new boolean[tasks.size()];
+            guard.lockWrite();
+            try {
+                refreshIndex();
+                List<Task> accepted = new ArrayList<>(tasks.size());
+                IntHashMap<Task> batchCodes = new IntHashMap<>();
+                for (int i = 0; i < tasks.size(); i++) {
+                    Task task = tasks.get(i);
+                    if (table.rowOf(task.getCode()) >= 0 || batchCodes.putIfAbsent(task.getCode(), task) != null) continue;
+                    accepted.add(task);
+                    saved[i] = true;
+                }
+                if (accepted.isEmpty()) return saved;
+                if (journal == null && !currentFormat) {
+                    // 古い形式のファイルには追記できないため、追加した後の全ての行で現在の形式に書き換える
+                    for (Task task : accepted) {
+                        applySave(task);
+                    }
+                    try {
+                        rewriteAll();
+                    } catch (IOException e) {
+                        invalidateIndex();
+                        throw new UncheckedIOException(e);
+                    }
+                    markIndexed();
+                    return saved;
+                }
+
+                long before = storedBytes();
+                try {
+                    if (journal != null) {
+                        List<String> records = new ArrayList<>(accepted.size());
+                        for (Task task : accepted) {
+                            records.add("A," + createLine(task));
+                        }
+                        journal.appendAll(records);
+                    } else if (BinaryFormat.isBinary(filePath)) {
+                        BinaryFormat.appendTasks(filePath, accepted);
+                    } else {
+                        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, true), 1 << 16)) {
+                            for (Task task : accepted) {
+                                writer.newLine();
+                                writer.write(createLine(task));
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    guard.changed();
+                    invalidateIndex();
+                    throw new UncheckedIOException(e);
+                }
+
+                METRICS.addBytesWritten(storedBytes() - before);
+                for (Task task : accepted) {
+                    applySave(task);
+                }
+                markIndexed();
+                return saved;
+            } finally {
+                guard.unlockWrite();
+            }
+        });
     }
 
     /**
@@ -90,99 +494,680 @@ public class TaskDataAccess {
      * @return 取得したタスク
      */
     public Task findByCode(int code) {
-        /*
-         * 1．csvを1行ずつ読み込み「,」で分割する
-         * 2．引数で受け取ったcodeと一致する行を探す
-         * 3．一致するものがない場合はnullを返却
-         * 4．一致したらUserインスタンスを返却
-         */
-        Task task = null;
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            reader.readLine();
-            String line;
+        return FIND_BY_CODE_METRICS.time(() -> {
+            /*
+             * 1．索引が古ければcsvから読み直す
+             * 2．引数で受け取ったcodeで索引を引く
+             * 3．一致するものがない場合はnullを返却
+             * 4．一致したら該当する行からTaskインスタンスを作成して返却
+             */
+            lockForRead();
+            try {
+                int row = table.rowOf(code);
+                if (row < 0) return null;
+                return table.task(row);
+            } finally {
+                guard.unlockRead();
+            }
+        });
+    }
 
-            while ((line = reader.readLine()) != null) {
-                String[] values = line.split(",");
-                int taskCode = Integer.parseInt(values[0]);
-                if (taskCode != code) continue;
+    /**
+     * タスクデータを更新します。
+     * 保存されているタスクの版数がupdateTaskの版数と一致する場合のみ更新し、版数を1つ進めます。
+     * 一致しない場合は、読み込んだ後に他の処理が更新したものとして、ファイルを書き換えずに例外をスローします。
+     * 版数の確認はまず読み込み用のロックで行うため、既に古いタスクの更新は他の読み書きを待たせずに失敗します。
+     * 続けて更新する場合は、findByCodeで更新後のタスクを取得し直してください。
+     * @param updateTask 更新するタスク
+     * @throws VersionConflictException 版数が一致しない場合
+     */
+    public void update(Task updateTask) {
+        UPDATE_METRICS.run(() -> {
+            /*
+             * 1．索引が古ければcsvから読み直し、版数が一致しなければ例外をスロー
+             * 2．書き込み用のロックを取得し、最新の索引で版数を再度確認する
+             * 3．版数を1つ進めたタスクでキャッシュと索引に更新を反映する
+             * 4．キャッシュをもとにcsvを上書き。ジャーナルモードの場合は更新レコードをジャーナルに追記
+             */
+            lockForRead();
+            try {
+                checkVersion(updateTask);
+            } finally {
+                guard.unlockRead();
+            }
 
-                String name = values[1];
-                int status = Integer.parseInt(values[2]);
-                User user = userDataAccess.findByCode(Integer.parseInt(values[3]));
+            guard.lockWrite();
+            try {
+                refreshIndex();
+                checkVersion(updateTask);
+                Task updated = new Task(updateTask.getCode(), updateTask.getName(), updateTask.getStatus(),
+                        updateTask.getRepUser(), updateTask.getVersion() + 1);
+                applyUpdate(updated);
+                if (journal != null) {
+                    appendJournal("U," + createLine(updated));
+                } else {
+                    writeAll();
+                }
+                markIndexed();
+            } finally {
+                guard.unlockWrite();
+            }
+        });
+    }
 
-                task = new Task(taskCode, name, status, user);
-                break;
+    /**
+     * コードを基にタスクデータを削除します。
+     * @param code 削除するタスクのコード
+     */
+    public void delete(int code) {
+        DELETE_METRICS.run(() -> {
+            /*
+             * 1．索引が古ければcsvから読み直す
+             * 2．キャッシュと索引から取り除く
+             * 3．キャッシュの情報からcsvに上書き。ジャーナルモードの場合は削除レコードをジャーナルに追記
+             */
+            guard.lockWrite();
+            try {
+                refreshIndex();
+                applyDelete(code);
+                if (journal != null) {
+                    appendJournal("D," + code);
+                } else {
+                    writeAll();
+                }
+                markIndexed();
+            } finally {
+                guard.unlockWrite();
             }
+        });
+    }
+
+    /**
+     * ジャーナルの内容をcsvに畳み込み、ジャーナルを空にします。
+     * ジャーナルモードでない場合は何もしません。
+     */
+    public void compact() {
+        COMPACT_METRICS.run(() -> {
+            if (journal == null) return;
+
+            guard.lockWrite();
+            try {
+                refreshIndex();
+                List<String> lines = new ArrayList<>(table.size());
+                for (int row = 0; row < table.size(); row++) {
+                    lines.add(createLine(table, row));
+                }
+                try {
+                    journal.compact(HEADER, lines);
+                    METRICS.addBytesWritten(storedBytes());
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                guard.changed();
+                invalidateIndex();
+            } finally {
+                guard.unlockWrite();
+            }
+        });
+    }
+
+    /**
+     * 前回の書き換えやコンパクションが途中で停止して残ったファイルを片付けます。
+     * 別のプロセスが書き換え中のファイルを片付けないよう、書き込み用のロックを取得してから行います。
+     */
+    private void recover() {
+        guard.lockWrite();
+        try {
+            AtomicFiles.recover(filePath);
+            IndexSnapshot.recover(filePath);
+            if (journal != null) journal.recover();
         } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            guard.unlockWrite();
         }
-        return task;
     }
 
     /**
-     * タスクデータを更新します。
-     * @param updateTask 更新するタスク
+     * ジャーナルが閾値を超えている場合にコンパクションします。
      */
-    public void update(Task updateTask) {
+    private void compactIfNeeded() {
+        try {
+            if (journal.size() < Journal.COMPACTION_THRESHOLD) return;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        compact();
+    }
+
+    /**
+     * ジャーナルにレコードを追記します。失敗した場合は次回csvとジャーナルから読み直します。
+     * @param record 追記するレコード
+     */
+    private void appendJournal(String record) {
+        try {
+            long before = journal.size();
+            journal.append(record);
+            METRICS.addBytesWritten(journal.size() - before);
+        } catch (IOException e) {
+            e.printStackTrace();
+            invalidateIndex();
+        }
+    }
+
+    /**
+     * ヘッダーとキャッシュの全ての行でcsvを上書きします。失敗した場合は次回csvから読み直します。
+     * 一時ファイルに書き込んでから置き換えるため、途中で停止してもcsvは元の内容のまま残ります。
+     * 古い形式のファイルも現在の形式で書き換えます。
+     */
+    private void writeAll() {
+        try {
+            rewriteAll();
+        } catch (IOException e) {
+            e.printStackTrace();
+            invalidateIndex();
+        }
+    }
+
+    /**
+     * ヘッダーとキャッシュの全ての行でファイルを書き換え、現在の形式にします。
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private void rewriteAll() throws IOException {
+        if (BinaryFormat.isBinary(filePath)) {
+            BinaryFormat.writeTasks(filePath, table);
+        } else {
+            AtomicFiles.rewrite(filePath, writer -> {
+                writer.write(HEADER);
+                writer.newLine();
+
+                for (int row = 0; row < table.size(); row++) {
+                    writer.write(createLine(table, row));
+                    writer.newLine();
+                }
+            });
+        }
+        METRICS.addBytesWritten(storedBytes());
+        currentFormat = true;
+    }
+
+    /**
+     * 保存されているタスクの版数が、更新するタスクの版数と一致するかを確認します。
+     * 保存されていないタスクの場合は確認しません。
+     * @param task 更新するタスク
+     * @throws VersionConflictException 版数が一致しない場合
+     */
+    private void checkVersion(Task task) {
+        int row = table.rowOf(task.getCode());
+        if (row < 0 || table.version(row) == task.getVersion()) return;
+        throw new VersionConflictException("タスク" + task.getCode() + "は他の処理によって更新されています(版数："
+                + task.getVersion() + "、現在の版数：" + table.version(row) + ")");
+    }
+
+    /**
+     * キャッシュと索引にタスクを追加します。
+     * @param task 追加するタスク
+     */
+    private void applySave(Task task) {
+        applySave(task.getCode(), task.getName(), task.getStatus(), task.getRepUser().getCode(), task.getVersion());
+    }
+
+    /**
+     * キャッシュと索引に1行を追加します。
+     * @param code タスクコード
+     * @param name タスク名
+     * @param status ステータス
+     * @param repUserCode 担当ユーザーコード
+     * @param version 版数
+     */
+    private void applySave(int code, String name, int status, int repUserCode, int version) {
+        if (!table.add(code, name, status, repUserCode, version)) return;
+        addToBitmaps(code, status, repUserCode);
+        sortedCodes.add(code);
+    }
+
+    /**
+     * キャッシュ上のコードが一致するタスクを置き換えます。
+     * @param updated 更新後のタスク
+     */
+    private void applyUpdate(Task updated) {
+        applyUpdate(updated.getCode(), updated.getName(), updated.getStatus(), updated.getRepUser().getCode(),
+                updated.getVersion());
+    }
+
+    /**
+     * キャッシュ上のコードが一致する行を置き換えます。
+     * @param code タスクコード
+     * @param name タスク名
+     * @param status ステータス
+     * @param repUserCode 担当ユーザーコード
+     * @param version 版数
+     */
+    private void applyUpdate(int code, String name, int status, int repUserCode, int version) {
+        int row = table.rowOf(code);
+        if (row < 0) return;
+        removeFromBitmaps(code, table.status(row), table.repUserCode(row));
+        table.update(code, name, status, repUserCode, version);
+        addToBitmaps(code, status, repUserCode);
+    }
+
+    /**
+     * キャッシュと索引からコードが一致するタスクを取り除きます。
+     * @param code 取り除くタスクのコード
+     */
+    private void applyDelete(int code) {
+        int row = table.rowOf(code);
+        if (row < 0) return;
+        removeFromBitmaps(code, table.status(row), table.repUserCode(row));
+        table.remove(code);
+        sortedCodes.remove(code);
+    }
+
+    /**
+     * タスクのコードを、ステータスと担当ユーザーのビットマップに追加し、組ごとの件数に数えます。
+     * @param code タスクコード
+     * @param status ステータス
+     * @param repUserCode 担当ユーザーコード
+     */
+    private void addToBitmaps(int code, int status, int repUserCode) {
+        bitmap(statusBitmaps, status).add(code);
+        bitmap(repUserBitmaps, repUserCode).add(code);
+        counts.add(repUserCode, status);
+    }
+
+    /**
+     * タスクのコードを、ステータスと担当ユーザーのビットマップと組ごとの件数から取り除きます。
+     * @param code タスクコード
+     * @param status ステータス
+     * @param repUserCode 担当ユーザーコード
+     */
+    private void removeFromBitmaps(int code, int status, int repUserCode) {
+        CompressedBitmap byStatus = statusBitmaps.get(status);
+        if (byStatus != null) byStatus.remove(code);
+        CompressedBitmap byRepUser = repUserBitmaps.get(repUserCode);
+        if (byRepUser != null) byRepUser.remove(code);
+        counts.remove(repUserCode, status);
+    }
+
+    /**
+     * キーに対応するビットマップを取得します。存在しない場合は作成します。
+     * @param bitmaps ビットマップの索引
+     * @param key キー
+     * @return ビットマップ
+     */
+    private CompressedBitmap bitmap(IntHashMap<CompressedBitmap> bitmaps, int key) {
+        CompressedBitmap bitmap = bitmaps.get(key);
+        if (bitmap == null) {
+            bitmap = new CompressedBitmap();
+            bitmaps.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * キャッシュと全ての索引を空にします。
+     * @param users 以降にキャッシュから作成するタスクの担当ユーザーを引き当てるMap
+     */
+    private void clearRows(Map<Integer, User> users) {
+        table.clear(users);
+        statusBitmaps.clear();
+        repUserBitmaps.clear();
+        sortedCodes.clear();
+        counts.clear();
+    }
+
+    /**
+     * csv(とジャーナル)のサイズか更新日時が索引作成時から変わっていれば、読み直して索引を作り直します。
+     * 有効なスナップショットがある場合は、スナップショットを読み込み、スナップショットの作成後に追記された行だけを解析します。
+     *
+     * @see IndexSnapshot
+     */
+    private void refreshIndex() {
         /*
-         * 1．findAllメソッドからListを受け取る
-         * 2．Listをもとにcsvに書き込みを行う
-         * 3．書きこむTaskCodeとupdateTaskCodeが一致した場合はupdateTaskの情報を書き込む
+         * 1．ファイルのサイズ・更新日時・変更番号とユーザーの世代番号を取得し、索引作成時と同じなら何もしない
+         * 2．ユーザーデータを一度だけ取得する(担当ユーザーは全てのタスクでユーザーごとに同じインスタンスになる)
+         * 3．スナップショットが有効であれば読み込み、キャッシュの列から索引を作成する
+         * 4．スナップショットに含まれない行は、csvを1行ずつ読み込み「,」で分割し、Taskを作成せずにキャッシュの列と索引へ追加(バイナリ形式の場合は1レコードずつ読み込む)
+         * 5．スナップショットを使わずに読み込んだ行があれば、スナップショットを作り直す
+         * 6．ジャーナルモードの場合はジャーナルのレコードを順に適用する
          */
-        List<Task> tasks = findAll();
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
-            writer.write("Code,Name,Status,Rep_User_Code");
-            writer.newLine();
-            
-            String line;
-            for (Task task : tasks) {
-                if (task.getCode() == updateTask.getCode()) {
-                    line = createLine(updateTask);
-                } else {
-                    line = createLine(task);
+        long size;
+        long modified;
+        Object fileKey;
+        long journalSize;
+        long version = guard.version();
+        long usersGeneration = userDataAccess.generation();
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(Paths.get(filePath), BasicFileAttributes.class);
+            size = attributes.size();
+            modified = attributes.lastModifiedTime().toMillis();
+            fileKey = attributes.fileKey();
+            journalSize = journal != null ? journal.size() : 0;
+        } catch (IOException e) {
+            e.printStackTrace();
+            clearRows(Map.of());
+            invalidateIndex();
+            // ファイルがない場合は、次に書き込むファイルが現在の形式になる
+            currentFormat = true;
+            return;
+        }
+        if (size == indexedSize && modified == indexedModified && Objects.equals(fileKey, indexedFileKey)
+                && journalSize == indexedJournalSize && version == indexedVersion
+                && usersGeneration == indexedUsersGeneration) return;
+
+        Map<Integer, User> users = userDataAccess.findAllAsMap();
+        clearRows(users);
+        boolean binary = BinaryFormat.isBinary(filePath);
+        long loaded = loadSnapshot(!binary);
+        if (loaded < 0) clearRows(users);
+        try {
+            currentFormat = binary ? BinaryFormat.isCurrentTaskFormat(Paths.get(filePath)) : hasVersionColumn();
+        } catch (IOException e) {
+            e.printStackTrace();
+            invalidateIndex();
+            return;
+        }
+        if (binary && loaded < size) {
+            try {
+                BinaryFormat.readTasks(Paths.get(filePath), (code, name, status, repUserCode, taskVersion) ->
+                        applySave(code, name, status, repUserCode, taskVersion));
+            } catch (IOException e) {
+                e.printStackTrace();
+                invalidateIndex();
+                return;
+            }
+        } else if (!binary && loaded < size) {
+            try (CsvTokenizer csv = new CsvTokenizer(openFrom(Math.max(0, loaded)))) {
+                if (loaded <= 0) csv.next();
+
+                while (csv.next()) {
+                    applyRow(csv, false);
                 }
+            } catch (IOException e) {
+                e.printStackTrace();
+                invalidateIndex();
+                return;
+            }
+        }
+        if (loaded < size) saveSnapshot(size, modified);
 
-                writer.write(line);
-                writer.newLine();
+        if (journal != null) {
+            try {
+                for (String record : journal.readRecords()) {
+                    applyRecord(record);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                invalidateIndex();
+                return;
             }
+        }
+        METRICS.addBytesRead(size - Math.max(0, loaded) + journalSize);
+        indexedSize = size;
+        indexedModified = modified;
+        indexedFileKey = fileKey;
+        indexedJournalSize = journalSize;
+        indexedVersion = version;
+        indexedUsersGeneration = usersGeneration;
+    }
+
+    /**
+     * スナップショットが有効であれば、キャッシュの行と、ステータス・担当ユーザーのビットマップ・コード順の索引・組ごとの件数を読み込みます。
+     * @param appendable スナップショットの作成後に追記された行だけを解析できる場合はtrue
+     * @return スナップショットが対応するファイルの先頭からのバイト数。読み込まなかった場合は-1
+     */
+    private long loadSnapshot(boolean appendable) {
+        try {
+            return IndexSnapshot.load(filePath, BinaryFormat.KIND_TASK, appendable, in -> {
+                table.readFrom(in);
+                sortedCodes.readFrom(in);
+                readBitmaps(in, statusBitmaps);
+                readBitmaps(in, repUserBitmaps);
+                counts.readFrom(in);
+            });
         } catch (IOException e) {
             e.printStackTrace();
+            return -1;
         }
     }
 
     /**
-     * コードを基にタスクデータを削除します。
-     * @param code 削除するタスクのコード
+     * キャッシュの行をスナップショットに保存します。ジャーナルを適用する前の、ファイルの内容だけの状態で呼び出してください。
+     * 保存に失敗してもキャッシュはそのまま利用できるため、次回の作成時にファイルから読み込みます。
+     * @param size 読み込んだ時点のファイルサイズ
+     * @param modified 読み込んだ時点のファイル更新日時
      */
-    public void delete(int code) {
-        /*
-         * 1．findAllからListを受け取る
-         * 2．Listの情報からcsvに上書き。codeと一致する情報は記載しない
-         */
-        List<Task> tasks = findAll();
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
-            String line;
-            writer.write("Code,Name,Status,Rep_User_Code");
-            writer.newLine();
-
-            for (Task task : tasks) {
-                if (task.getCode() == code) continue;
-                line = createLine(task);
-                writer.write(line);
-                writer.newLine();
-            }
+    private void saveSnapshot(long size, long modified) {
+        try {
+            IndexSnapshot.save(filePath, BinaryFormat.KIND_TASK, size, modified, out -> {
+                table.writeTo(out);
+                sortedCodes.writeTo(out);
+                writeBitmaps(out, statusBitmaps);
+                writeBitmaps(out, repUserBitmaps);
+                counts.writeTo(out);
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * ビットマップの索引を、件数(int)に続けてキー(int)とビットマップをキーの昇順に書き込みます。
+     * @param out 書き込み先
+     * @param bitmaps ビットマップの索引
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private static void writeBitmaps(DataOutputStream out, IntHashMap<CompressedBitmap> bitmaps) throws IOException {
+        int[] keys = bitmaps.sortedKeys();
+        out.writeInt(keys.length);
+        for (int key : keys) {
+            out.writeInt(key);
+            bitmaps.get(key).writeTo(out);
+        }
+    }
 
+    /**
+     * {@link #writeBitmaps}で書き込んだビットマップを索引に追加します。
+     * @param in 読み込み元
+     * @param bitmaps 追加先の空の索引
+     */
+    private static void readBitmaps(ByteBuffer in, IntHashMap<CompressedBitmap> bitmaps) {
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            int key = in.getInt();
+            bitmaps.put(key, CompressedBitmap.readFrom(in));
+        }
+    }
+
+    /**
+     * csvを指定した位置から読み込むReaderを開きます。
+     * @param position 読み込みを始める位置(バイト)
+     * @return Reader
+     * @throws IOException ファイルを開けない場合
+     */
+    private Reader openFrom(long position) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        channel.position(position);
+        return new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 読み込み用のロックを取得します。索引が古い場合は、書き込み用のロックで索引を作り直してから読み込み用のロックに切り替えます。
+     * 呼び出し元は処理の後に読み込み用のロックを解放してください。
+     * 索引の作成以外でキャッシュを変更するのは書き込み用のロックを持つ処理だけのため、読み込み同士は並行して行えます。
+     */
+    private void lockForRead() {
+        guard.lockRead();
+        if (isIndexCurrent()) return;
+        guard.unlockRead();
+
+        guard.lockWrite();
+        try {
+            refreshIndex();
+            guard.lockRead();
+        } finally {
+            guard.unlockWrite();
+        }
+    }
+
+    /**
+     * 索引がファイルとユーザーの現在の内容と一致しているかを判定します。
+     * @return 一致している場合はtrue
+     */
+    private boolean isIndexCurrent() {
+        if (indexedSize < 0 || guard.version() != indexedVersion) return false;
+        if (userDataAccess.generation() != indexedUsersGeneration) return false;
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(Paths.get(filePath), BasicFileAttributes.class);
+            return attributes.size() == indexedSize
+                    && attributes.lastModifiedTime().toMillis() == indexedModified
+                    && Objects.equals(attributes.fileKey(), indexedFileKey)
+                    && (journal != null ? journal.size() : 0) == indexedJournalSize;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * ジャーナルのレコードをキャッシュと索引に適用します。
+     * @param record 「A,行」「U,行」「D,コード」のいずれかの形式のレコード
+     */
+    private void applyRecord(String record) {
+        String body = record.substring(2);
+        switch (record.charAt(0)) {
+            case 'A':
+            case 'U':
+                try (CsvTokenizer csv = new CsvTokenizer(new StringReader(body))) {
+                    if (csv.next()) applyRow(csv, record.charAt(0) == 'U');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                break;
+            case 'D':
+                applyDelete(Integer.parseInt(body));
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * csvのヘッダーが版数の列を含む現在の形式かを判定します。
+     * @return ヘッダーが5列、またはファイルが空の場合はtrue
+     * @throws IOException 読み込みに失敗した場合
+     */
+    private boolean hasVersionColumn() throws IOException {
+        try (CsvTokenizer csv = new CsvTokenizer(new FileReader(filePath))) {
+            return !csv.next() || csv.columnCount() == 5;
+        }
+    }
+
+    /**
+     * csvの現在の行を、Taskを作成せずにキャッシュと索引へ追加、または置き換えます。
+     * 列数が5列(末尾が版数)と、版数の列がない古い形式の4列(版数0)のどちらでもない行は読み飛ばします。
+     * @param csv 行を読み込んだ状態のcsv
+     * @param update 既存の行を置き換える場合はtrue
+     */
+    private void applyRow(CsvTokenizer csv, boolean update) {
+        if (csv.columnCount() != 4 && csv.columnCount() != 5) return;
+
+        int code = csv.getInt(0);
+        String name = csv.getString(1);
+        int status = csv.getInt(2);
+        int repUserCode = csv.getInt(3);
+        int version = csv.columnCount() == 5 ? csv.getInt(4) : 0;
+
+        if (update) {
+            applyUpdate(code, name, status, repUserCode, version);
+        } else {
+            applySave(code, name, status, repUserCode, version);
+        }
+    }
+
+    /**
+     * csvの現在の行からタスクを作成します。
+     * @param csv 行を読み込んだ状態のcsv
+     * @param users ユーザーコードをキーにしたユーザーのMap
+     * @return 作成したタスク。列数が5列(末尾が版数)と、古い形式の4列(版数0)のどちらでもない場合はnull
+     */
+    private Task parseTask(CsvTokenizer csv, Map<Integer, User> users) {
+        if (csv.columnCount() != 4 && csv.columnCount() != 5) return null;
+
+        int code = csv.getInt(0);
+        String name = csv.getString(1);
+        int status = csv.getInt(2);
+        User user = users.get(csv.getInt(3));
+        int version = csv.columnCount() == 5 ? csv.getInt(4) : 0;
+
+        return new Task(code, name, status, user, version);
+    }
+
+    /**
+     * 計測値のバイト数に利用する、csvとジャーナルの合計サイズを取得します。
+     * @return 合計サイズ。取得できない場合は0
+     */
+    private long storedBytes() {
+        try {
+            long size = Files.size(Paths.get(filePath));
+            return journal != null ? size + journal.size() : size;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 書き込みを変更番号に記録し、自身の書き込み後のファイルサイズと更新日時を索引作成時の値として記録します。
+     */
+    private void markIndexed() {
+        long version = guard.changed();
+        if (indexedSize < 0) return;
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(Paths.get(filePath), BasicFileAttributes.class);
+            indexedSize = attributes.size();
+            indexedModified = attributes.lastModifiedTime().toMillis();
+            indexedFileKey = attributes.fileKey();
+            indexedJournalSize = journal != null ? journal.size() : 0;
+            indexedVersion = version;
         } catch (IOException e) {
             e.printStackTrace();
+            invalidateIndex();
         }
     }
 
+    /**
+     * 次回のアクセス時にcsvを読み直すよう索引を無効にします。
+     */
+    private void invalidateIndex() {
+        indexedSize = -1;
+        indexedModified = -1;
+        indexedFileKey = null;
+        indexedJournalSize = -1;
+        indexedVersion = -1;
+        indexedUsersGeneration = -1;
+    }
+
     /**
      * タスクデータをCSVに書き込むためのフォーマットを作成します。
+     * 末尾に版数を加えた5列になります。
      * @param task フォーマットを作成するタスク
      * @return CSVに書き込むためのフォーマット文字列
      */
     private String createLine(Task task) {
-        return task.getCode() + "," + task.getName() + "," + task.getStatus() + "," + task.getRepUser().getCode();
+        return createLine(task.getCode(), task.getName(), task.getStatus(), task.getRepUser().getCode(), task.getVersion());
+    }
+
+    /**
+     * キャッシュの1行をCSVに書き込むためのフォーマットを作成します。
+     * @param table キャッシュ
+     * @param row 行
+     * @return CSVに書き込むためのフォーマット文字列
+     */
+    private String createLine(TaskTable table, int row) {
+        return createLine(table.code(row), table.name(row), table.status(row), table.repUserCode(row), table.version(row));
+    }
+
+    private String createLine(int code, String name, int status, int repUserCode, int version) {
+        return code + "," + name + "," + status + "," + repUserCode + "," + version;
     }
 }
\ No newline at end of file
@@ -0,0 +1,458 @@
+package com.taskapp.dataaccess;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+/**
+ * タスクを列ごとのプリミティブ配列で保持する表です。
+ * 1行ごとにTaskオブジェクトを持たず、コード・ステータス・担当ユーザーコード・版数を並列の配列に、
+ * タスク名は辞書に登録した名前の番号で保持します。同じ名前の行は辞書の1つのStringを共有します。
+ * Taskは{@link #task(int)}を呼び出した時点で作成します。
+ *
+ * <p>TaskDataAccessはキャッシュとしてこの表を書き込み用のロックの中で変更し、
+ * 呼び出し元には{@link #snapshot()}で作成した読み込み専用の表を返します。
+ * 読み込み専用の表は配列を共有しますが、作成時点の行数より後ろへの追加は参照しないため、
+ * 元の表への追記では複製しません。既存の行を変更・削除する場合にだけ、元の表が配列を複製してから変更します。
+ *
+ * <p>ステータスは0~2のみを扱うためbyteで保持します。
+ * 同じコードの行が複数ある場合、{@link #rowOf(int)}は先頭の行を返します。
+ */
+class TaskTable {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] codes;
+    private byte[] statuses;
+    private int[] repUserCodes;
+    private int[] nameIds;
+    private int[] versions;
+    private int size;
+
+    /** タスク名の辞書。番号の順に名前を保持する */
+    private String[] names;
+    private int nameCount;
+
+    /** 名前から辞書の番号を引き当てる開番地法の表。値は番号+1で、0は空き */
+    private int[] nameSlots;
+
+    /** コードから先頭の行を引き当てる開番地法の表。値は行+1で、0は空き */
+    private int[] codeSlots;
+    private int codeCount;
+
+    /** タスクを作成する際に担当ユーザーを引き当てるMap */
+    private Map<Integer, User> users;
+
+    /** 読み込み専用の表に配列を渡した場合はtrue。既存の行を変更する前に配列を複製する */
+    private boolean shared;
+
+    /** 読み込み専用の表の場合はtrue */
+    private final boolean readOnly;
+
+    TaskTable() {
+        this(Map.of());
+    }
+
+    /**
+     * 担当ユーザーを引き当てるMapを指定して、空の表を作成します。
+     * @param users ユーザーコードをキーにしたユーザーのMap
+     */
+    TaskTable(Map<Integer, User> users) {
+        this.readOnly = false;
+        clear(users);
+    }
+
+    private TaskTable(TaskTable source) {
+        this.readOnly = true;
+        this.codes = source.codes;
+        this.statuses = source.statuses;
+        this.repUserCodes = source.repUserCodes;
+        this.nameIds = source.nameIds;
+        this.versions = source.versions;
+        this.size = source.size;
+        this.names = source.names;
+        this.nameCount = source.nameCount;
+        this.nameSlots = source.nameSlots;
+        this.codeSlots = source.codeSlots;
+        this.codeCount = source.codeCount;
+        this.users = source.users;
+    }
+
+    /**
+     * @return 行数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param row 行
+     * @return タスクコード
+     */
+    public int code(int row) {
+        checkRow(row);
+        return codes[row];
+    }
+
+    /**
+     * @param row 行
+     * @return タスク名
+     */
+    public String name(int row) {
+        checkRow(row);
+        return names[nameIds[row]];
+    }
+
+    /**
+     * @param row 行
+     * @return ステータス
+     */
+    public int status(int row) {
+        checkRow(row);
+        return statuses[row];
+    }
+
+    /**
+     * @param row 行
+     * @return 担当ユーザーコード
+     */
+    public int repUserCode(int row) {
+        checkRow(row);
+        return repUserCodes[row];
+    }
+
+    /**
+     * @param row 行
+     * @return 担当ユーザー。ユーザーが存在しない場合はnull
+     */
+    public User repUser(int row) {
+        return users.get(repUserCode(row));
+    }
+
+    /**
+     * @param row 行
+     * @return 版数
+     */
+    public int version(int row) {
+        checkRow(row);
+        return versions[row];
+    }
+
+    /**
+     * 行の内容でTaskを作成します。作成したTaskを変更しても表には反映されません。
+     * @param row 行
+     * @return タスク
+     */
+    public Task task(int row) {
+        checkRow(row);
+        return new Task(codes[row], names[nameIds[row]], statuses[row], users.get(repUserCodes[row]), versions[row]);
+    }
+
+    /**
+     * コードが一致する先頭の行を取得します。
+     * @param code タスクコード
+     * @return 行。存在しない場合は-1
+     */
+    public int rowOf(int code) {
+        int mask = codeSlots.length - 1;
+        int slot = hash(code) & mask;
+        int entry;
+        while ((entry = codeSlots[slot]) != 0) {
+            int row = entry - 1;
+            if (row < size && codes[row] == code) return row;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * 全ての行を行順に、要素を取り出すたびにTaskを作成するStreamで取得します。
+     * @return タスクのStream
+     */
+    public Stream<Task> stream() {
+        return IntStream.range(0, size).mapToObj(this::task);
+    }
+
+    /**
+     * 現在の行を参照する読み込み専用の表を作成します。配列は複製しません。
+     * @return 読み込み専用の表
+     */
+    TaskTable snapshot() {
+        shared = true;
+        return new TaskTable(this);
+    }
+
+    /**
+     * 全ての行を取り除き、担当ユーザーを引き当てるMapを置き換えます。
+     * 読み込み専用の表が参照している可能性があるため、配列は書き換えずに新しく作成します。
+     * @param users ユーザーコードをキーにしたユーザーのMap
+     */
+    void clear(Map<Integer, User> users) {
+        checkWritable();
+        this.users = users;
+        codes = new int[DEFAULT_CAPACITY];
+        statuses = new byte[DEFAULT_CAPACITY];
+        repUserCodes = new int[DEFAULT_CAPACITY];
+        nameIds = new int[DEFAULT_CAPACITY];
+        versions = new int[DEFAULT_CAPACITY];
+        names = new String[DEFAULT_CAPACITY];
+        nameSlots = new int[DEFAULT_CAPACITY * 2];
+        codeSlots = new int[DEFAULT_CAPACITY * 2];
+        size = 0;
+        nameCount = 0;
+        codeCount = 0;
+        shared = false;
+    }
+
+    /**
+     * 全ての行と辞書を書き込みます。索引は読み込む際に作り直すため書き込みません。
+     * 行数(int)・辞書の件数(int)・辞書の名前(長さ付きUTF-8)に続けて、コード・ステータス・担当ユーザーコード・名前の番号・版数の列を順に並べます。
+     * @param out 書き込み先
+     * @throws IOException 書き込みに失敗した場合
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        out.writeInt(nameCount);
+        for (int id = 0; id < nameCount; id++) {
+            BinaryFormat.writeString(out, names[id]);
+        }
+        IndexSnapshot.writeInts(out, codes, size);
+        out.write(statuses, 0, size);
+        IndexSnapshot.writeInts(out, repUserCodes, size);
+        IndexSnapshot.writeInts(out, nameIds, size);
+        IndexSnapshot.writeInts(out, versions, size);
+    }
+
+    /**
+     * {@link #writeTo}で書き込んだ行と辞書で、全ての行を置き換えます。担当ユーザーを引き当てるMapはそのまま使います。
+     * 列は配列へまとめて読み込み、名前の辞書とコードの索引は読み込んだ列から作り直します。
+     * @param in 読み込み元
+     */
+    void readFrom(ByteBuffer in) {
+        checkWritable();
+        int rows = in.getInt();
+        int count = in.getInt();
+        String[] loadedNames = new String[Math.max(DEFAULT_CAPACITY, count)];
+        for (int id = 0; id < count; id++) {
+            loadedNames[id] = BinaryFormat.readString(in);
+        }
+        int capacity = Math.max(DEFAULT_CAPACITY, rows);
+        codes = new int[capacity];
+        statuses = new byte[capacity];
+        repUserCodes = new int[capacity];
+        nameIds = new int[capacity];
+        versions = new int[capacity];
+        IndexSnapshot.readInts(in, codes, rows);
+        in.get(statuses, 0, rows);
+        IndexSnapshot.readInts(in, repUserCodes, rows);
+        IndexSnapshot.readInts(in, nameIds, rows);
+        IndexSnapshot.readInts(in, versions, rows);
+        size = rows;
+        shared = false;
+
+        names = loadedNames;
+        nameCount = count;
+        nameSlots = rehashNames(slotsFor(count));
+        codeSlots = new int[slotsFor(rows)];
+        codeCount = 0;
+        for (int row = 0; row < rows; row++) {
+            indexCode(row);
+        }
+    }
+
+    /**
+     * 末尾に行を追加します。読み込み専用の表が参照しない位置への書き込みのため、配列は複製しません。
+     * @param code タスクコード
+     * @param name タスク名
+     * @param status ステータス
+     * @param repUserCode 担当ユーザーコード
+     * @param version 版数
+     * @return コードが一致する行が他にない場合はtrue
+     */
+    boolean add(int code, String name, int status, int repUserCode, int version) {
+        checkWritable();
+        if (size == codes.length) grow();
+        codes[size] = code;
+        statuses[size] = (byte) status;
+        repUserCodes[size] = repUserCode;
+        nameIds[size] = nameId(name);
+        versions[size] = version;
+        size++;
+        return indexCode(size - 1);
+    }
+
+    /**
+     * コードが一致する全ての行の内容を置き換えます。
+     * @param code タスクコード
+     * @param name タスク名
+     * @param status ステータス
+     * @param repUserCode 担当ユーザーコード
+     * @param version 版数
+     */
+    void update(int code, String name, int status, int repUserCode, int version) {
+        checkWritable();
+        if (rowOf(code) < 0) return;
+        unshare();
+        int nameId = nameId(name);
+        for (int row = 0; row < size; row++) {
+            if (codes[row] != code) continue;
+            statuses[row] = (byte) status;
+            repUserCodes[row] = repUserCode;
+            nameIds[row] = nameId;
+            versions[row] = version;
+        }
+    }
+
+    /**
+     * コードが一致する全ての行を取り除き、後ろの行を詰めます。
+     * 使われなくなったタスク名を辞書から取り除くため、辞書と索引を作り直します。
+     * @param code タスクコード
+     * @return 取り除いた行があった場合はtrue
+     */
+    boolean remove(int code) {
+        checkWritable();
+        if (rowOf(code) < 0) return false;
+        unshare();
+        String[] oldNames = names;
+        int kept = 0;
+        for (int row = 0; row < size; row++) {
+            if (codes[row] == code) continue;
+            codes[kept] = codes[row];
+            statuses[kept] = statuses[row];
+            repUserCodes[kept] = repUserCodes[row];
+            nameIds[kept] = nameIds[row];
+            versions[kept] = versions[row];
+            kept++;
+        }
+        size = kept;
+
+        names = new String[oldNames.length];
+        nameCount = 0;
+        nameSlots = new int[nameSlots.length];
+        codeSlots = new int[codeSlots.length];
+        codeCount = 0;
+        for (int row = 0; row < size; row++) {
+            nameIds[row] = nameId(oldNames[nameIds[row]]);
+            indexCode(row);
+        }
+        return true;
+    }
+
+    /**
+     * タスク名を辞書に登録し、番号を取得します。既に登録されている場合はその番号を返します。
+     * @param name タスク名
+     * @return 辞書の番号
+     */
+    private int nameId(String name) {
+        int mask = nameSlots.length - 1;
+        int slot = hash(name.hashCode()) & mask;
+        int entry;
+        while ((entry = nameSlots[slot]) != 0) {
+            if (names[entry - 1].equals(name)) return entry - 1;
+            slot = (slot + 1) & mask;
+        }
+        if (nameCount == names.length) names = Arrays.copyOf(names, nameCount * 2);
+        names[nameCount] = name;
+        nameSlots[slot] = ++nameCount;
+        if (nameCount > nameSlots.length / 2) nameSlots = rehashNames(nameSlots.length * 2);
+        return nameCount - 1;
+    }
+
+    /**
+     * 行のコードを索引に登録します。同じコードが登録済みの場合は登録しません。
+     * @param row 行
+     * @return 新たに登録した場合はtrue
+     */
+    private boolean indexCode(int row) {
+        int code = codes[row];
+        int mask = codeSlots.length - 1;
+        int slot = hash(code) & mask;
+        int entry;
+        while ((entry = codeSlots[slot]) != 0) {
+            if (codes[entry - 1] == code) return false;
+            slot = (slot + 1) & mask;
+        }
+        codeSlots[slot] = row + 1;
+        if (++codeCount > codeSlots.length / 2) codeSlots = rehashCodes(codeSlots.length * 2);
+        return true;
+    }
+
+    private int[] rehashNames(int capacity) {
+        int[] slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < nameCount; id++) {
+            int slot = hash(names[id].hashCode()) & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = id + 1;
+        }
+        return slots;
+    }
+
+    /**
+     * 指定した件数を登録しても再配置が起きない、開番地法の表の大きさを求めます。
+     * @param count 件数
+     * @return 2のべき乗の大きさ
+     */
+    private static int slotsFor(int count) {
+        int capacity = DEFAULT_CAPACITY * 2;
+        while (count > capacity / 2) capacity *= 2;
+        return capacity;
+    }
+
+    private int[] rehashCodes(int capacity) {
+        int[] slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int entry : codeSlots) {
+            if (entry == 0) continue;
+            int slot = hash(codes[entry - 1]) & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = entry;
+        }
+        return slots;
+    }
+
+    /**
+     * 列の配列を2倍の大きさにします。新しい配列になるため、読み込み専用の表とは共有しなくなります。
+     */
+    private void grow() {
+        int capacity = codes.length * 2;
+        codes = Arrays.copyOf(codes, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        repUserCodes = Arrays.copyOf(repUserCodes, capacity);
+        nameIds = Arrays.copyOf(nameIds, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+    }
+
+    /**
+     * 読み込み専用の表に配列を渡している場合は、既存の行を変更する前に列の配列を複製します。
+     * 辞書と索引は、共有している間は末尾への追記しか行わず、それ以外は新しく作り直すため複製しません。
+     */
+    private void unshare() {
+        if (!shared) return;
+        codes = codes.clone();
+        statuses = statuses.clone();
+        repUserCodes = repUserCodes.clone();
+        nameIds = nameIds.clone();
+        versions = versions.clone();
+        shared = false;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException("行：" + row + "、行数：" + size);
+    }
+
+    private void checkWritable() {
+        if (readOnly) throw new UnsupportedOperationException("読み込み専用の表は変更できません");
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
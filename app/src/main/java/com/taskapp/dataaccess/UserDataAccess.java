@@ -1,14 +1,27 @@
 package com.taskapp.dataaccess;
 
-import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
 
+import com.taskapp.metrics.MethodMetrics;
+import com.taskapp.metrics.MetricGroup;
+import com.taskapp.metrics.Metrics;
 import com.taskapp.model.User;
 
 public class UserDataAccess {
-    private final String filePath;
+    /** クラス全体の計測値 */
+    private static final MetricGroup METRICS = Metrics.group("UserDataAccess");
+    private static final MethodMetrics FIND_BY_EMAIL_AND_PASSWORD_METRICS = METRICS.method("findByEmailAndPassword");
+    private static final MethodMetrics FIND_BY_CODE_METRICS = METRICS.method("findByCode");
+    private static final MethodMetrics FIND_ALL_AS_MAP_METRICS = METRICS.method("findAllAsMap");
+
+    /** 同じファイルを使う他のインスタンスと共有する、ユーザーコードごとに1つのUserを保持するレジストリ */
+    private final UserRegistry registry;
 
     public UserDataAccess() {
-        filePath = "app/src/main/resources/users.csv";
+        registry = UserRegistry.of(BinaryFormat.resolvePath("app/src/main/resources/users.csv"));
     }
 
     /**
@@ -16,78 +29,72 @@ public class UserDataAccess {
      * @param filePath
      */
     public UserDataAccess(String filePath) {
-        this.filePath = filePath;
+        this.registry = UserRegistry.of(filePath);
     }
 
     /**
      * メールアドレスとパスワードを基にユーザーデータを探します。
+     * レジストリのメールアドレスの索引を1回引くだけで探します。ファイルが変更されていればレジストリが先に読み直します。
+     * 同じメールアドレスのユーザーが複数いる場合は、パスワードが一致するユーザーを返します。
+     * @see UserRegistry#current()
      * @param email メールアドレス
      * @param password パスワード
      * @return 見つかったユーザー
      */
     public User findByEmailAndPassword(String email, String password) {
-        /*
-         * 1．csvファイルを1行ごとに読み込み「，」で分割
-         * 2．上記の情報と、引数で受け取った情報が一致するものを探す
-         * 3．一致しなければnullを返す
-         */
-        User user = null;
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            reader.readLine();
-            String line;
-
-            while ((line = reader.readLine()) != null) {
-                String[] values = line.split(",");
-                if (values.length != 4) continue;
-
-                String inputEmail = values[2];
-                String inputPassword = values[3];
-                if (!(email.equals(inputEmail) && password.equals(inputPassword))) continue;
+        return FIND_BY_EMAIL_AND_PASSWORD_METRICS.time(() -> {
+            /*
+             * 1．レジストリから最新のユーザーの一覧を取得する
+             * 2．メールアドレスで索引を引く
+             * 3．同じメールアドレスのユーザーをファイルの順に調べ、パスワードが一致した最初のユーザーを返す
+             * 4．一致するユーザーがいなければnullを返す
+             */
+            List<User> users = registry.current().byEmail().get(email);
+            if (users == null || password == null) return null;
 
-                int code = Integer.parseInt(values[0]);
-                String name = values[1];
-
-                user = new User(code, name, inputEmail, inputPassword);
+            byte[] actual = password.getBytes(StandardCharsets.UTF_8);
+            for (User user : users) {
+                byte[] expected = user.getPassword().getBytes(StandardCharsets.UTF_8);
+                if (MessageDigest.isEqual(expected, actual)) return user;
             }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return user;
+            return null;
+        });
     }
 
     /**
      * コードを基にユーザーデータを取得します。
+     * 同じコードであれば、ファイルでそのユーザーの行が変更されるまで常に同じインスタンスを返します。
      * @param code 取得するユーザーのコード
      * @return 見つかったユーザー
      */
     public User findByCode(int code) {
-        /*
-         * 1．csvを1行ずつ読み込み「,」で分割する
-         * 2．引数で受け取ったcodeと一致する行を探す
-         * 3．一致するものがない場合はnuulを返却
-         * 4．一致したらUserインスタンスを返却
-         */
-        User user = null;
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            reader.readLine();
-
-            while ((line = reader.readLine()) != null) {
-                String[] values = line.split(",");
-                if (values.length != 4) continue;
-                int userCode = Integer.parseInt(values[0]);
-                if (code != userCode) continue;
+        return FIND_BY_CODE_METRICS.time(() -> {
+            /*
+             * 1．レジストリから最新のユーザーの一覧を取得する
+             * 2．引数で受け取ったcodeでユーザーを引き当てる(一致するものがない場合はnullを返却)
+             */
+            return registry.current().byCode().get(code);
+        });
+    }
 
-                String name = values[1];
-                String email = values[2];
-                String password = values[3];
+    /**
+     * 全てのユーザーデータをコードをキーにしたMapで取得します。
+     * タスク一覧のように複数のユーザーを引き当てる場合は、findByCodeを行ごとに呼び出さずにこちらを利用してください。
+     * 返すMapはレジストリが保持する変更できないMapで、値はfindByCodeが返すものと同じインスタンスです。
+     * @return ユーザーコードをキーにしたユーザーの変更できないMap
+     */
+    public Map<Integer, User> findAllAsMap() {
+        return FIND_ALL_AS_MAP_METRICS.time(() -> {
+            return registry.current().byCode();
+        });
+    }
 
-                user = new User(userCode, name, email, password);
-                break;
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return user;
+    /**
+     * ユーザーの世代番号を取得します。ファイルでユーザーが追加・変更・削除されるたびに増えるため、
+     * 取得済みのUserを保持しているクラスは、この値が変わった場合にユーザーを引き当て直してください。
+     * @return ユーザーの世代番号
+     */
+    long generation() {
+        return registry.current().generation();
     }
 }
@@ -0,0 +1,240 @@
+package com.taskapp.dataaccess;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.taskapp.metrics.MetricGroup;
+import com.taskapp.metrics.Metrics;
+import com.taskapp.model.User;
+
+/**
+ * ユーザーコードごとに1つのUserインスタンスだけを保持する、ファイルごとのレジストリ(アイデンティティマップ)です。
+ * 同じファイルを使うUserDataAccessは全て同じレジストリを共有するため、
+ * 何件のタスクから参照されても担当ユーザーはユーザーごとに1つのインスタンスになります。
+ *
+ * <p>ファイルが変更された場合は読み直し、内容が変わっていないユーザーは以前のインスタンスをそのまま使い続けます。
+ * 世代番号はユーザーの追加・変更・削除があった場合にだけ増えるため、Userを保持しているクラスは
+ * 世代番号を比べるだけで、ユーザーを引き当て直す必要があるかを判定できます。
+ */
+final class UserRegistry {
+    /** 読み込んだバイト数はUserDataAccessの計測値に加算する */
+    private static final MetricGroup METRICS = Metrics.group("UserDataAccess");
+
+    private static final ConcurrentHashMap<Path, UserRegistry> REGISTRIES = new ConcurrentHashMap<>();
+
+    /**
+     * ある時点のユーザーの一覧です。作成後は変更せず置き換えるだけのため、ロックを取得せずに参照できます。
+     * @param byCode ユーザーコードからユーザーを引き当てる変更できないMap
+     * @param byEmail メールアドレスから、そのメールアドレスのユーザーをファイルの順に引き当てる変更できないMap
+     * @param size 読み込んだ時点のファイルサイズ。未読み込みの場合は-1
+     * @param modified 読み込んだ時点のファイル更新日時
+     * @param fileKey 読み込んだ時点のファイルの識別子
+     * @param generation 世代番号
+     */
+    record Snapshot(Map<Integer, User> byCode, Map<String, List<User>> byEmail,
+                    long size, long modified, Object fileKey, long generation) {
+    }
+
+    private static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of(), -1, -1, null, 0);
+
+    private final String filePath;
+
+    private final FileGuard guard;
+
+    private volatile Snapshot snapshot = EMPTY;
+
+    /**
+     * 一覧を差し替えるスレッドを1つに限定するロック。
+     * 仮想スレッドがファイルの読み込み中にキャリアスレッドを占有しないよう、synchronizedではなくReentrantLockを使う
+     */
+    private final ReentrantLock replaceLock = new ReentrantLock();
+
+    private UserRegistry(String filePath) {
+        this.filePath = filePath;
+        this.guard = FileGuard.of(filePath);
+    }
+
+    /**
+     * ファイルに対応するレジストリを取得します。同じファイルであれば相対パスと絶対パスのどちらでも同じものを返します。
+     * @param filePath ファイルのパス
+     * @return レジストリ
+     */
+    static UserRegistry of(String filePath) {
+        Path key = Paths.get(filePath).toAbsolutePath().normalize();
+        return REGISTRIES.computeIfAbsent(key, path -> new UserRegistry(filePath));
+    }
+
+    /**
+     * 最新のユーザーの一覧を取得します。ファイルのサイズ・更新日時・識別子が読み込み時と異なる場合は読み直します。
+     * @return ユーザーの一覧
+     */
+    Snapshot current() {
+        Snapshot current = snapshot;
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(Paths.get(filePath), BasicFileAttributes.class);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return clear();
+        }
+        if (isSameFile(current, attributes)) return current;
+        return reload();
+    }
+
+    /**
+     * ファイルを読み直します。複数のスレッドが同時に変更を検出した場合も、読み込むのは1つのスレッドだけです。
+     * @return 読み直したユーザーの一覧
+     */
+    private Snapshot reload() {
+        /*
+         * 1．他のスレッドが既に読み直していれば、その一覧を返す
+         * 2．読み込み用のロックを取得し、ファイルを先頭から読み込む
+         * 3．以前の一覧と内容が同じユーザーは以前のインスタンスを使い、Stringも作成しない
+         * 4．追加・変更・削除されたユーザーがいる場合だけ世代番号を進める
+         */
+        replaceLock.lock();
+        try {
+            return reloadLocked();
+        } finally {
+            replaceLock.unlock();
+        }
+    }
+
+    /**
+     * 一覧を差し替えるロックを取得した状態でファイルを読み直します。
+     * @return 読み直したユーザーの一覧
+     */
+    private Snapshot reloadLocked() {
+        Snapshot previous = snapshot;
+        guard.lockRead();
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(Paths.get(filePath), BasicFileAttributes.class);
+            if (isSameFile(previous, attributes)) return previous;
+
+            Map<Integer, User> byCode = new HashMap<>();
+            Map<String, List<User>> byEmail = new HashMap<>();
+            boolean changed = BinaryFormat.isBinary(filePath)
+                    ? readBinary(previous, byCode, byEmail)
+                    : readCsv(previous, byCode, byEmail);
+            if (byCode.size() != previous.byCode().size()) changed = true;
+
+            Snapshot loaded = new Snapshot(Collections.unmodifiableMap(byCode), Collections.unmodifiableMap(byEmail),
+                    attributes.size(), attributes.lastModifiedTime().toMillis(), attributes.fileKey(),
+                    changed ? previous.generation() + 1 : previous.generation());
+            snapshot = loaded;
+            return loaded;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return clear();
+        } finally {
+            guard.unlockRead();
+        }
+    }
+
+    /**
+     * csvからユーザーを読み込みます。
+     * @param previous 以前の一覧
+     * @param byCode 読み込んだユーザーを追加するユーザーコードのMap
+     * @param byEmail 読み込んだユーザーを追加するメールアドレスのMap
+     * @return 以前の一覧にない、または内容が異なるユーザーがいた場合はtrue
+     * @throws IOException 読み込みに失敗した場合
+     */
+    private boolean readCsv(Snapshot previous, Map<Integer, User> byCode, Map<String, List<User>> byEmail)
+            throws IOException {
+        boolean changed = false;
+        try (CsvTokenizer csv = new CsvTokenizer(new FileReader(filePath))) {
+            csv.next();
+
+            while (csv.next()) {
+                if (csv.columnCount() != 4) continue;
+                int code = csv.getInt(0);
+                if (byCode.containsKey(code)) continue;
+
+                User user = previous.byCode().get(code);
+                if (user == null || !csv.columnEquals(1, user.getName()) || !csv.columnEquals(2, user.getEmail())
+                        || !csv.columnEquals(3, user.getPassword())) {
+                    user = new User(code, csv.getString(1), csv.getString(2), csv.getString(3));
+                    changed = true;
+                }
+                byCode.put(code, user);
+                addByEmail(byEmail, user);
+            }
+        }
+        METRICS.addBytesRead(Files.size(Paths.get(filePath)));
+        return changed;
+    }
+
+    /**
+     * バイナリ形式のファイルからユーザーを読み込みます。
+     * @param previous 以前の一覧
+     * @param byCode 読み込んだユーザーを追加するユーザーコードのMap
+     * @param byEmail 読み込んだユーザーを追加するメールアドレスのMap
+     * @return 以前の一覧にない、または内容が異なるユーザーがいた場合はtrue
+     * @throws IOException 読み込みに失敗した場合
+     */
+    private boolean readBinary(Snapshot previous, Map<Integer, User> byCode, Map<String, List<User>> byEmail)
+            throws IOException {
+        boolean changed = false;
+        List<User> users = BinaryFormat.readUsers(Paths.get(filePath));
+        for (User read : users) {
+            if (byCode.containsKey(read.getCode())) continue;
+
+            User user = previous.byCode().get(read.getCode());
+            if (user == null || !user.getName().equals(read.getName()) || !user.getEmail().equals(read.getEmail())
+                    || !user.getPassword().equals(read.getPassword())) {
+                user = read;
+                changed = true;
+            }
+            byCode.put(user.getCode(), user);
+            addByEmail(byEmail, user);
+        }
+        METRICS.addBytesRead(Files.size(Paths.get(filePath)));
+        return changed;
+    }
+
+    /**
+     * ユーザーをメールアドレスの索引に追加します。
+     * 同じメールアドレスのユーザーが複数いる場合も、パスワードで区別できるよう全て残します。
+     * @param byEmail メールアドレスの索引
+     * @param user 追加するユーザー
+     */
+    private static void addByEmail(Map<String, List<User>> byEmail, User user) {
+        byEmail.computeIfAbsent(user.getEmail(), email -> new ArrayList<>(1)).add(user);
+    }
+
+    /**
+     * ファイルを読めない場合に一覧を空にします。ユーザーがいた場合は世代番号を進めます。
+     * @return 空の一覧
+     */
+    private Snapshot clear() {
+        replaceLock.lock();
+        try {
+            Snapshot previous = snapshot;
+            if (previous.size() < 0 && previous.byCode().isEmpty()) return previous;
+            Snapshot cleared = new Snapshot(Map.of(), Map.of(), -1, -1, null,
+                    previous.byCode().isEmpty() ? previous.generation() : previous.generation() + 1);
+            snapshot = cleared;
+            return cleared;
+        } finally {
+            replaceLock.unlock();
+        }
+    }
+
+    private static boolean isSameFile(Snapshot snapshot, BasicFileAttributes attributes) {
+        return snapshot.size() >= 0 && attributes.size() == snapshot.size()
+                && attributes.lastModifiedTime().toMillis() == snapshot.modified()
+                && Objects.equals(attributes.fileKey(), snapshot.fileKey());
+    }
+}
@@ -0,0 +1,10 @@
+package com.taskapp.exception;
+
+/**
+ * 更新しようとしたデータが、読み込んだ後に他の処理によって更新されていた場合にスローされます。
+ */
+public class VersionConflictException extends RuntimeException {
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,45 @@
+package com.taskapp.logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * タスクの一括登録の結果です。
+ * 登録できなかった行は読み込みを止めずに、行番号付きのメッセージとして記録します。
+ */
+public class ImportResult {
+    private int imported;
+    private final List<String> errors = new ArrayList<>();
+
+    /**
+     * 登録したタスクの件数を加算します。
+     * @param count 加算する件数
+     */
+    void addImported(int count) {
+        imported += count;
+    }
+
+    /**
+     * 登録できなかった行を記録します。
+     * @param lineNumber 行番号(1始まり)
+     * @param message 登録できなかった理由
+     */
+    void addError(long lineNumber, String message) {
+        errors.add(lineNumber + "行目：" + message);
+    }
+
+    /**
+     * @return 登録したタスクの件数
+     */
+    public int getImported() {
+        return imported;
+    }
+
+    /**
+     * @return 登録できなかった行のメッセージ
+     */
+    public List<String> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+}
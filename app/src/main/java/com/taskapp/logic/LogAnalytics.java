@@ -0,0 +1,316 @@
+package com.taskapp.logic;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import com.taskapp.dataaccess.IntHashMap;
+import com.taskapp.dataaccess.LogDataAccess;
+import com.taskapp.metrics.MethodMetrics;
+import com.taskapp.metrics.MetricGroup;
+import com.taskapp.metrics.Metrics;
+
+/**
+ * ログの履歴からスループットを集計するクラスです。
+ * ログのファイルを範囲に分けて並列に解析し、範囲ごとの部分集計を結合します。
+ * 部分集計は件数の加算と日付の最小値だけで結合するため、結合の順序や組み合わせによらず同じ結果になります。
+ */
+public class LogAnalytics {
+    /** 未着手のステータス */
+    private static final int NOT_STARTED = 0;
+
+    /** 完了のステータス */
+    private static final int DONE = 2;
+
+    /** 1970-01-01(木曜日)から、その週の月曜日までの日数 */
+    private static final int MONDAY_OFFSET = 3;
+
+    /** クラス全体の計測値 */
+    private static final MetricGroup METRICS = Metrics.group("LogAnalytics");
+    private static final MethodMetrics ANALYZE_METRICS = METRICS.method("analyze");
+
+    private final LogDataAccess logDataAccess;
+    private final ForkJoinPool pool;
+
+    public LogAnalytics() {
+        this(new LogDataAccess());
+    }
+
+    /**
+     * 共通のForkJoinPoolで集計するインスタンスを作成します。
+     * @param logDataAccess 集計するログ
+     */
+    public LogAnalytics(LogDataAccess logDataAccess) {
+        this(logDataAccess, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param logDataAccess 集計するログ
+     * @param pool 集計に利用するスレッドプール
+     */
+    public LogAnalytics(LogDataAccess logDataAccess, ForkJoinPool pool) {
+        this.logDataAccess = logDataAccess;
+        this.pool = pool;
+    }
+
+    /**
+     * 全てのログから、ユーザーごと・週ごとの完了件数、未着手から完了までの平均日数、日ごとのステータス変更の件数を集計します。
+     *
+     * @see com.taskapp.dataaccess.LogDataAccess#reduce
+     * @return 集計結果
+     */
+    public LogStatistics analyze() {
+        return ANALYZE_METRICS.time(() -> {
+            /*
+             * 1．logDataAccessのreduceで、ファイルの範囲ごとに部分集計を作成し、結合する
+             * 2．タスクごとの未着手・完了の日付から、未着手から完了までの日数の平均を求める
+             * 3．日ごと・ユーザーと週ごとの件数を日付をキーにしたMapに変換する
+             */
+            Partial total = logDataAccess.reduce(pool, Partial::new, Partial::accept, Partial::merge);
+            return total.toStatistics();
+        });
+    }
+
+    /**
+     * 1970-01-01からの日数を、その日を含む週の番号に変換します。週は月曜日から始まります。
+     * @param epochDay 1970-01-01からの日数
+     * @return 1969-12-29(月曜日)からの週の番号
+     */
+    static int weekOf(int epochDay) {
+        return Math.floorDiv(epochDay + MONDAY_OFFSET, 7);
+    }
+
+    /**
+     * ファイルの範囲ごとの部分集計です。
+     */
+    private static final class Partial {
+        private long logCount;
+
+        /** 変更日ごとの件数 */
+        private final DenseCounts transitions = new DenseCounts();
+
+        /** 完了にしたユーザーのコードごとの、週ごとの件数 */
+        private final IntHashMap<DenseCounts> completedByUser = new IntHashMap<>();
+
+        /** タスクコードごとの、最初の未着手の日と最初の完了の日 */
+        private TaskDays cycles = new TaskDays();
+
+        private void accept(int taskCode, int changeUserCode, int status, int epochDay) {
+            logCount++;
+            transitions.add(epochDay, 1);
+            if (status == NOT_STARTED) cycles.min(taskCode, epochDay, TaskDays.NONE);
+            if (status != DONE) return;
+
+            cycles.min(taskCode, TaskDays.NONE, epochDay);
+
+            DenseCounts weeks = completedByUser.get(changeUserCode);
+            if (weeks == null) {
+                weeks = new DenseCounts();
+                completedByUser.put(changeUserCode, weeks);
+            }
+            weeks.add(weekOf(epochDay), 1);
+        }
+
+        /**
+         * 他の部分集計を結合します。どの値も加算か最小値なので、結合の順序によらず同じ結果になります。
+         * タスクごとの日付は、件数の少ない方を多い方へ追加します。
+         * @param other 他の部分集計
+         * @return 結合した部分集計(自身)
+         */
+        private Partial merge(Partial other) {
+            logCount += other.logCount;
+            transitions.addAll(other.transitions);
+            for (int userCode : other.completedByUser.sortedKeys()) {
+                DenseCounts weeks = completedByUser.get(userCode);
+                if (weeks == null) {
+                    completedByUser.put(userCode, other.completedByUser.get(userCode));
+                } else {
+                    weeks.addAll(other.completedByUser.get(userCode));
+                }
+            }
+
+            if (cycles.size < other.cycles.size) {
+                other.cycles.addAll(cycles);
+                cycles = other.cycles;
+            } else {
+                cycles.addAll(other.cycles);
+            }
+            return this;
+        }
+
+        private LogStatistics toStatistics() {
+            long cycleCount = 0;
+            long cycleDays = 0;
+            for (long days : cycles.days) {
+                if (days == TaskDays.EMPTY) continue;
+                int startDay = TaskDays.startDay(days);
+                int doneDay = TaskDays.doneDay(days);
+                if (startDay == TaskDays.NONE || doneDay == TaskDays.NONE || doneDay < startDay) continue;
+                cycleCount++;
+                cycleDays += doneDay - startDay;
+            }
+
+            SortedMap<LocalDate, Long> transitionsByDay = new TreeMap<>();
+            transitions.forEach((day, count) -> transitionsByDay.put(LocalDate.ofEpochDay(day), count));
+
+            SortedMap<Integer, SortedMap<LocalDate, Long>> completedByUserAndWeek = new TreeMap<>();
+            for (int userCode : completedByUser.sortedKeys()) {
+                SortedMap<LocalDate, Long> weeks = new TreeMap<>();
+                completedByUser.get(userCode).forEach((week, count) ->
+                        weeks.put(LocalDate.ofEpochDay((long) week * 7 - MONDAY_OFFSET), count));
+                completedByUserAndWeek.put(userCode, weeks);
+            }
+            return new LogStatistics(logCount, transitionsByDay, completedByUserAndWeek, cycleCount,
+                    cycleCount == 0 ? 0 : (double) cycleDays / cycleCount);
+        }
+    }
+
+    /**
+     * タスクコードごとの、最初の未着手の日と最初の完了の日です。
+     * タスクごとに配列を作成しないよう、2つの日を1つのlongにまとめ、キーと同じ位置の配列に保持します(線形探索のハッシュ表)。
+     */
+    private static final class TaskDays {
+        /** ログがないことを表す日 */
+        private static final int NONE = Integer.MAX_VALUE;
+
+        /** 空の位置を表す値。未着手の日がInteger.MIN_VALUEになることはないため、実際の値とは重ならない */
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        private int[] keys = new int[1024];
+        private long[] days = newDays(1024);
+        private int size;
+
+        /**
+         * タスクの日付を、既にある日付と比べて早い方にします。
+         * @param taskCode タスクコード
+         * @param startDay 未着手の日。ない場合は{@link #NONE}
+         * @param doneDay 完了の日。ない場合は{@link #NONE}
+         */
+        private void min(int taskCode, int startDay, int doneDay) {
+            int mask = keys.length - 1;
+            int slot = hash(taskCode) & mask;
+            while (days[slot] != EMPTY) {
+                if (keys[slot] == taskCode) {
+                    long current = days[slot];
+                    days[slot] = pack(Math.min(startDay(current), startDay), Math.min(doneDay(current), doneDay));
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = taskCode;
+            days[slot] = pack(startDay, doneDay);
+            if (++size > keys.length * 3 / 4) resize(keys.length << 1);
+        }
+
+        /**
+         * 他のタスクの日付を全て加えます。
+         * 途中で表を広げると、格納順に追加したキーの衝突が連鎖するため、先に合計の件数分まで広げます。
+         * @param other 他のタスクの日付
+         */
+        private void addAll(TaskDays other) {
+            int capacity = keys.length;
+            while (capacity * 3 / 4 < size + other.size) capacity <<= 1;
+            if (capacity != keys.length) resize(capacity);
+            for (int i = 0; i < other.keys.length; i++) {
+                long value = other.days[i];
+                if (value != EMPTY) min(other.keys[i], startDay(value), doneDay(value));
+            }
+        }
+
+        private void resize(int capacity) {
+            int[] oldKeys = keys;
+            long[] oldDays = days;
+            keys = new int[capacity];
+            days = newDays(capacity);
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldDays[i] == EMPTY) continue;
+                int slot = hash(oldKeys[i]) & mask;
+                while (days[slot] != EMPTY) slot = (slot + 1) & mask;
+                keys[slot] = oldKeys[i];
+                days[slot] = oldDays[i];
+            }
+        }
+
+        private static long[] newDays(int capacity) {
+            long[] days = new long[capacity];
+            Arrays.fill(days, EMPTY);
+            return days;
+        }
+
+        private static long pack(int startDay, int doneDay) {
+            return ((long) startDay << 32) | (doneDay & 0xFFFFFFFFL);
+        }
+
+        private static int startDay(long days) {
+            return (int) (days >> 32);
+        }
+
+        private static int doneDay(long days) {
+            return (int) days;
+        }
+
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * 連続した整数のキーごとの件数です。日や週のように、キーが狭い範囲に集まる場合に配列1つで保持します。
+     */
+    private static final class DenseCounts {
+        /** counts[0]に対応するキー */
+        private int base;
+        private long[] counts = new long[0];
+
+        /**
+         * 件数を受け取る処理です。
+         */
+        @FunctionalInterface
+        private interface CountConsumer {
+            void accept(int key, long count);
+        }
+
+        private void add(int key, long count) {
+            if (counts.length == 0) {
+                base = key;
+                counts = new long[16];
+            } else if (key < base || key - base >= counts.length) {
+                grow(key);
+            }
+            counts[key - base] += count;
+        }
+
+        private void addAll(DenseCounts other) {
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.counts[i] != 0) add(other.base + i, other.counts[i]);
+            }
+        }
+
+        /**
+         * 件数が0でないキーを昇順に渡します。
+         */
+        private void forEach(CountConsumer action) {
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) action.accept(base + i, counts[i]);
+            }
+        }
+
+        /**
+         * キーを含むように配列を広げます。前後どちらに広げる場合も長さを2倍以上にします。
+         */
+        private void grow(int key) {
+            long first = Math.min(base, key);
+            long last = Math.max((long) base + counts.length - 1, key);
+            int length = (int) Math.max(counts.length * 2L, last - first + 1);
+            int newBase = key < base ? (int) (last - length + 1) : base;
+            long[] grown = new long[length];
+            System.arraycopy(counts, 0, grown, base - newBase, counts.length);
+            counts = grown;
+            base = newBase;
+        }
+    }
+}
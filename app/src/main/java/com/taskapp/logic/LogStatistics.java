@@ -0,0 +1,61 @@
+package com.taskapp.logic;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.SortedMap;
+
+/**
+ * ログの履歴から集計したスループットの統計です。
+ */
+public class LogStatistics {
+    private final long logCount;
+    private final SortedMap<LocalDate, Long> transitionsByDay;
+    private final SortedMap<Integer, SortedMap<LocalDate, Long>> completedByUserAndWeek;
+    private final long cycleCount;
+    private final double averageCycleDays;
+
+    LogStatistics(long logCount, SortedMap<LocalDate, Long> transitionsByDay,
+            SortedMap<Integer, SortedMap<LocalDate, Long>> completedByUserAndWeek, long cycleCount,
+            double averageCycleDays) {
+        this.logCount = logCount;
+        this.transitionsByDay = Collections.unmodifiableSortedMap(transitionsByDay);
+        this.completedByUserAndWeek = Collections.unmodifiableSortedMap(completedByUserAndWeek);
+        this.cycleCount = cycleCount;
+        this.averageCycleDays = averageCycleDays;
+    }
+
+    /**
+     * @return 集計したログの件数
+     */
+    public long getLogCount() {
+        return logCount;
+    }
+
+    /**
+     * @return 変更日ごとのステータスの変更(登録を含む)の件数
+     */
+    public SortedMap<LocalDate, Long> getTransitionsByDay() {
+        return transitionsByDay;
+    }
+
+    /**
+     * @return 完了にしたユーザーのコードごとの、週(月曜日の日付)ごとの完了したタスクの件数
+     */
+    public SortedMap<Integer, SortedMap<LocalDate, Long>> getCompletedByUserAndWeek() {
+        return completedByUserAndWeek;
+    }
+
+    /**
+     * @return 未着手と完了の両方のログがあり、サイクルタイムを求めたタスクの件数
+     */
+    public long getCycleCount() {
+        return cycleCount;
+    }
+
+    /**
+     * @return 未着手から完了までの平均日数。対象のタスクがない場合は0
+     */
+    public double getAverageCycleDays() {
+        return averageCycleDays;
+    }
+}
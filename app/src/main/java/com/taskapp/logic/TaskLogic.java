@@ -1,15 +1,44 @@
 package com.taskapp.logic;
 
 import java.util.*;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
+import java.util.stream.Stream;
 
+import com.taskapp.dataaccess.CsvTokenizer;
 import com.taskapp.dataaccess.LogDataAccess;
 import com.taskapp.dataaccess.TaskDataAccess;
 import com.taskapp.dataaccess.UserDataAccess;
 import com.taskapp.exception.AppException;
+import com.taskapp.exception.VersionConflictException;
+import com.taskapp.metrics.MethodMetrics;
+import com.taskapp.metrics.MetricGroup;
+import com.taskapp.metrics.Metrics;
 import com.taskapp.model.*;
 
 public class TaskLogic {
+    /** 一括登録で1回にまとめて書き込む件数 */
+    private static final int IMPORT_BATCH_SIZE = 10_000;
+
+
+    /** クラス全体の計測値 */
+    private static final MetricGroup METRICS = Metrics.group("TaskLogic");
+    private static final MethodMetrics SHOW_ALL_METRICS = METRICS.method("showAll");
+    private static final MethodMetrics SHOW_PAGE_METRICS = METRICS.method("showPage");
+    private static final MethodMetrics FIND_PAGE_METRICS = METRICS.method("findPage");
+    private static final MethodMetrics SHOW_PAGE_BEFORE_METRICS = METRICS.method("showPageBefore");
+    private static final MethodMetrics SHOW_TASKS_METRICS = METRICS.method("showTasks");
+    private static final MethodMetrics SHOW_FILTERED_METRICS = METRICS.method("showFiltered");
+    private static final MethodMetrics FIND_FILTERED_METRICS = METRICS.method("findFiltered");
+    private static final MethodMetrics COUNT_TASKS_METRICS = METRICS.method("countTasks");
+    private static final MethodMetrics CHECK_TASK_COUNTS_METRICS = METRICS.method("checkTaskCounts");
+    private static final MethodMetrics FIND_LOGS_METRICS = METRICS.method("findLogs");
+    private static final MethodMetrics SAVE_METRICS = METRICS.method("save");
+    private static final MethodMetrics SAVE_ALL_METRICS = METRICS.method("saveAll");
+    private static final MethodMetrics CHANGE_STATUS_METRICS = METRICS.method("changeStatus");
+    private static final MethodMetrics DELETE_METRICS = METRICS.method("delete");
     private final TaskDataAccess taskDataAccess;
     private final LogDataAccess logDataAccess;
     private final UserDataAccess userDataAccess;
@@ -36,34 +65,191 @@ public class TaskLogic {
     /**
      * 全てのタスクを表示します。
      *
-     * @see com.taskapp.dataaccess.TaskDataAccess#findAll()
+     * @see com.taskapp.dataaccess.TaskDataAccess#streamAll()
      * @param loginUser ログインユーザー
      */
     public void showAll(User loginUser) {
-        /*
-         * 1．taskDataAccessのfinedAllからリストを受け取る
-         * 2．taskクラスのUserがLoginUser名と一致した場合は「あなた」、そうでない場合はUserName
-         * 3．statusの数字によって値を変更
-         * 4．上記情報を出力
-         */
+        SHOW_ALL_METRICS.run(() -> {
+            /*
+             * 1．taskDataAccessのstreamAllから1件ずつ受け取る(全件の読み込みを待たずに出力を始める)
+             * 2．taskクラスのUserがLoginUser名と一致した場合は「あなた」、そうでない場合はUserName
+             * 3．statusの数字によって値を変更
+             * 4．上記情報を出力
+             */
+
+            try (Stream<Task> tasks = taskDataAccess.streamAll()) {
+                tasks.forEach(task -> printTask(task, loginUser));
+            }
+        });
+    }
 
-        List<Task> tasks = taskDataAccess.findAll();
-        tasks.forEach(task -> {
-            int status = task.getStatus();
-            String statusMsg = "未着手";
-            if (status == 1) statusMsg = "着手中";
-            if (status == 2) statusMsg = "完了";
+    /**
+     * 指定したタスクコードより後ろのタスクを、コードの昇順に最大limit件表示します。
+     * 次のページは、表示した最後のタスクのコードを指定して取得します。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#findPageAfter(int, int)
+     * @param loginUser ログインユーザー
+     * @param afterCode このコードより大きいタスクを表示する。先頭から表示する場合はInteger.MIN_VALUE
+     * @param limit 1ページの最大件数
+     * @return 表示したタスクのリスト
+     */
+    public List<Task> showPage(User loginUser, int afterCode, int limit) {
+        return SHOW_PAGE_METRICS.time(() -> {
+            List<Task> tasks = findPage(afterCode, limit);
+            tasks.forEach(task -> printTask(task, loginUser));
+            return tasks;
+        });
+    }
+
+    /**
+     * 指定したタスクコードより後ろのタスクを、コードの昇順に最大limit件取得します。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#findPageAfter(int, int)
+     * @param afterCode このコードより大きいタスクを取得する。先頭から取得する場合はInteger.MIN_VALUE
+     * @param limit 1ページの最大件数
+     * @return タスクのリスト
+     */
+    public List<Task> findPage(int afterCode, int limit) {
+        return FIND_PAGE_METRICS.time(() -> {
+            return taskDataAccess.findPageAfter(afterCode, limit);
+        });
+    }
+
+    /**
+     * 指定したタスクコードより前のタスクのうち、直前の最大limit件をコードの昇順に表示します。
+     * 前のページは、表示している最初のタスクのコードを指定して取得します。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#findPageBefore(int, int)
+     * @param loginUser ログインユーザー
+     * @param beforeCode このコードより小さいタスクを表示する
+     * @param limit 1ページの最大件数
+     * @return 表示したタスクのリスト
+     */
+    public List<Task> showPageBefore(User loginUser, int beforeCode, int limit) {
+        return SHOW_PAGE_BEFORE_METRICS.time(() -> {
+            List<Task> tasks = taskDataAccess.findPageBefore(beforeCode, limit);
+            tasks.forEach(task -> printTask(task, loginUser));
+            return tasks;
+        });
+    }
 
-            String userName = task.getRepUser().getName();
-            if (userName.equals(loginUser.getName())) {
-                userName = "あなた";
+    /**
+     * 取得済みのタスクを順に表示します。
+     * 次のページの有無を判定するために1件多く取得したページなど、取得と表示の件数が異なる場合に利用します。
+     *
+     * @see #findPage(int, int)
+     * @param loginUser ログインユーザー
+     * @param tasks 表示するタスク
+     */
+    public void showTasks(User loginUser, List<Task> tasks) {
+        SHOW_TASKS_METRICS.run(() -> {
+            tasks.forEach(task -> printTask(task, loginUser));
+        });
+    }
+
+    /**
+     * ステータスと担当ユーザーで絞り込んだタスクを表示します。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#findByStatusAndRepUser(Integer, Integer)
+     * @param loginUser ログインユーザー
+     * @param status ステータス(0:未着手, 1:着手中, 2:完了)。nullの場合は絞り込まない
+     * @param repUserCode 担当ユーザーのコード。nullの場合は絞り込まない
+     * @throws AppException ステータスが0~2以外の場合にスローされます
+     */
+    public void showFiltered(User loginUser, Integer status, Integer repUserCode) throws AppException {
+        SHOW_FILTERED_METRICS.run(() -> {
+            /*
+             * 1．findFilteredで絞り込んだリストを受け取る(ステータスが0~2以外の場合は例外をスロー)
+             * 2．1件ずつ出力
+             */
+            for (Task task : findFiltered(status, repUserCode)) {
+                printTask(task, loginUser);
+            }
+        });
+    }
+
+    /**
+     * ステータスと担当ユーザーで絞り込んだタスクを取得します。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#findByStatusAndRepUser(Integer, Integer)
+     * @param status ステータス(0:未着手, 1:着手中, 2:完了)。nullの場合は絞り込まない
+     * @param repUserCode 担当ユーザーのコード。nullの場合は絞り込まない
+     * @return 絞り込んだタスクのリスト
+     * @throws AppException ステータスが0~2以外の場合にスローされます
+     */
+    public List<Task> findFiltered(Integer status, Integer repUserCode) throws AppException {
+        return FIND_FILTERED_METRICS.time(() -> {
+            if (status != null && (status < 0 || status > 2)) {
+                throw new AppException("ステータスは0~2の中から選択してください");
             }
+            return taskDataAccess.findByStatusAndRepUser(status, repUserCode);
+        });
+    }
+
+    /**
+     * ステータスと担当ユーザーに一致するタスクの件数を取得します。
+     * 登録・ステータス変更・削除のたびに増減している件数を返すため、タスクは走査しません。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#countByStatusAndRepUser(Integer, Integer)
+     * @param status ステータス(0:未着手, 1:着手中, 2:完了)。nullの場合は絞り込まない
+     * @param repUserCode 担当ユーザーのコード。nullの場合は絞り込まない
+     * @return 件数
+     * @throws AppException ステータスが0~2以外の場合にスローされます
+     */
+    public int countTasks(Integer status, Integer repUserCode) throws AppException {
+        return COUNT_TASKS_METRICS.time(() -> {
+            if (status != null && (status < 0 || status > 2)) {
+                throw new AppException("ステータスは0~2の中から選択してください");
+            }
+            return taskDataAccess.countByStatusAndRepUser(status, repUserCode);
+        });
+    }
+
+    /**
+     * countTasksが返す件数を、全てのタスクから数え直した件数と比べます。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#verifyCounts()
+     * @return 件数が異なる組ごとのメッセージ。一致する場合は空
+     */
+    public List<String> checkTaskCounts() {
+        return CHECK_TASK_COUNTS_METRICS.time(() -> {
+            return taskDataAccess.verifyCounts();
+        });
+    }
 
-            System.out.println(task.getCode() + ". タスク名：" + task.getName() + ", 担当者名：" + 
-                        userName + "が担当しています, ステータス：" + statusMsg);
+    /**
+     * タスクのステータスの変更履歴を、古い順に取得します。
+     *
+     * @see com.taskapp.dataaccess.LogDataAccess#findByTaskCode(int)
+     * @param code タスクコード
+     * @return ログのリスト
+     */
+    public List<Log> findLogs(int code) {
+        return FIND_LOGS_METRICS.time(() -> {
+            return logDataAccess.findByTaskCode(code);
         });
     }
 
+    /**
+     * タスクを1行で出力します。
+     * @param task 出力するタスク
+     * @param loginUser ログインユーザー
+     */
+    private void printTask(Task task, User loginUser) {
+        int status = task.getStatus();
+        String statusMsg = "未着手";
+        if (status == 1) statusMsg = "着手中";
+        if (status == 2) statusMsg = "完了";
+
+        String userName = task.getRepUser().getName();
+        if (userName.equals(loginUser.getName())) {
+            userName = "あなた";
+        }
+
+        System.out.println(task.getCode() + ". タスク名：" + task.getName() + ", 担当者名：" + 
+                    userName + "が担当しています, ステータス：" + statusMsg);
+    }
+
     /**
      * 新しいタスクを保存します。
      *
@@ -74,23 +260,161 @@ public class TaskLogic {
      * @param name タスク名
      * @param repUserCode 担当ユーザーコード
      * @param loginUser ログインユーザー
-     * @throws AppException ユーザーコードが存在しない場合にスローされます
+     * @throws AppException タスク名が正しくない場合、またはユーザーコードが存在しない場合にスローされます
      */
     public void save(int code, String name, int repUserCode,
                     User loginUser) throws AppException {
-    /*
-     * 1．引数で受け取った情報からTaskクラス・Logクラスをインスタンス化
-     * 2．入力されたユーザーコードが存在しない場合は例外をスロー
-     * 3．インスタンスをもとにcsvへ保存
+        SAVE_METRICS.run(() -> {
+        /*
+         * 1．タスク名が空か10文字を超える、またはcsvの行や列を壊す文字を含む場合は例外をスロー
+         * 2．引数で受け取った情報からTaskクラス・Logクラスをインスタンス化
+         * 3．入力されたユーザーコードが存在しない場合は例外をスロー
+         * 4．インスタンスをもとにcsvへ保存
+         */
+            checkTaskName(name);
+            User user = userDataAccess.findByCode(repUserCode);
+            if (user == null) throw new AppException("存在するユーザーコードを入力してください");
+
+            Log log = new Log(code, loginUser.getCode(), 0, LocalDate.now());
+            Task task = new Task(code, name, 0, user);
+
+            logDataAccess.save(log);
+            taskDataAccess.save(task);
+        });
+    }
+
+    /**
+     * タスク名が1~10文字で、csvに保存したときに列や行を増やす文字(「,」・「\r」・「\n」)を含まないかを確認します。
+     * コンソールの画面・HTTP API・一括登録のいずれもこのメソッドで確認します。
+     * @param name タスク名
+     * @throws AppException 空か10文字を超える場合、または「,」か改行を含む場合にスローされます
      */
-        User user = userDataAccess.findByCode(repUserCode);
-        if (user == null) throw new AppException("存在するユーザーコードを入力してください");
+    public static void checkTaskName(String name) throws AppException {
+        if (name.isEmpty() || name.length() > 10) throw new AppException("タスク名は10文字以内で入力してください");
+        if (name.indexOf(',') >= 0 || name.indexOf('\r') >= 0 || name.indexOf('\n') >= 0) {
+            throw new AppException("タスク名に「,」と改行は使用できません");
+        }
+    }
+
+    /**
+     * csv形式の入力からタスクをまとめて登録します。
+     * 入力は「タスクコード,タスク名,担当ユーザーコード」の行で、先頭の「Code」で始まるヘッダー行と空行は読み飛ばします。
+     * ユーザーは最初に1回だけ読み込み、タスクと作成のログは{@value #IMPORT_BATCH_SIZE}件ごとにまとめて書き込みます。
+     * 形式が正しくない行、存在しないユーザーコードの行、タスクコードが重複する行は登録せずに結果へ記録し、残りの行の登録を続けます。
+     * タスクの書き込みに失敗した場合は結果へ記録し、残りの行は登録せずに終了します。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#saveAll(List)
+     * @see com.taskapp.dataaccess.LogDataAccess#saveAll(List)
+     * @param input 読み込むcsv
+     * @param loginUser ログインユーザー
+     * @return 登録した件数と登録できなかった行
+     * @throws IOException 入力の読み込みに失敗した場合
+     */
+    public ImportResult saveAll(Reader input, User loginUser) throws IOException {
+        return SAVE_ALL_METRICS.time(() -> {
+            /*
+             * 1．全てのユーザーを読み込む
+             * 2．入力を1行ずつ検証し、正しい行をタスクとしてまとめる。正しくない行は結果に記録する
+             * 3．まとまったらタスクを保存し、保存できたタスクの作成ログを保存する。コードが重複していたタスクは結果に記録する
+             * 4．タスクの書き込みに失敗した場合は結果に記録し、残りの行は登録しない
+             */
+            Map<Integer, User> users = userDataAccess.findAllAsMap();
+            ImportResult result = new ImportResult();
+            List<Task> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+            long[] batchLines = new long[IMPORT_BATCH_SIZE];
+
+            try (CsvTokenizer csv = new CsvTokenizer(input)) {
+                long lineNumber = 0;
+                while (csv.next()) {
+                    lineNumber++;
+                    if (csv.columnCount() == 1 && csv.columnEquals(0, "")) continue;
+                    if (lineNumber == 1 && csv.columnEquals(0, "Code")) continue;
+
+                    Task task = parseImportRow(csv, users, lineNumber, result);
+                    if (task == null) continue;
+                    batchLines[batch.size()] = lineNumber;
+                    batch.add(task);
+                    if (batch.size() == IMPORT_BATCH_SIZE) {
+                        if (!saveBatch(batch, batchLines, loginUser, result)) return result;
+                        batch.clear();
+                    }
+                }
+            }
+            saveBatch(batch, batchLines, loginUser, result);
+            return result;
+        });
+    }
+
+    /**
+     * 一括登録の1行を検証し、タスクを作成します。
+     * @param csv 現在の行を指すcsv
+     * @param users ユーザーコードとユーザーのMap
+     * @param lineNumber 行番号
+     * @param result 正しくない場合に記録する結果
+     * @return 作成したタスク。行が正しくない場合はnull
+     */
+    private Task parseImportRow(CsvTokenizer csv, Map<Integer, User> users, long lineNumber, ImportResult result) {
+        if (csv.columnCount() != 3) {
+            result.addError(lineNumber, "タスクコード,タスク名,担当ユーザーコードの3列で入力してください");
+            return null;
+        }
+        int code;
+        int repUserCode;
+        try {
+            code = csv.getInt(0);
+            repUserCode = csv.getInt(2);
+        } catch (NumberFormatException e) {
+            result.addError(lineNumber, "コードは半角の数字で入力してください");
+            return null;
+        }
+        String name = csv.getString(1);
+        try {
+            checkTaskName(name);
+        } catch (AppException e) {
+            result.addError(lineNumber, e.getMessage());
+            return null;
+        }
+        User user = users.get(repUserCode);
+        if (user == null) {
+            result.addError(lineNumber, "存在するユーザーコードを入力してください");
+            return null;
+        }
+        return new Task(code, name, 0, user);
+    }
 
-        Log log = new Log(code, loginUser.getCode(), 0, LocalDate.now());
-        Task task = new Task(code, name, 0, user);
+    /**
+     * まとめたタスクと、保存できたタスクの作成ログを保存します。
+     * タスクの書き込みに失敗した場合は、まとめた最初の行に失敗を記録します。
+     * @param batch 保存するタスク
+     * @param batchLines 各タスクの行番号
+     * @param loginUser ログインユーザー
+     * @param result 結果
+     * @return 書き込みに失敗したため一括登録を中止する場合はfalse
+     */
+    private boolean saveBatch(List<Task> batch, long[] batchLines, User loginUser, ImportResult result) {
+        if (batch.isEmpty()) return true;
+        boolean[] saved;
+        try {
+            saved = taskDataAccess.saveAll(batch);
+        } catch (UncheckedIOException e) {
+            e.printStackTrace();
+            result.addError(batchLines[0], "タスクの書き込みに失敗したため、この行以降の登録を中止しました");
+            return false;
+        }
 
-        logDataAccess.save(log);
-        taskDataAccess.save(task);
+        LocalDate today = LocalDate.now();
+        List<Log> logs = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Task task = batch.get(i);
+            if (saved[i]) {
+                logs.add(new Log(task.getCode(), loginUser.getCode(), 0, today));
+            } else {
+                result.addError(batchLines[i], "タスクコード" + task.getCode() + "は既に登録されています");
+            }
+        }
+        logDataAccess.saveAll(logs);
+        result.addImported(logs.size());
+        return true;
     }
 
     /**
@@ -102,24 +426,32 @@ public class TaskLogic {
      * @param code タスクコード
      * @param status 新しいステータス
      * @param loginUser ログインユーザー
-     * @throws AppException タスクコードが存在しない、またはステータスが前のステータスより1つ先でない場合にスローされます
+     * @throws AppException タスクコードが存在しない、ステータスが前のステータスより1つ先でない、
+     *                      または読み込んだ後に他のユーザーがタスクを更新した場合にスローされます
      */
     public void changeStatus(int code, int status,
                             User loginUser) throws AppException {
-        /*
-         * 1．TaskDataAccessクラスのfindByCodeから指定のタスクを取得
-         * 2．存在しない場合は例外をスロー
-         * 3．引数のstatus-TaskStatusが1じゃない場合は例外をスロー
-         * 4．取得したTaskのStatusを変更
-         * 5．
-         */
+        CHANGE_STATUS_METRICS.run(() -> {
+            /*
+             * 1．TaskDataAccessクラスのfindByCodeから指定のタスクを取得
+             * 2．存在しない場合は例外をスロー
+             * 3．引数のstatus-TaskStatusが1じゃない場合は例外をスロー
+             * 4．取得したTaskのStatusを変更し、取得時の版数のまま更新する。他のユーザーが先に更新していた場合は例外をスロー
+             * 5．ステータスの変更をログに保存
+             */
 
-        Task task = taskDataAccess.findByCode(code);
-        if (task == null) throw new AppException("存在するタスクコードを入力してください");
-        if ((status - task.getStatus()) != 1) throw new AppException("ステータスは、前のステータスより1つ先のもののみを選択してください");
+            Task task = taskDataAccess.findByCode(code);
+            if (task == null) throw new AppException("存在するタスクコードを入力してください");
+            if ((status - task.getStatus()) != 1) throw new AppException("ステータスは、前のステータスより1つ先のもののみを選択してください");
 
-        task.setStatus(status);
-        taskDataAccess.update(task);
+            task.setStatus(status);
+            try {
+                taskDataAccess.update(task);
+            } catch (VersionConflictException e) {
+                throw new AppException("他のユーザーがタスクを更新しました。タスクを確認してからやり直してください");
+            }
+            logDataAccess.save(new Log(code, loginUser.getCode(), status, LocalDate.now()));
+        });
     }
 
     /**
@@ -132,18 +464,20 @@ public class TaskLogic {
      * @throws AppException タスクコードが存在しない、またはタスクのステータスが完了でない場合にスローされます
      */
     public void delete(int code) throws AppException {
-        /*
-         * 1．引数のcodeでTaskDataAccessクラスのfindByCodeを呼び出し
-         * 2．nullが帰ってきた場合は例外をスロー
-         * 3．ステータスが完了じゃない場合は例外をスロー
-         * 3．上記以外の場合はTaskDataAccessクラスのdelete、LogDataAccessクラスのdeleteByTaskCodeを呼び出し
-         */
+        DELETE_METRICS.run(() -> {
+            /*
+             * 1．引数のcodeでTaskDataAccessクラスのfindByCodeを呼び出し
+             * 2．nullが帰ってきた場合は例外をスロー
+             * 3．ステータスが完了じゃない場合は例外をスロー
+             * 3．上記以外の場合はTaskDataAccessクラスのdelete、LogDataAccessクラスのdeleteByTaskCodeを呼び出し
+             */
 
-        Task task = taskDataAccess.findByCode(code);
-        if (task == null) throw new AppException("存在するタスクコードを入力してください");
-        if (task.getStatus() != 2) throw new AppException("ステータスが完了のタスクを選択してください");
+            Task task = taskDataAccess.findByCode(code);
+            if (task == null) throw new AppException("存在するタスクコードを入力してください");
+            if (task.getStatus() != 2) throw new AppException("ステータスが完了のタスクを選択してください");
 
-        taskDataAccess.delete(code);
-        logDataAccess.deleteByTaskCode(code);
+            taskDataAccess.delete(code);
+            logDataAccess.deleteByTaskCode(code);
+        });
     }
 }
\ No newline at end of file
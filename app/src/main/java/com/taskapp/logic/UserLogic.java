@@ -2,9 +2,16 @@ package com.taskapp.logic;
 
 import com.taskapp.dataaccess.UserDataAccess;
 import com.taskapp.exception.AppException;
+import com.taskapp.metrics.MethodMetrics;
+import com.taskapp.metrics.MetricGroup;
+import com.taskapp.metrics.Metrics;
 import com.taskapp.model.User;
 
 public class UserLogic {
+    /** クラス全体の計測値 */
+    private static final MetricGroup METRICS = Metrics.group("UserLogic");
+    private static final MethodMetrics LOGIN_METRICS = METRICS.method("login");
+
     private final UserDataAccess userDataAccess;
 
     public UserLogic() {
@@ -29,20 +36,22 @@ public class UserLogic {
      * @throws AppException メールアドレスとパスワードが一致するユーザーが存在しない場合にスローされます
      */
     public User login(String email, String password) throws AppException {
-        /*
-         * 1．Userインスタンスを作成
-         * 2．UserDataAccessクラスのfindByEmailAndPasswordを呼び出しUserインスタンスに代入
-         * 3．nullが帰ってきた場合は例外をスロー
-         * 4．ログインできた場合はメッセージを出力
-         * 5．呼び出しもとにUserインスタンスを返す
-         */
-
-        User user = userDataAccess.findByEmailAndPassword(email, password);
-        if (user == null) {
-            throw new AppException("既に登録されているメールアドレス、パスワードを入力してください");
-        }
-
-        System.out.println("ユーザー名：" + user.getName() + "でログインしました。");
-        return user;
+        return LOGIN_METRICS.time(() -> {
+            /*
+             * 1．Userインスタンスを作成
+             * 2．UserDataAccessクラスのfindByEmailAndPasswordを呼び出しUserインスタンスに代入
+             * 3．nullが帰ってきた場合は例外をスロー
+             * 4．ログインできた場合はメッセージを出力
+             * 5．呼び出しもとにUserインスタンスを返す
+             */
+
+            User user = userDataAccess.findByEmailAndPassword(email, password);
+            if (user == null) {
+                throw new AppException("既に登録されているメールアドレス、パスワードを入力してください");
+            }
+
+            System.out.println("ユーザー名：" + user.getName() + "でログインしました。");
+            return user;
+        });
     }
 }
\ No newline at end of file
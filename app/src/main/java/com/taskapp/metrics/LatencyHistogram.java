@@ -0,0 +1,112 @@
+package com.taskapp.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 処理時間(ナノ秒)の分布を記録するヒストグラムです。
+ * 2の累乗ごとの範囲を8つに分けたバケットに件数を数えるため、パーセンタイルの誤差は12.5%以内です。
+ *
+ * <p>各バケットはLongAdderのため、多数のスレッドから同時に記録しても1つの値を奪い合わず、
+ * 記録のたびにオブジェクトを作成しません。
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** 0~7ナノ秒の8つと、2^3~2^62ナノ秒の範囲ごとに8つずつのバケット */
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 処理時間を記録します。
+     * @param nanos 処理時間(ナノ秒)。負の値は0として扱う
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts[bucketOf(nanos)].increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * @return 記録した件数
+     */
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : counts) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @return 処理時間の平均(ナノ秒)。記録がない場合は0
+     */
+    public long meanNanos() {
+        long count = count();
+        return count == 0 ? 0 : totalNanos.sum() / count;
+    }
+
+    /**
+     * @return 処理時間の最大値(ナノ秒)
+     */
+    public long maxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * 処理時間のパーセンタイルを取得します。値は該当するバケットの上限で、最大値を超えることはありません。
+     * @param percent パーセント(0より大きく100以下)
+     * @return 処理時間(ナノ秒)。記録がない場合は0
+     */
+    public long percentileNanos(double percent) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts[i].sum();
+            count += snapshot[i];
+        }
+        if (count == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percent / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return Math.min(upperBound(i), maxNanos());
+        }
+        return maxNanos();
+    }
+
+    /**
+     * 処理時間が入るバケットの番号を求めます。
+     * @param nanos 処理時間(ナノ秒、0以上)
+     * @return バケットの番号
+     */
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) return (int) nanos;
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos)) - SUB_BUCKET_BITS;
+        int sub = (int) (nanos >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @param bucket バケットの番号
+     * @return バケットに入る処理時間の上限(ナノ秒)
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+}
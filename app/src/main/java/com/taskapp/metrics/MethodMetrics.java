@@ -0,0 +1,143 @@
+package com.taskapp.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 1つのメソッドの呼び出し回数・例外の回数・処理時間を記録します。
+ * 計測するメソッドでは、処理を{@link #time(Timed)}か{@link #run(TimedVoid)}で囲みます。
+ *
+ * <pre>
+ * public List&lt;Task&gt; findAll() {
+ *     return FIND_ALL_METRICS.time(() -&gt; {
+ *         ...
+ *     });
+ * }
+ * </pre>
+ *
+ * timeとrunは、次のように{@link #start()}・{@link #failed()}・{@link #stop(long)}を呼び出すのと同じです。
+ *
+ * <pre>
+ * long start = FIND_ALL_METRICS.start();
+ * try {
+ *     ...
+ * } catch (Throwable e) {
+ *     FIND_ALL_METRICS.failed();
+ *     throw e;
+ * } finally {
+ *     FIND_ALL_METRICS.stop(start);
+ * }
+ * </pre>
+ */
+public final class MethodMetrics {
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    MethodMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return 計測を始めた時刻(ナノ秒)
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * 呼び出しを1回記録し、処理時間をヒストグラムに加えます。
+     * @param start {@link #start()}で取得した時刻
+     */
+    public void stop(long start) {
+        calls.increment();
+        latency.record(System.nanoTime() - start);
+    }
+
+    /**
+     * 例外で終了した呼び出しを記録します。
+     */
+    public void failed() {
+        errors.increment();
+    }
+
+    /**
+     * 戻り値のある計測する処理です。
+     * @param <T> 戻り値の型
+     * @param <E> スローする検査例外の型。スローしない場合はRuntimeExceptionになります
+     */
+    @FunctionalInterface
+    public interface Timed<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    /**
+     * 戻り値のない計測する処理です。
+     * @param <E> スローする検査例外の型。スローしない場合はRuntimeExceptionになります
+     */
+    @FunctionalInterface
+    public interface TimedVoid<E extends Exception> {
+        void run() throws E;
+    }
+
+    /**
+     * 処理を呼び出して計測します。処理がスローした例外はそのままスローします。
+     * @param <T> 戻り値の型
+     * @param <E> 処理がスローする検査例外の型(IOException・AppExceptionなど)
+     * @param body 処理
+     * @return 処理の戻り値
+     * @throws E 処理がスローした場合
+     */
+    public <T, E extends Exception> T time(Timed<T, E> body) throws E {
+        long start = start();
+        try {
+            return body.call();
+        } catch (Throwable e) {
+            failed();
+            throw e;
+        } finally {
+            stop(start);
+        }
+    }
+
+    /**
+     * 戻り値のない処理を呼び出して計測します。処理がスローした例外はそのままスローします。
+     * @param <E> 処理がスローする検査例外の型(IOException・AppExceptionなど)
+     * @param body 処理
+     * @throws E 処理がスローした場合
+     */
+    public <E extends Exception> void run(TimedVoid<E> body) throws E {
+        time(() -> {
+            body.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return メソッド名
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 呼び出し回数
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    /**
+     * @return 例外で終了した回数
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * @return 処理時間のヒストグラム
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+}
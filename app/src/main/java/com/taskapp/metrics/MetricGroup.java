@@ -0,0 +1,156 @@
+package com.taskapp.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+
+/**
+ * 1つのクラスのメソッドごとの計測値と、クラス全体で読み書きしたバイト数をまとめたものです。
+ * JMXのMBeanとして、「メソッド名.Calls」「メソッド名.P99Micros」のような属性で公開します。
+ */
+public final class MetricGroup implements DynamicMBean {
+    private static final String[] METHOD_ATTRIBUTES = {
+        "Calls", "Errors", "MeanMicros", "P50Micros", "P90Micros", "P99Micros", "MaxMicros"
+    };
+
+    private final String name;
+    private final Map<String, MethodMetrics> methods = new ConcurrentSkipListMap<>();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+
+    MetricGroup(String name) {
+        this.name = name;
+    }
+
+    /**
+     * メソッドの計測値を取得します。初めて指定したメソッド名の場合は作成します。
+     * @param methodName メソッド名
+     * @return メソッドの計測値
+     */
+    public MethodMetrics method(String methodName) {
+        return methods.computeIfAbsent(methodName, MethodMetrics::new);
+    }
+
+    /**
+     * ファイルから読み込んだバイト数を加算します。
+     * @param bytes バイト数
+     */
+    public void addBytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    /**
+     * ファイルへ書き込んだバイト数を加算します。
+     * @param bytes バイト数
+     */
+    public void addBytesWritten(long bytes) {
+        bytesWritten.add(bytes);
+    }
+
+    /**
+     * @return クラス名
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return メソッド名の順のメソッドごとの計測値
+     */
+    public List<MethodMetrics> getMethods() {
+        return new ArrayList<>(methods.values());
+    }
+
+    /**
+     * @return ファイルから読み込んだバイト数
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * @return ファイルへ書き込んだバイト数
+     */
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        if (attribute.equals("BytesRead")) return getBytesRead();
+        if (attribute.equals("BytesWritten")) return getBytesWritten();
+
+        int dot = attribute.lastIndexOf('.');
+        MethodMetrics method = dot < 0 ? null : methods.get(attribute.substring(0, dot));
+        if (method == null) throw new AttributeNotFoundException(attribute);
+        LatencyHistogram latency = method.getLatency();
+        return switch (attribute.substring(dot + 1)) {
+            case "Calls" -> method.getCalls();
+            case "Errors" -> method.getErrors();
+            case "MeanMicros" -> micros(latency.meanNanos());
+            case "P50Micros" -> micros(latency.percentileNanos(50));
+            case "P90Micros" -> micros(latency.percentileNanos(90));
+            case "P99Micros" -> micros(latency.percentileNanos(99));
+            case "MaxMicros" -> micros(latency.maxNanos());
+            default -> throw new AttributeNotFoundException(attribute);
+        };
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // 存在しない属性は結果に含めない
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException(attribute.getName() + "は読み取り専用です");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        throw new UnsupportedOperationException(actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        attributes.add(new MBeanAttributeInfo("BytesRead", "long", "ファイルから読み込んだバイト数", true, false, false));
+        attributes.add(new MBeanAttributeInfo("BytesWritten", "long", "ファイルへ書き込んだバイト数", true, false, false));
+        for (String method : methods.keySet()) {
+            for (String attribute : METHOD_ATTRIBUTES) {
+                String type = attribute.endsWith("Micros") ? "double" : "long";
+                attributes.add(new MBeanAttributeInfo(method + "." + attribute, type,
+                        method + "の" + attribute, true, false, false));
+            }
+        }
+        return new MBeanInfo(MetricGroup.class.getName(), name + "の計測値",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[0], null);
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1_000.0;
+    }
+}
@@ -0,0 +1,168 @@
+package com.taskapp.metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * クラスごとの計測値を管理し、JMXのMBeanとファイルへの出力で公開します。
+ * MBeanは「com.taskapp:type=Metrics,name=クラス名」の名前で登録します。
+ *
+ * <p>システムプロパティ{@value #DUMP_PROPERTY}にファイルのパスを指定して起動すると、
+ * {@value #DUMP_SECONDS_PROPERTY}秒(既定60秒)ごとに全ての計測値をファイルへ出力します。
+ */
+public final class Metrics {
+    /** 計測値を定期的に出力するファイルのパスを指定するシステムプロパティ */
+    public static final String DUMP_PROPERTY = "taskapp.metrics.dump";
+
+    /** 計測値を出力する間隔(秒)を指定するシステムプロパティ */
+    public static final String DUMP_SECONDS_PROPERTY = "taskapp.metrics.dumpSeconds";
+
+    private static final String DOMAIN = "com.taskapp";
+
+    private static final Map<String, MetricGroup> GROUPS = new ConcurrentSkipListMap<>();
+
+    private static final ScheduledExecutorService DUMPER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "metrics-dump");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Metrics() {
+    }
+
+    /**
+     * クラスの計測値を取得します。初めて指定したクラス名の場合は作成し、MBeanとして登録します。
+     * @param name クラス名
+     * @return クラスの計測値
+     */
+    public static MetricGroup group(String name) {
+        return GROUPS.computeIfAbsent(name, key -> {
+            MetricGroup group = new MetricGroup(key);
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(group, objectName(key));
+            } catch (JMException e) {
+                e.printStackTrace();
+            }
+            return group;
+        });
+    }
+
+    /**
+     * @param name クラス名
+     * @return MBeanの名前
+     * @throws JMException 名前として正しくない場合
+     */
+    public static ObjectName objectName(String name) throws JMException {
+        return new ObjectName(DOMAIN + ":type=Metrics,name=" + name);
+    }
+
+    /**
+     * @return クラス名の順の全ての計測値
+     */
+    public static List<MetricGroup> groups() {
+        return new ArrayList<>(GROUPS.values());
+    }
+
+    /**
+     * 全ての計測値を1メソッド1行のテキストで出力します。呼び出されていないメソッドは出力しません。
+     * @param out 出力先
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public static void dump(Writer out) throws IOException {
+        out.write("# " + Instant.now() + System.lineSeparator());
+        for (MetricGroup group : groups()) {
+            out.write(String.format("%s bytesRead=%d bytesWritten=%d%n",
+                    group.getName(), group.getBytesRead(), group.getBytesWritten()));
+            for (MethodMetrics method : group.getMethods()) {
+                if (method.getCalls() == 0) continue;
+                LatencyHistogram latency = method.getLatency();
+                out.write(String.format("%s.%s calls=%d errors=%d meanMicros=%.1f p50Micros=%.1f p90Micros=%.1f p99Micros=%.1f maxMicros=%.1f%n",
+                        group.getName(), method.getName(), method.getCalls(), method.getErrors(),
+                        latency.meanNanos() / 1_000.0, latency.percentileNanos(50) / 1_000.0,
+                        latency.percentileNanos(90) / 1_000.0, latency.percentileNanos(99) / 1_000.0,
+                        latency.maxNanos() / 1_000.0));
+            }
+        }
+    }
+
+    /**
+     * 全ての計測値をファイルへ出力します。一時ファイルに書き込んでから置き換えるため、読み手が途中の内容を読むことはありません。
+     * @param file 出力先のファイル
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public static void dumpTo(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            dump(writer);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 全ての計測値を定期的にファイルへ出力します。
+     * @param file 出力先のファイル
+     * @param periodSeconds 出力する間隔(秒)
+     * @return 出力を止めるためのScheduledFuture
+     */
+    public static ScheduledFuture<?> startDump(Path file, long periodSeconds) {
+        return DUMPER.scheduleAtFixedRate(() -> {
+            try {
+                dumpTo(file);
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * システムプロパティ{@value #DUMP_PROPERTY}が指定されている場合に、定期的な出力を始めます。
+     */
+    public static void startDumpIfConfigured() {
+        String file = System.getProperty(DUMP_PROPERTY);
+        if (file == null || file.isEmpty()) return;
+        long periodSeconds = Long.getLong(DUMP_SECONDS_PROPERTY, 60);
+        startDump(Paths.get(file), periodSeconds);
+    }
+
+    /**
+     * 文字列をUTF-8で書き込んだ場合のバイト数を、byte配列を作成せずに求めます。
+     * @param text 文字列
+     * @return バイト数
+     */
+    public static long utf8Length(CharSequence text) {
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
@@ -5,12 +5,27 @@ public class Task {
     private String name;
     private int status;
     private User repUser;
+    private int version;
 
     public Task(int code, String name, int status, User repUser) {
+        this(code, name, status, repUser, 0);
+    }
+
+    /**
+     * 版数を指定してタスクを作成します。
+     * 版数はタスクを更新するたびに1つ進み、更新時に読み込んだ時点の版数と一致するかを確認するために利用します。
+     * @param code コード
+     * @param name タスク名
+     * @param status ステータス
+     * @param repUser 担当ユーザー
+     * @param version 版数
+     */
+    public Task(int code, String name, int status, User repUser, int version) {
         this.code = code;
         this.name = name;
         this.status = status;
         this.repUser = repUser;
+        this.version = version;
     }
 
     public int getCode() {
@@ -29,6 +44,10 @@ public class Task {
         return this.repUser;
     }
 
+    public int getVersion() {
+        return this.version;
+    }
+
     public void setStatus(int status) {
         this.status = status;
     }
@@ -0,0 +1,165 @@
+package com.taskapp.server;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * サーバーモードに負荷をかけ、1秒あたりのリクエスト数と応答時間のパーセンタイルを出力するクライアントです。
+ * ログインしたトークンで、指定した並列数の仮想スレッドから「GET /tasks?limit=20」を繰り返し送信します。
+ *
+ * <pre>
+ * 引数：ベースURL メールアドレス パスワード [並列数(既定16)] [秒数(既定10)]
+ * 例：gradle loadTest -PloadTestArgs="http://localhost:8080 test1@example.com password1 64 10"
+ * </pre>
+ */
+public class LoadTestClient {
+    /**
+     * 負荷試験の結果です。
+     * @param requests 送信したリクエスト数
+     * @param errors ステータスコードが200以外、または通信に失敗したリクエスト数
+     * @param elapsedNanos 試験にかかった時間(ナノ秒)
+     * @param latencyNanos 成功したリクエストの応答時間(ナノ秒、昇順)
+     */
+    public record Report(long requests, long errors, long elapsedNanos, long[] latencyNanos) {
+        /**
+         * @return 1秒あたりのリクエスト数
+         */
+        public double requestsPerSecond() {
+            return elapsedNanos == 0 ? 0 : requests * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        /**
+         * 応答時間のパーセンタイルを取得します(nearest-rank法)。
+         * @param percent パーセント(0より大きく100以下)
+         * @return 応答時間(ナノ秒)。成功したリクエストがない場合は0
+         */
+        public long percentile(double percent) {
+            if (latencyNanos.length == 0) return 0;
+            int rank = (int) Math.ceil(percent / 100 * latencyNanos.length);
+            return latencyNanos[Math.max(0, Math.min(latencyNanos.length, rank) - 1)];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("requests=%d errors=%d throughput=%.1f req/s p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms",
+                    requests, errors, requestsPerSecond(), millis(percentile(50)), millis(percentile(90)),
+                    millis(percentile(99)), millis(percentile(100)));
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("引数：ベースURL メールアドレス パスワード [並列数] [秒数]");
+            System.exit(1);
+        }
+        URI base = URI.create(args[0]);
+        int concurrency = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+        int seconds = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        String token = login(client, base, args[1], args[2]);
+        System.out.println(run(client, base, token, concurrency, Duration.ofSeconds(seconds)));
+    }
+
+    /**
+     * ログインしてトークンを取得します。
+     * @param client HTTPクライアント
+     * @param base サーバーのベースURL
+     * @param email メールアドレス
+     * @param password パスワード
+     * @return トークン
+     * @throws IOException ログインに失敗した場合
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    public static String login(HttpClient client, URI base, String email, String password)
+            throws IOException, InterruptedException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("email", email);
+        body.put("password", password);
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(base.resolve("/login"))
+                .POST(HttpRequest.BodyPublishers.ofString(Json.write(body)))
+                .header("Content-Type", "application/json")
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) throw new IOException("ログインに失敗しました：" + response.body());
+        return (String) Json.parseObject(response.body()).get("token");
+    }
+
+    /**
+     * 指定した時間、並列にタスク一覧を取得し続けます。
+     * @param client HTTPクライアント
+     * @param base サーバーのベースURL
+     * @param token ログインで取得したトークン
+     * @param concurrency 並列数
+     * @param duration 試験する時間
+     * @return 試験の結果
+     * @throws Exception 送信用のスレッドが異常終了した場合
+     */
+    public static Report run(HttpClient client, URI base, String token, int concurrency, Duration duration)
+            throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(base.resolve("/tasks?limit=20"))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+
+        List<Future<long[]>> workers = new ArrayList<>();
+        long[] errors = new long[concurrency];
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int w = 0; w < concurrency; w++) {
+                int worker = w;
+                workers.add(executor.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors[worker]++;
+                                continue;
+                            }
+                        } catch (IOException e) {
+                            errors[worker]++;
+                            continue;
+                        }
+                        if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+                        latencies[count++] = System.nanoTime() - sent;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long[] all = new long[0];
+        for (Future<long[]> worker : workers) {
+            long[] latencies = worker.get();
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + latencies.length);
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+        }
+        Arrays.sort(all);
+        long errorCount = Arrays.stream(errors).sum();
+        return new Report(all.length + errorCount, errorCount, elapsed, all);
+    }
+}
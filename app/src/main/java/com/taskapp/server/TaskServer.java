@@ -0,0 +1,371 @@
+package com.taskapp.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.taskapp.exception.AppException;
+import com.taskapp.logic.TaskLogic;
+import com.taskapp.logic.UserLogic;
+import com.taskapp.model.Log;
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+/**
+ * TaskLogicとUserLogicをHTTPのJSON APIとして公開するサーバーです。
+ * 1リクエストごとに仮想スレッドで処理するため、ファイルの読み書きを待つリクエストが多くても他のリクエストを止めません。
+ *
+ * <ul>
+ * <li>POST /login：{"email","password"}でログインし、トークンを返す</li>
+ * <li>POST /logout：トークンを無効にする</li>
+ * <li>GET /tasks：タスクの一覧。status・repUserCodeで絞り込み、after・limitでページ単位に取得する</li>
+ * <li>POST /tasks：{"code","name","repUserCode"}でタスクを登録する</li>
+ * <li>POST /tasks/{code}/status：{"status"}でステータスを変更する</li>
+ * <li>DELETE /tasks/{code}：タスクを削除する</li>
+ * <li>GET /tasks/{code}/logs：ステータスの変更履歴</li>
+ * </ul>
+ * login以外は「Authorization: Bearer トークン」ヘッダーが必要です。
+ * AppExceptionは400、トークンがない場合は401として{"error"}を返します。
+ */
+public class TaskServer {
+    /** 一覧でページ単位に取得する場合の最大件数 */
+    private static final int MAX_LIMIT = 1000;
+
+    private static final String BEARER = "Bearer ";
+
+    static {
+        // ヘッダーと本文を別々に送るため、Nagleアルゴリズムが有効だと遅延ACKと重なって1リクエストごとに約40ミリ秒待たされる
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final TaskLogic taskLogic;
+
+    private final UserLogic userLogic;
+
+    /** トークンからログイン中のユーザーを引き当てるMap */
+    private final Map<String, User> sessions = new ConcurrentHashMap<>();
+
+    private final SecureRandom random = new SecureRandom();
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    /**
+     * 処理内容を表すレスポンスです。
+     * @param status HTTPステータスコード
+     * @param body JSONに変換する値。本文がない場合はnull
+     */
+    private record Response(int status, Object body) {
+    }
+
+    /**
+     * リクエストの処理です。
+     */
+    @FunctionalInterface
+    private interface Handler {
+        Response handle(HttpExchange exchange) throws AppException, IOException;
+    }
+
+    /**
+     * リクエストを処理できない場合にスローする例外です。
+     */
+    private static class HttpError extends RuntimeException {
+        private final int status;
+
+        private HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    public TaskServer() {
+        this(new TaskLogic(), new UserLogic());
+    }
+
+    /**
+     * @param taskLogic タスクの処理
+     * @param userLogic ユーザーの処理
+     */
+    public TaskServer(TaskLogic taskLogic, UserLogic userLogic) {
+        this.taskLogic = taskLogic;
+        this.userLogic = userLogic;
+    }
+
+    /**
+     * サーバーを起動します。
+     * @param port 待ち受けるポート。0の場合は空いているポートを利用する
+     * @throws IOException ポートを開けない場合
+     */
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/login", exchange -> dispatch(exchange, "login", this::login));
+        server.createContext("/logout", exchange -> dispatch(exchange, "logout", this::logout));
+        server.createContext("/tasks", exchange -> dispatch(exchange, "tasks", this::tasks));
+        server.start();
+    }
+
+    /**
+     * @return 待ち受けているポート
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * 処理中のリクエストの完了を待ってからサーバーを停止します。
+     */
+    public void stop() {
+        server.stop(1);
+        executor.close();
+    }
+
+    /**
+     * パスの最初の区切りがresourceと一致する場合にhandlerを呼び出し、結果をJSONで返します。
+     * コンテキストは前方一致で選ばれるため、「/tasksfoo」のようなパスはここで404にします。
+     * @param exchange リクエスト
+     * @param resource パスの最初の区切り
+     * @param handler 処理
+     * @throws IOException 応答の書き込みに失敗した場合
+     */
+    private void dispatch(HttpExchange exchange, String resource, Handler handler) throws IOException {
+        Response response;
+        try {
+            String[] path = path(exchange);
+            if (path.length < 2 || !path[1].equals(resource)) throw notFound(exchange);
+            response = handler.handle(exchange);
+        } catch (AppException e) {
+            response = error(400, e.getMessage());
+        } catch (HttpError e) {
+            response = error(e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            response = error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            response = error(500, "サーバーでエラーが発生しました");
+        }
+
+        try (exchange) {
+            if (response.body() == null) {
+                exchange.sendResponseHeaders(response.status(), -1);
+                return;
+            }
+            byte[] bytes = Json.write(response.body()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(response.status(), bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private Response login(HttpExchange exchange) throws AppException, IOException {
+        if (path(exchange).length != 2) throw notFound(exchange);
+        requireMethod(exchange, "POST");
+        Map<String, Object> body = readBody(exchange);
+        User user = userLogic.login(stringField(body, "email"), stringField(body, "password"));
+
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, user);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("token", token);
+        result.put("userCode", user.getCode());
+        result.put("userName", user.getName());
+        return new Response(200, result);
+    }
+
+    private Response logout(HttpExchange exchange) {
+        if (path(exchange).length != 2) throw notFound(exchange);
+        requireMethod(exchange, "POST");
+        authenticate(exchange);
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        sessions.remove(header.substring(BEARER.length()));
+        return new Response(204, null);
+    }
+
+    private Response tasks(HttpExchange exchange) throws AppException, IOException {
+        /*
+         * 1．トークンからログインユーザーを取得
+         * 2．パスを「/」で分割し、パスとメソッドの組み合わせで処理を選ぶ
+         */
+        User loginUser = authenticate(exchange);
+        String[] path = path(exchange);
+        String method = exchange.getRequestMethod();
+
+        if (path.length == 2) {
+            if (method.equals("GET")) return listTasks(exchange);
+            if (method.equals("POST")) return createTask(exchange, loginUser);
+            throw new HttpError(405, method + "には対応していません");
+        }
+        int code = parseInt(path[2], "タスクコード");
+        if (path.length == 3) {
+            requireMethod(exchange, "DELETE");
+            taskLogic.delete(code);
+            return new Response(204, null);
+        }
+        if (path.length == 4 && path[3].equals("status")) {
+            requireMethod(exchange, "POST");
+            int status = intField(readBody(exchange), "status");
+            taskLogic.changeStatus(code, status, loginUser);
+            return new Response(204, null);
+        }
+        if (path.length == 4 && path[3].equals("logs")) {
+            requireMethod(exchange, "GET");
+            List<Object> logs = new ArrayList<>();
+            for (Log log : taskLogic.findLogs(code)) {
+                logs.add(toJson(log));
+            }
+            return new Response(200, logs);
+        }
+        throw notFound(exchange);
+    }
+
+    private Response listTasks(HttpExchange exchange) throws AppException {
+        /*
+         * 1．クエリからstatus・repUserCode・after・limitを取得
+         * 2．limitが指定されていて絞り込みがない場合はページ単位、それ以外は絞り込んだ一覧を取得
+         */
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        Integer status = query.containsKey("status") ? parseInt(query.get("status"), "status") : null;
+        Integer repUserCode = query.containsKey("repUserCode") ? parseInt(query.get("repUserCode"), "repUserCode") : null;
+
+        List<Task> tasks;
+        if (status == null && repUserCode == null && query.containsKey("limit")) {
+            int after = query.containsKey("after") ? parseInt(query.get("after"), "after") : Integer.MIN_VALUE;
+            int limit = parseInt(query.get("limit"), "limit");
+            if (limit < 1 || limit > MAX_LIMIT) throw new AppException("limitは1~" + MAX_LIMIT + "で指定してください");
+            tasks = taskLogic.findPage(after, limit);
+        } else {
+            tasks = taskLogic.findFiltered(status, repUserCode);
+        }
+
+        List<Object> result = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            result.add(toJson(task));
+        }
+        return new Response(200, result);
+    }
+
+    private Response createTask(HttpExchange exchange, User loginUser) throws AppException, IOException {
+        Map<String, Object> body = readBody(exchange);
+        int code = intField(body, "code");
+        String name = stringField(body, "name");
+        int repUserCode = intField(body, "repUserCode");
+        TaskLogic.checkTaskName(name);
+
+        taskLogic.save(code, name, repUserCode, loginUser);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("code", code);
+        return new Response(201, result);
+    }
+
+    private User authenticate(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        User user = header != null && header.startsWith(BEARER) ? sessions.get(header.substring(BEARER.length())) : null;
+        if (user == null) throw new HttpError(401, "ログインしてください");
+        return user;
+    }
+
+    /**
+     * @param exchange リクエスト
+     * @return 末尾の「/」を除いたパスを「/」で分割した配列。先頭は空文字列
+     */
+    private static String[] path(HttpExchange exchange) {
+        return exchange.getRequestURI().getPath().replaceAll("/+$", "").split("/");
+    }
+
+    private static HttpError notFound(HttpExchange exchange) {
+        return new HttpError(404, exchange.getRequestURI().getPath() + "は存在しません");
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!exchange.getRequestMethod().equals(method)) {
+            throw new HttpError(405, exchange.getRequestMethod() + "には対応していません");
+        }
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        return Json.parseObject(body);
+    }
+
+    private static String stringField(Map<String, Object> body, String name) {
+        if (!(body.get(name) instanceof String value)) throw new HttpError(400, name + "を文字列で指定してください");
+        return value;
+    }
+
+    private static int intField(Map<String, Object> body, String name) {
+        if (!(body.get(name) instanceof Long value) || value != value.intValue()) {
+            throw new HttpError(400, name + "を整数で指定してください");
+        }
+        return value.intValue();
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new HttpError(400, name + "を整数で指定してください");
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return query;
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static Response error(int status, String message) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", message);
+        return new Response(status, body);
+    }
+
+    private static Map<String, Object> toJson(Task task) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("code", task.getCode());
+        json.put("name", task.getName());
+        json.put("status", task.getStatus());
+        User repUser = task.getRepUser();
+        json.put("repUserCode", repUser != null ? repUser.getCode() : null);
+        json.put("repUserName", repUser != null ? repUser.getName() : null);
+        json.put("version", task.getVersion());
+        return json;
+    }
+
+    private static Map<String, Object> toJson(Log log) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("taskCode", log.getTaskCode());
+        json.put("changeUserCode", log.getChangeUserCode());
+        json.put("status", log.getStatus());
+        json.put("changeDate", log.getChangeDate().toString());
+        return json;
+    }
+}
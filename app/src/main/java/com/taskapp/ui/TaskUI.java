@@ -3,6 +3,7 @@ package com.taskapp.ui;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.List;
 
 import javax.print.DocFlavor.READER;
 
@@ -15,6 +16,9 @@ import com.taskapp.exception.AppException;
 import com.taskapp.dataaccess.*;
 
 public class TaskUI {
+    /** タスク一覧の1ページに表示する件数 */
+    private static final int PAGE_SIZE = 20;
+
     private final BufferedReader reader;
 
     private final UserLogic userLogic;
@@ -45,7 +49,7 @@ public class TaskUI {
      * メニューを表示し、ユーザーの入力に基づいてアクションを実行します。
      *
      * @see #inputLogin()
-     * @see com.taskapp.logic.TaskLogic#showAll(User)
+     * @see #browseTasks()
      * @see #selectSubMenu()
      * @see #inputNewInformation()
      */
@@ -66,7 +70,7 @@ public class TaskUI {
 
                 switch (selectMenu) {
                     case "1":
-                        taskLogic.showAll(loginUser);
+                        browseTasks();
                         selectSubMenu();
                         break;
                     case "2":
@@ -87,6 +91,78 @@ public class TaskUI {
         }
     }
 
+    /**
+     * タスク一覧をタスクコード順にページ単位で表示し、次・前のページへの移動を受け付けます。
+     * 次のページの有無は1ページより1件多く取得して判定し、1ページに収まる場合は移動の選択肢を表示しません。
+     *
+     * @see com.taskapp.logic.TaskLogic#findPage(int, int)
+     * @see com.taskapp.logic.TaskLogic#showTasks(User, List)
+     * @see com.taskapp.logic.TaskLogic#showPageBefore(User, int, int)
+     */
+    public void browseTasks() {
+        /*
+         * 1．先頭のページを表示する
+         * 2．1ページに収まる場合は、移動の選択肢を表示せずに終了する
+         * 3．次・前のページへの移動を選択させる。次・前のページがない場合はメッセージを出力し、今のページに留まる
+         * 4．qが入力されたらループを抜ける。それ以外の入力はメッセージを出力し、再度入力を求める
+         */
+        List<Task> fetched = showPageAfter(Integer.MIN_VALUE);
+        boolean hasNext = fetched.size() > PAGE_SIZE;
+        if (!hasNext) return;
+        List<Task> page = fetched.subList(0, PAGE_SIZE);
+        int firstCode = page.get(0).getCode();
+        int lastCode = page.get(page.size() - 1).getCode();
+
+        while (true) {
+            try {
+                System.out.println();
+                System.out.println("n. 次のページ, p. 前のページ, q. タスクの操作に進む");
+                System.out.print("選択肢：");
+                String selectMenu = reader.readLine();
+                System.out.println();
+
+                if ("n".equals(selectMenu)) {
+                    if (hasNext) {
+                        fetched = showPageAfter(lastCode);
+                        hasNext = fetched.size() > PAGE_SIZE;
+                        page = fetched.subList(0, Math.min(fetched.size(), PAGE_SIZE));
+                    } else {
+                        page = List.of();
+                    }
+                    if (page.isEmpty()) System.out.println("これより後ろのタスクはありません");
+                } else if ("p".equals(selectMenu)) {
+                    page = taskLogic.showPageBefore(loginUser, firstCode, PAGE_SIZE);
+                    if (page.isEmpty()) System.out.println("これより前のタスクはありません");
+                    // 前のページへ戻った場合は、表示していたページが次のページになる
+                    if (!page.isEmpty()) hasNext = true;
+                } else if (selectMenu == null || "q".equals(selectMenu)) {
+                    return;
+                } else {
+                    System.out.println("選択肢が誤っています。n、p、qの中から選択してください。");
+                    continue;
+                }
+                if (page.isEmpty()) continue;
+                firstCode = page.get(0).getCode();
+                lastCode = page.get(page.size() - 1).getCode();
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 指定したコードより後ろの1ページ分のタスクを表示します。
+     * 次のページの有無を判定するため1ページより1件多く取得し、表示しなかった1件も含めて返します。
+     * @param afterCode このコードより大きいタスクを表示する
+     * @return 取得したタスクのリスト(最大でPAGE_SIZE+1件)
+     */
+    private List<Task> showPageAfter(int afterCode) {
+        List<Task> tasks = taskLogic.findPage(afterCode, PAGE_SIZE + 1);
+        taskLogic.showTasks(loginUser, tasks.subList(0, Math.min(tasks.size(), PAGE_SIZE)));
+        return tasks;
+    }
+
     /**
      * ユーザーからのログイン情報を受け取り、ログイン処理を行います。
      *
@@ -146,8 +222,10 @@ public class TaskUI {
 
                 System.out.print("タスク名を入力してください：");
                 String taskName = reader.readLine();
-                if (!(taskName.length() <= 10)) {
-                    System.out.println("タスク名は10文字以内で入力してください");
+                try {
+                    TaskLogic.checkTaskName(taskName);
+                } catch (AppException e) {
+                    System.out.println(e.getMessage());
                     System.out.println();
                     continue;
                 }
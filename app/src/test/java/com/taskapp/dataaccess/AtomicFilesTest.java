@@ -0,0 +1,52 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class AtomicFilesTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testRewriteReplacesFileWithoutLeavingTempFile() throws IOException {
+        Path file = tempDir.resolve("tasks.csv");
+        Files.writeString(file, "old");
+
+        AtomicFiles.rewrite(file.toString(), writer -> writer.write("new"));
+
+        assertThat(Files.readString(file)).isEqualTo("new");
+        assertThat(Files.exists(tempDir.resolve("tasks.csv.tmp"))).isFalse();
+    }
+
+    @Test
+    public void testFailedRewriteKeepsOriginalFile() throws IOException {
+        Path file = tempDir.resolve("tasks.csv");
+        Files.writeString(file, "old");
+
+        assertThatThrownBy(() -> AtomicFiles.rewrite(file.toString(), writer -> {
+            writer.write("partial");
+            throw new IOException("disk full");
+        })).isInstanceOf(IOException.class);
+
+        assertThat(Files.readString(file)).isEqualTo("old");
+        assertThat(Files.exists(tempDir.resolve("tasks.csv.tmp"))).isFalse();
+    }
+
+    @Test
+    public void testRecoverDeletesLeftoverTempFile() throws IOException {
+        Path file = tempDir.resolve("logs.csv");
+        Files.writeString(file, "Task_Code,Change_User_Code,Status,Change_Date");
+        Files.writeString(tempDir.resolve("logs.csv.tmp"), "Task_Code,Chan");
+
+        new LogDataAccess(file.toString());
+
+        assertThat(Files.exists(tempDir.resolve("logs.csv.tmp"))).isFalse();
+        assertThat(AtomicFiles.recover(file.toString())).isFalse();
+    }
+}
@@ -0,0 +1,136 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.taskapp.exception.VersionConflictException;
+import com.taskapp.model.Log;
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+public class BinaryFormatTest {
+    private static final String TEST_FILE_PATH_TASK = "src/test/resources/test_tasks.csv";
+    private static final String TEST_FILE_PATH_USER = "src/test/resources/test_users.csv";
+    private static final String TEST_FILE_PATH_LOG = "src/test/resources/test_logs.csv";
+
+    @TempDir
+    Path tempDir;
+
+    private String taskFile;
+    private String userFile;
+    private String logFile;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        taskFile = tempDir.resolve("tasks.bin").toString();
+        userFile = tempDir.resolve("users.bin").toString();
+        logFile = tempDir.resolve("logs.bin").toString();
+        BinaryFormat.csvToBinary(BinaryFormat.KIND_TASK, TEST_FILE_PATH_TASK, taskFile);
+        BinaryFormat.csvToBinary(BinaryFormat.KIND_USER, TEST_FILE_PATH_USER, userFile);
+        BinaryFormat.csvToBinary(BinaryFormat.KIND_LOG, TEST_FILE_PATH_LOG, logFile);
+    }
+
+    @Test
+    public void testBinaryBackendsReadSameDataAsCsv() {
+        UserDataAccess csvUsers = new UserDataAccess(TEST_FILE_PATH_USER);
+        UserDataAccess binaryUsers = new UserDataAccess(userFile);
+
+        assertThat(new TaskDataAccess(taskFile, binaryUsers).findAll())
+                .usingRecursiveFieldByFieldElementComparator()
+                .isEqualTo(new TaskDataAccess(TEST_FILE_PATH_TASK, csvUsers).findAll());
+        assertThat(new LogDataAccess(logFile).findAll())
+                .usingRecursiveFieldByFieldElementComparator()
+                .isEqualTo(new LogDataAccess(TEST_FILE_PATH_LOG).findAll());
+        assertThat(binaryUsers.findByEmailAndPassword("test2@example.com", "password2"))
+                .isEqualToComparingFieldByField(csvUsers.findByCode(2));
+    }
+
+    @Test
+    public void testBinaryTaskWrites() {
+        UserDataAccess userDataAccess = new UserDataAccess(userFile);
+        TaskDataAccess taskDataAccess = new TaskDataAccess(taskFile, userDataAccess);
+        User repUser = userDataAccess.findByCode(1);
+
+        taskDataAccess.save(new Task(5, "タスク5", 0, repUser));
+        taskDataAccess.update(new Task(1, "Updated", 1, repUser));
+        taskDataAccess.delete(3);
+
+        List<Task> tasks = new TaskDataAccess(taskFile, userDataAccess).findAll();
+        assertThat(tasks).extracting(Task::getCode).containsExactly(1, 2, 4, 5);
+        assertThat(tasks.get(0).getName()).isEqualTo("Updated");
+        assertThat(tasks.get(3).getName()).isEqualTo("タスク5");
+    }
+
+    @Test
+    public void testBinaryLogWrites() {
+        LogDataAccess logDataAccess = new LogDataAccess(logFile);
+
+        logDataAccess.save(new Log(9, 2, 1, LocalDate.of(2024, 5, 6)));
+        logDataAccess.deleteByTaskCode(3);
+
+        List<Log> logs = logDataAccess.findAll();
+        assertThat(logs).extracting(Log::getTaskCode).containsExactly(1, 2, 4, 4, 9);
+        assertThat(logs.get(4).getChangeDate()).isEqualTo(LocalDate.of(2024, 5, 6));
+    }
+
+    @Test
+    public void testRoundTripToCsv() throws IOException {
+        Path csv = tempDir.resolve("logs.csv");
+
+        BinaryFormat.binaryToCsv(BinaryFormat.KIND_LOG, logFile, csv.toString());
+
+        assertThat(Files.readAllLines(csv)).isEqualTo(Files.readAllLines(Paths.get(TEST_FILE_PATH_LOG)));
+    }
+
+    @Test
+    public void testBinaryTaskKeepsVersionAfterReload() {
+        UserDataAccess userDataAccess = new UserDataAccess(userFile);
+        Task stale = new TaskDataAccess(taskFile, userDataAccess).findByCode(1);
+        Task mine = new TaskDataAccess(taskFile, userDataAccess).findByCode(1);
+        mine.setStatus(1);
+        new TaskDataAccess(taskFile, userDataAccess).update(mine);
+
+        TaskDataAccess reloaded = new TaskDataAccess(taskFile, userDataAccess);
+        assertThat(reloaded.findByCode(1).getVersion()).isEqualTo(1);
+        stale.setStatus(2);
+        assertThatThrownBy(() -> reloaded.update(stale)).isInstanceOf(VersionConflictException.class);
+    }
+
+    @Test
+    public void testVersionOneTaskFileIsRewrittenOnSave() throws IOException {
+        Path file = tempDir.resolve("old_tasks.bin");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0x54415050);
+            out.writeByte(BinaryFormat.KIND_TASK);
+            out.writeByte(1);
+            out.writeInt(1);
+            out.writeByte(0);
+            out.writeInt(1);
+            BinaryFormat.writeString(out, "タスク1");
+        }
+        Files.write(file, bytes.toByteArray());
+        UserDataAccess userDataAccess = new UserDataAccess(userFile);
+        TaskDataAccess taskDataAccess = new TaskDataAccess(file.toString(), userDataAccess);
+
+        assertThat(BinaryFormat.isCurrentTaskFormat(file)).isFalse();
+        taskDataAccess.save(new Task(2, "タスク2", 0, userDataAccess.findByCode(1)));
+
+        assertThat(BinaryFormat.isCurrentTaskFormat(file)).isTrue();
+        List<Task> tasks = new TaskDataAccess(file.toString(), userDataAccess).findAll();
+        assertThat(tasks).extracting(Task::getCode, Task::getName, Task::getVersion)
+                .containsExactly(tuple(1, "タスク1", 0), tuple(2, "タスク2", 0));
+    }
+}
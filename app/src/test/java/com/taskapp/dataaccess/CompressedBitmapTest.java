@@ -0,0 +1,115 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+public class CompressedBitmapTest {
+    @Test
+    public void testMatchesTreeSetAcrossContainerTypes() {
+        Random random = new Random(42);
+        CompressedBitmap bitmap = new CompressedBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+        // 1つのコンテナに4096件を超えて追加し、ビット列への切り替えと配列への戻りを通す
+        for (int i = 0; i < 20000; i++) {
+            int value = random.nextInt(3) == 0 ? random.nextInt(1 << 20) : random.nextInt(8000);
+            bitmap.add(value);
+            expected.add(value);
+        }
+        for (int i = 0; i < 15000; i++) {
+            int value = random.nextInt(8000);
+            bitmap.remove(value);
+            expected.remove(value);
+        }
+
+        assertThat(bitmap.cardinality()).isEqualTo(expected.size());
+        assertThat(toList(bitmap)).isEqualTo(new ArrayList<>(expected));
+        for (int i = 0; i < 1000; i++) {
+            int value = random.nextInt(1 << 20);
+            assertThat(bitmap.contains(value)).isEqualTo(expected.contains(value));
+        }
+    }
+
+    @Test
+    public void testAnd() {
+        Random random = new Random(7);
+        CompressedBitmap dense = new CompressedBitmap();
+        CompressedBitmap sparse = new CompressedBitmap();
+        CompressedBitmap even = new CompressedBitmap();
+        TreeSet<Integer> denseSet = new TreeSet<>();
+        TreeSet<Integer> sparseSet = new TreeSet<>();
+        for (int i = 0; i < 200000; i += 2) {
+            even.add(i);
+        }
+        for (int i = 0; i < 30000; i++) {
+            int value = random.nextInt(200000);
+            dense.add(value);
+            denseSet.add(value);
+            if (i % 50 == 0) {
+                sparse.add(value + 1);
+                sparseSet.add(value + 1);
+            }
+        }
+
+        TreeSet<Integer> denseEven = new TreeSet<>(denseSet);
+        denseEven.removeIf(value -> value % 2 != 0);
+        assertThat(toList(dense.and(even))).isEqualTo(new ArrayList<>(denseEven));
+
+        TreeSet<Integer> both = new TreeSet<>(denseSet);
+        both.retainAll(sparseSet);
+        assertThat(toList(dense.and(sparse))).isEqualTo(new ArrayList<>(both));
+        assertThat(sparse.and(new CompressedBitmap()).cardinality()).isZero();
+    }
+
+    @Test
+    public void testNegativeValuesFollowUnsignedOrder() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        bitmap.add(-1);
+        bitmap.add(5);
+        bitmap.add(Integer.MIN_VALUE);
+
+        assertThat(toList(bitmap)).containsExactly(5, Integer.MIN_VALUE, -1);
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        // 先頭のコンテナはビット列、残りは配列になる
+        for (int value = 0; value < 10000; value++) {
+            bitmap.add(value);
+        }
+        bitmap.add(1 << 20);
+        bitmap.add(-1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            bitmap.writeTo(out);
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(bytes.toByteArray());
+        CompressedBitmap loaded = CompressedBitmap.readFrom(in);
+
+        assertThat(in.hasRemaining()).isFalse();
+        assertThat(loaded.cardinality()).isEqualTo(10002);
+        assertThat(toList(loaded)).isEqualTo(toList(bitmap));
+        loaded.remove(5000);
+        loaded.add(1 << 20 | 1);
+        assertThat(loaded.contains(5000)).isFalse();
+        assertThat(loaded.contains(1 << 20 | 1)).isTrue();
+        assertThat(bitmap.contains(5000)).isTrue();
+    }
+
+    private List<Integer> toList(CompressedBitmap bitmap) {
+        List<Integer> values = new ArrayList<>();
+        bitmap.forEach(values::add);
+        return values;
+    }
+}
@@ -0,0 +1,110 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CsvTokenizerTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testColumnsMatchSplit() throws IOException {
+        String[] lines = {"1,name,0,2", "", "1,,0,2", "1,name,0,", "1,name,0,2,", ",,,", "a,b,c,d,e"};
+        try (CsvTokenizer csv = new CsvTokenizer(new StringReader(String.join("\n", lines)))) {
+            for (String line : lines) {
+                assertThat(csv.next()).isTrue();
+                String[] values = line.split(",");
+                assertThat(csv.columnCount()).as(line).isEqualTo(values.length);
+                for (int i = 0; i < values.length; i++) {
+                    assertThat(csv.getString(i)).isEqualTo(values[i]);
+                }
+            }
+            assertThat(csv.next()).isFalse();
+        }
+    }
+
+    @Test
+    public void testLineEndings() throws IOException {
+        try (CsvTokenizer csv = new CsvTokenizer(new StringReader("a\r\nb\rc\n\nd\n"))) {
+            StringBuilder result = new StringBuilder();
+            while (csv.next()) {
+                result.append('[').append(csv.getString(0)).append(']');
+            }
+            assertThat(result.toString()).isEqualTo("[a][b][c][][d]");
+        }
+    }
+
+    @Test
+    public void testLinesLongerThanBuffer() throws IOException {
+        String longName = "x".repeat(20000);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            content.append(i).append(',').append(i % 3 == 0 ? longName : "name").append("\r\n");
+        }
+        try (CsvTokenizer csv = new CsvTokenizer(new StringReader(content.toString()))) {
+            for (int i = 0; i < 50; i++) {
+                assertThat(csv.next()).isTrue();
+                assertThat(csv.getInt(0)).isEqualTo(i);
+                assertThat(csv.columnEquals(1, i % 3 == 0 ? longName : "name")).isTrue();
+            }
+            assertThat(csv.next()).isFalse();
+        }
+    }
+
+    @Test
+    public void testGetIntMatchesParseInt() throws IOException {
+        String[] values = {"0", "-5", "+7", "2147483647", "-2147483648"};
+        try (CsvTokenizer csv = new CsvTokenizer(new StringReader(String.join(",", values)))) {
+            csv.next();
+            for (int i = 0; i < values.length; i++) {
+                assertThat(csv.getInt(i)).isEqualTo(Integer.parseInt(values[i]));
+            }
+        }
+        try (CsvTokenizer csv = new CsvTokenizer(new StringReader("2147483648,1a,-,x"))) {
+            csv.next();
+            for (int i = 0; i < 4; i++) {
+                int column = i;
+                assertThatThrownBy(() -> csv.getInt(column)).isInstanceOf(NumberFormatException.class);
+            }
+        }
+    }
+
+    @Test
+    public void testGetDate() throws IOException {
+        try (CsvTokenizer csv = new CsvTokenizer(new StringReader("2024-02-29,2024-02-30"))) {
+            csv.next();
+            assertThat(csv.getDate(0)).isEqualTo(LocalDate.of(2024, 2, 29));
+            assertThatThrownBy(() -> csv.getDate(1)).isInstanceOf(java.time.DateTimeException.class);
+        }
+    }
+
+    @Test
+    public void testOpenSkippingHeaderIgnoresLaterAppends() throws IOException {
+        Path file = tempDir.resolve("tasks.csv");
+        StringBuilder content = new StringBuilder("Code,Name\n");
+        // 開いた時点でバッファに読み込まれないよう、バッファより長いファイルにする
+        for (int code = 1; code <= 5000; code++) {
+            content.append(code).append(",name").append(code).append('\n');
+        }
+        Files.writeString(file, content);
+
+        try (Stream<Integer> codes = CsvTokenizer.openSkippingHeader(file.toString()).stream(csv -> csv.getInt(0))) {
+            // 開いた後の書き込み途中の行は読まない
+            Files.writeString(file, "5001,na", StandardOpenOption.APPEND);
+            List<Integer> result = codes.toList();
+
+            assertThat(result).hasSize(5000).endsWith(5000);
+        }
+    }
+}
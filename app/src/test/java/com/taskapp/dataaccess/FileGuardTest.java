@@ -0,0 +1,86 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FileGuardTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testSameFileSharesGuard() {
+        String relative = "src/test/resources/test_tasks.csv";
+        String absolute = Paths.get("src/test/resources/../resources/test_tasks.csv").toAbsolutePath().toString();
+
+        assertThat(FileGuard.of(absolute)).isSameAs(FileGuard.of(relative));
+        assertThat(FileGuard.of("src/test/resources/test_users.csv")).isNotSameAs(FileGuard.of(relative));
+    }
+
+    @Test
+    public void testChangedIncrementsVersion() {
+        FileGuard guard = FileGuard.of(tempDir.resolve("version.csv").toString());
+        long before = guard.version();
+
+        assertThat(guard.changed()).isEqualTo(before + 1);
+        assertThat(guard.version()).isEqualTo(before + 1);
+    }
+
+    @Test
+    public void testReadersShareAndWriterExcludes() throws Exception {
+        FileGuard guard = FileGuard.of(tempDir.resolve("lock.csv").toString());
+        guard.lockRead();
+
+        Thread reader = new Thread(() -> {
+            guard.lockRead();
+            guard.unlockRead();
+        });
+        reader.start();
+        reader.join(5000);
+        assertThat(reader.isAlive()).isFalse();
+
+        CountDownLatch written = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            guard.lockWrite();
+            written.countDown();
+            guard.unlockWrite();
+        });
+        writer.start();
+        assertThat(written.await(200, TimeUnit.MILLISECONDS)).isFalse();
+
+        guard.unlockRead();
+        assertThat(written.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(tempDir.resolve("lock.csv.lock")).exists();
+    }
+
+    @Test
+    public void testWriteCanSwitchToRead() {
+        FileGuard guard = FileGuard.of(tempDir.resolve("switch.csv").toString());
+
+        guard.lockWrite();
+        guard.lockRead();
+        guard.unlockWrite();
+        guard.unlockRead();
+
+        guard.lockWrite();
+        guard.unlockWrite();
+    }
+
+    @Test
+    public void testMissingDirectoryFallsBackToInProcessLock() {
+        FileGuard guard = FileGuard.of(tempDir.resolve("missing").resolve("tasks.csv").toString());
+
+        assertThatCode(() -> {
+            guard.lockRead();
+            guard.unlockRead();
+            guard.lockWrite();
+            guard.unlockWrite();
+        }).doesNotThrowAnyException();
+    }
+}
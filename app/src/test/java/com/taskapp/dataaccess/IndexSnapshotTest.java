@@ -0,0 +1,126 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class IndexSnapshotTest {
+    @TempDir
+    Path dir;
+
+    private Path source;
+    private long sourceSize;
+    private long sourceModified;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        source = dir.resolve("logs.csv");
+        StringBuilder csv = new StringBuilder("Task_Code,Change_User_Code,Status,Change_Date\n");
+        for (int i = 0; csv.length() < IndexSnapshot.MIN_SOURCE_SIZE; i++) {
+            csv.append(i).append(",1,0,2024-01-01\n");
+        }
+        Files.writeString(source, csv);
+        sourceSize = Files.size(source);
+        sourceModified = Files.getLastModifiedTime(source).toMillis();
+        assertThat(save()).isTrue();
+    }
+
+    @Test
+    public void testLoadsMatchingSnapshot() throws IOException {
+        int[] read = new int[1];
+
+        long loaded = IndexSnapshot.load(source.toString(), BinaryFormat.KIND_LOG, false, in -> read[0] = in.getInt());
+
+        assertThat(loaded).isEqualTo(sourceSize);
+        assertThat(read[0]).isEqualTo(42);
+    }
+
+    @Test
+    public void testRejectsSourceWithSameSizeAndTime() throws IOException {
+        // 最後の行のステータスを書き換える
+        byte[] bytes = Files.readAllBytes(source);
+        int status = bytes.length - "0,2024-01-01\n".length();
+        bytes[status] = (byte) '1';
+        Files.write(source, bytes);
+        Files.setLastModifiedTime(source, FileTime.fromMillis(sourceModified));
+
+        assertThat(load(true)).isEqualTo(-1);
+    }
+
+    @Test
+    public void testRejectsChangedModifiedTime() throws IOException {
+        Files.setLastModifiedTime(source, FileTime.fromMillis(sourceModified + 10_000));
+
+        assertThat(load(true)).isEqualTo(-1);
+    }
+
+    @Test
+    public void testLoadsPrefixOfAppendedSource() throws IOException {
+        Files.writeString(source, "1,1,1,2024-01-02\n", StandardOpenOption.APPEND);
+
+        assertThat(load(true)).isEqualTo(sourceSize);
+        assertThat(load(false)).isEqualTo(-1);
+    }
+
+    @Test
+    public void testRejectsAppendToLastLine(@TempDir Path other) throws IOException {
+        source = other.resolve("tasks.csv");
+        StringBuilder csv = new StringBuilder("Code,Name,Status,Rep_User_Code");
+        for (int i = 0; csv.length() < IndexSnapshot.MIN_SOURCE_SIZE; i++) {
+            csv.append("\n").append(i).append(",task,0,1");
+        }
+        Files.writeString(source, csv);
+        sourceSize = Files.size(source);
+        sourceModified = Files.getLastModifiedTime(source).toMillis();
+        assertThat(save()).isTrue();
+
+        // 最後の行が書き換わるため、スナップショットの範囲は行の境界にならない
+        Files.writeString(source, "0", StandardOpenOption.APPEND);
+        assertThat(load(true)).isEqualTo(-1);
+
+        // 行の前に改行を書く形式の追記は、スナップショットの範囲の直後から改行が始まる
+        Files.writeString(source, csv + "\n9999999,task,0,1");
+        assertThat(load(true)).isEqualTo(sourceSize);
+    }
+
+    @Test
+    public void testRejectsCorruptSnapshot() throws IOException {
+        Path snapshot = IndexSnapshot.path(source.toString());
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length - 5] ^= 1;
+        Files.write(snapshot, bytes);
+
+        assertThat(load(false)).isEqualTo(-1);
+    }
+
+    @Test
+    public void testSmallSourceIsNotSaved() throws IOException {
+        Path small = dir.resolve("small.csv");
+        Files.writeString(small, "Task_Code,Change_User_Code,Status,Change_Date\n1,1,0,2024-01-01\n");
+
+        boolean saved = IndexSnapshot.save(small.toString(), BinaryFormat.KIND_LOG, Files.size(small),
+                Files.getLastModifiedTime(small).toMillis(), out -> out.writeInt(42));
+
+        assertThat(saved).isFalse();
+        assertThat(IndexSnapshot.path(small.toString())).doesNotExist();
+        assertThat(IndexSnapshot.load(small.toString(), BinaryFormat.KIND_LOG, true, in -> fail("読み込まない")))
+                .isEqualTo(-1);
+    }
+
+    private boolean save() throws IOException {
+        return IndexSnapshot.save(source.toString(), BinaryFormat.KIND_LOG, sourceSize, sourceModified,
+                out -> out.writeInt(42));
+    }
+
+    private long load(boolean appendable) throws IOException {
+        return IndexSnapshot.load(source.toString(), BinaryFormat.KIND_LOG, appendable, in -> in.getInt());
+    }
+}
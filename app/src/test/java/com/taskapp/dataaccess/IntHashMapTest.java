@@ -0,0 +1,46 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class IntHashMapTest {
+
+    @Test
+    public void testPutGetRemove() {
+        IntHashMap<String> map = new IntHashMap<>();
+
+        assertThat(map.put(1, "a")).isNull();
+        assertThat(map.put(1, "b")).isEqualTo("a");
+        assertThat(map.putIfAbsent(1, "c")).isEqualTo("b");
+        assertThat(map.get(1)).isEqualTo("b");
+        assertThat(map.remove(1)).isEqualTo("b");
+        assertThat(map.get(1)).isNull();
+        assertThat(map.size()).isZero();
+    }
+
+    @Test
+    public void testMatchesHashMapAfterRandomOperations() {
+        IntHashMap<Integer> map = new IntHashMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(2_000) - 1_000;
+            if (random.nextBoolean()) {
+                assertThat(map.put(key, i)).isEqualTo(expected.put(key, i));
+            } else {
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (int key = -1_000; key < 1_000; key++) {
+            assertThat(map.get(key)).isEqualTo(expected.get(key));
+        }
+    }
+}
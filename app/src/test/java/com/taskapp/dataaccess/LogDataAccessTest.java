@@ -11,12 +11,20 @@ import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import com.taskapp.metrics.MetricGroup;
+import com.taskapp.metrics.Metrics;
 import com.taskapp.model.Log;
 
 public class LogDataAccessTest {
@@ -45,6 +53,7 @@ public class LogDataAccessTest {
         Path backupFile = Paths.get(BACKUP_FILE_PATH);
         Files.copy(backupFile, originalFile, StandardCopyOption.REPLACE_EXISTING);
         Files.delete(backupFile);
+        Files.deleteIfExists(Paths.get(TEST_FILE_PATH + ".journal"));
     }
 
     @Tag("Q3")
@@ -86,6 +95,203 @@ public class LogDataAccessTest {
         assertThat(logs).doesNotContain(log2);
     }
 
+    @Test
+    public void testJournaledDeleteByTaskCode() {
+        LogDataAccess journaled = new LogDataAccess(TEST_FILE_PATH, true);
+        List<Log> before = readLogsFromFile(TEST_FILE_PATH);
+
+        journaled.save(new Log(5, 1, 0, LocalDate.of(2024, 2, 1)));
+        journaled.deleteByTaskCode(3);
+
+        assertThat(readLogsFromFile(TEST_FILE_PATH)).isEqualTo(before);
+        assertThat(new LogDataAccess(TEST_FILE_PATH, true).findAll())
+                .extracting(Log::getTaskCode)
+                .containsExactly(1, 2, 4, 4, 5);
+
+        journaled.compact();
+
+        assertThat(readLogsFromFile(TEST_FILE_PATH))
+                .extracting(Log::getTaskCode)
+                .containsExactly(1, 2, 4, 4, 5);
+    }
+
+    @Test
+    public void testSaveWithGroupCommitAppender() throws Exception {
+        List<Log> before = readLogsFromFile(TEST_FILE_PATH);
+        List<CompletableFuture<Void>> durable = new ArrayList<>();
+        try (GroupCommitAppender appender = new GroupCommitAppender(TEST_FILE_PATH, 64, 5, true)) {
+            LogDataAccess batched = new LogDataAccess(TEST_FILE_PATH, appender);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            for (int i = 0; i < 1000; i++) {
+                Log log = new Log(100 + i % 10, 1, 0, LocalDate.of(2024, 3, 1));
+                durable.add(CompletableFuture.supplyAsync(() -> batched.saveAsync(log), executor).thenCompose(f -> f));
+            }
+            CompletableFuture.allOf(durable.toArray(new CompletableFuture[0])).join();
+            executor.shutdown();
+
+            assertThat(readLogsFromFile(TEST_FILE_PATH)).hasSize(before.size() + 1000);
+
+            batched.deleteByTaskCode(100);
+            batched.save(new Log(200, 1, 0, LocalDate.of(2024, 3, 2)));
+
+            assertThat(batched.findAll())
+                    .hasSize(before.size() + 901)
+                    .noneMatch(log -> log.getTaskCode() == 100);
+        }
+        assertThat(readLogsFromFile(TEST_FILE_PATH)).hasSize(before.size() + 901);
+    }
+
+    @Test
+    public void testFindByTaskCodeFollowsAppendsAndRewrites() throws IOException {
+        Path file = Files.createTempFile("logs", ".csv");
+        try {
+            Files.copy(Paths.get(TEST_FILE_PATH), file, StandardCopyOption.REPLACE_EXISTING);
+            Files.writeString(file, System.lineSeparator(), java.nio.file.StandardOpenOption.APPEND);
+            LogDataAccess indexed = new LogDataAccess(file.toString());
+
+            assertThat(indexed.findByTaskCode(3))
+                    .extracting(Log::getStatus)
+                    .containsExactly(0, 1, 2);
+            assertThat(indexed.findByTaskCode(99)).isEmpty();
+
+            Log added = new Log(3, 1, 0, LocalDate.of(2024, 2, 1));
+            indexed.save(added);
+            assertThat(indexed.findByTaskCode(3)).hasSize(4).endsWith(added);
+
+            indexed.deleteByTaskCode(3);
+            assertThat(indexed.findByTaskCode(3)).isEmpty();
+            assertThat(indexed.findByTaskCode(4)).isEqualTo(indexed.findAll().stream()
+                    .filter(log -> log.getTaskCode() == 4).toList());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testColdStartLoadsOffsetIndexSnapshot() throws IOException {
+        Path file = Files.createTempFile("logs", ".csv");
+        try {
+            StringBuilder csv = new StringBuilder("Task_Code,Change_User_Code,Status,Change_Date")
+                    .append(System.lineSeparator());
+            for (int i = 0; i < 100_000; i++) {
+                csv.append(i % 1000).append(",1,").append(i % 3).append(",2024-01-01").append(System.lineSeparator());
+            }
+            Files.writeString(file, csv);
+            List<Log> parsed = new LogDataAccess(file.toString()).findByTaskCode(7);
+            assertThat(parsed).hasSize(100);
+            assertThat(IndexSnapshot.path(file.toString())).exists();
+
+            MetricGroup metrics = Metrics.group("LogDataAccess");
+            long before = metrics.getBytesRead();
+            LogDataAccess restarted = new LogDataAccess(file.toString());
+            assertThat(restarted.findByTaskCode(7)).isEqualTo(parsed);
+            assertThat(metrics.getBytesRead() - before).isLessThan(Files.size(file));
+
+            Log added = new Log(7, 2, 2, LocalDate.of(2024, 2, 1));
+            restarted.save(added);
+            LogDataAccess appended = new LogDataAccess(file.toString());
+            assertThat(appended.findByTaskCode(7)).hasSize(101).endsWith(added);
+
+            appended.deleteByTaskCode(7);
+            assertThat(new LogDataAccess(file.toString()).findByTaskCode(7)).isEmpty();
+            assertThat(new LogDataAccess(file.toString()).findByTaskCode(8)).hasSize(100);
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(IndexSnapshot.path(file.toString()));
+        }
+    }
+
+    @Test
+    public void testJournaledFindByTaskCodeAppliesTombstones() {
+        LogDataAccess journaled = new LogDataAccess(TEST_FILE_PATH, true);
+
+        journaled.deleteByTaskCode(3);
+        Log added = new Log(3, 1, 0, LocalDate.of(2024, 2, 1));
+        journaled.save(added);
+
+        assertThat(journaled.findByTaskCode(3)).containsExactly(added);
+        assertThat(journaled.findByTaskCode(4)).hasSize(2);
+    }
+
+    @Test
+    public void testStreamAllMatchesFindAll() {
+        try (Stream<Log> logs = logDataAccess.streamAll()) {
+            assertThat(logs).containsExactlyElementsOf(logDataAccess.findAll());
+        }
+
+        LogDataAccess journaled = new LogDataAccess(TEST_FILE_PATH, true);
+        journaled.save(new Log(3, 1, 0, LocalDate.of(2024, 2, 1)));
+        journaled.deleteByTaskCode(3);
+        journaled.save(new Log(3, 2, 0, LocalDate.of(2024, 2, 2)));
+        journaled.save(new Log(5, 1, 0, LocalDate.of(2024, 2, 3)));
+        try (Stream<Log> logs = journaled.streamAll()) {
+            assertThat(logs).containsExactlyElementsOf(journaled.findAll());
+        }
+    }
+
+    @Test
+    public void testConcurrentSavesAndDeletesFromManyInstances() throws Exception {
+        Path file = Files.createTempFile("logs", ".csv");
+        try {
+            Files.writeString(file, "Task_Code,Change_User_Code,Status,Change_Date" + System.lineSeparator());
+            int threads = 8;
+            int logsPerThread = 200;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int base = t * 10;
+                // スレッドごとに別のインスタンスで、自分だけが使うタスクコードのログを追記する
+                LogDataAccess session = new LogDataAccess(file.toString());
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < logsPerThread; i++) {
+                        session.save(new Log(base + i % 10, 1, i % 3, LocalDate.of(2024, 1, 1).plusDays(i)));
+                        assertThat(session.findByTaskCode(base + i % 10)).hasSize(i / 10 + 1);
+                    }
+                    session.deleteByTaskCode(base);
+                    assertThat(session.findByTaskCode(base)).isEmpty();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+
+            List<Log> logs = readLogsFromFile(file.toString());
+            assertThat(logs).hasSize(threads * logsPerThread * 9 / 10);
+            assertThat(logs).noneMatch(log -> log.getTaskCode() % 10 == 0);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testSaveAll() throws IOException {
+        Path file = Files.createTempFile("logs", ".csv");
+        try {
+            Files.writeString(file, "Task_Code,Change_User_Code,Status,Change_Date" + System.lineSeparator());
+            LogDataAccess session = new LogDataAccess(file.toString());
+            List<Log> saved = new ArrayList<>();
+            for (int code = 1; code <= 3; code++) {
+                saved.add(new Log(code, 1, 0, LocalDate.of(2024, 1, code)));
+            }
+
+            session.saveAll(saved);
+            session.saveAll(List.of());
+
+            List<Log> logs = readLogsFromFile(file.toString());
+            assertThat(logs).hasSize(3);
+            assertThat(logs).extracting(Log::getChangeDate)
+                    .containsExactly(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 3));
+            assertThat(session.findByTaskCode(2)).hasSize(1);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
     private List<Log> readLogsFromFile(String filePath) {
         List<Log> logs = new ArrayList<>();
         try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
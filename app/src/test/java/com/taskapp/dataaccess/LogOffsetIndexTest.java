@@ -0,0 +1,33 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class LogOffsetIndexTest {
+    @Test
+    public void testAddKeepsFileOrderPerTaskCode() {
+        LogOffsetIndex index = new LogOffsetIndex();
+        for (int i = 0; i < 100; i++) {
+            index.add(i % 3, i * 10L);
+        }
+
+        assertThat(index.get(1)).hasSize(33).startsWith(10, 40, 70).endsWith(970);
+        assertThat(index.get(5)).isEmpty();
+        assertThat(index.contains(0)).isTrue();
+    }
+
+    @Test
+    public void testRemoveAndClear() {
+        LogOffsetIndex index = new LogOffsetIndex();
+        index.add(1, 0);
+        index.add(2, 10);
+
+        index.remove(1);
+        assertThat(index.contains(1)).isFalse();
+        assertThat(index.get(2)).containsExactly(10);
+
+        index.clear();
+        assertThat(index.contains(2)).isFalse();
+    }
+}
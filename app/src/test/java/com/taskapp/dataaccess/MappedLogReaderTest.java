@@ -0,0 +1,131 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MappedLogReaderTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testForEachMatchesFindAll() throws IOException {
+        Path file = tempDir.resolve("logs.csv");
+        Files.copy(Path.of("src/test/resources/test_logs.csv"), file);
+
+        List<String> expected = new ArrayList<>();
+        new LogDataAccess(file.toString()).findAll().forEach(log -> expected.add(log.getTaskCode() + ","
+                + log.getChangeUserCode() + "," + log.getStatus() + "," + log.getChangeDate()));
+
+        List<String> actual = new ArrayList<>();
+        long count = new MappedLogReader(file.toString()).forEach((taskCode, changeUserCode, status, epochDay) ->
+                actual.add(taskCode + "," + changeUserCode + "," + status + "," + LocalDate.ofEpochDay(epochDay)));
+
+        assertThat(count).isEqualTo(expected.size());
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @Test
+    public void testSkipsMalformedLinesAndAcceptsCrLf() throws IOException {
+        Path file = tempDir.resolve("logs.csv");
+        Files.writeString(file, "Task_Code,Change_User_Code,Status,Change_Date\r\n"
+                + "1,2,0,2024-02-29\r\n"
+                + "\r\n"
+                + "x,2,0,2024-01-01\n"
+                + "3,2,1\n"
+                + "4,5,2,2023-12-31");
+
+        List<String> actual = new ArrayList<>();
+        new MappedLogReader(file.toString()).forEach((taskCode, changeUserCode, status, epochDay) ->
+                actual.add(taskCode + "," + changeUserCode + "," + status + "," + LocalDate.ofEpochDay(epochDay)));
+
+        assertThat(actual).containsExactly("1,2,0,2024-02-29", "4,5,2,2023-12-31");
+    }
+
+    @Test
+    public void testLinesAcrossChunkBoundaries() throws IOException {
+        Path file = tempDir.resolve("logs.csv");
+        StringBuilder content = new StringBuilder("Task_Code,Change_User_Code,Status,Change_Date\n");
+        for (int i = 1; i <= 500; i++) {
+            content.append(i).append(",1,").append(i % 3).append(",2024-01-10\n");
+        }
+        Files.writeString(file, content);
+
+        List<Integer> codes = new ArrayList<>();
+        new MappedLogReader(file.toString(), 64).forEach((taskCode, changeUserCode, status, epochDay) ->
+                codes.add(taskCode));
+
+        assertThat(codes).hasSize(500);
+        assertThat(codes.get(0)).isEqualTo(1);
+        assertThat(codes.get(499)).isEqualTo(500);
+    }
+
+    @Test
+    public void testRangesReadEachLineOnce() throws IOException {
+        Path file = tempDir.resolve("logs.csv");
+        StringBuilder content = new StringBuilder("Task_Code,Change_User_Code,Status,Change_Date\n");
+        for (int i = 1; i <= 100; i++) {
+            content.append(i).append(",1,0,2024-01-10\n");
+        }
+        Files.writeString(file, content);
+        long size = Files.size(file);
+
+        MappedLogReader reader = new MappedLogReader(file.toString());
+        List<Integer> codes = new ArrayList<>();
+        for (long start = 0; start < size; start += 37) {
+            try (MappedLogReader.Cursor cursor = reader.open(start, Math.min(start + 37, size))) {
+                while (cursor.next()) codes.add(cursor.taskCode());
+            }
+        }
+
+        assertThat(codes).hasSize(100).doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void testReduceReadsEachLineOnceInOrder() throws IOException {
+        Path file = tempDir.resolve("logs.csv");
+        StringBuilder content = new StringBuilder("Task_Code,Change_User_Code,Status,Change_Date\n");
+        int rows = 0;
+        // 範囲の最小サイズ(1MB)の数倍にして、複数の範囲に分けて読ませる
+        while (content.length() < 5 * 1024 * 1024) {
+            rows++;
+            content.append(rows).append(",1,").append(rows % 3).append(",2024-01-10\n");
+        }
+        Files.writeString(file, content);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<Integer> codes = new MappedLogReader(file.toString(), 64 * 1024).reduce(pool, ArrayList::new,
+                    (partial, taskCode, changeUserCode, status, epochDay) -> partial.add(taskCode),
+                    (left, right) -> {
+                        left.addAll(right);
+                        return left;
+                    });
+
+            assertThat(codes).hasSize(rows);
+            for (int i = 0; i < rows; i++) {
+                assertThat(codes.get(i)).isEqualTo(i + 1);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testToEpochDay() {
+        for (LocalDate date : List.of(LocalDate.of(1970, 1, 1), LocalDate.of(2000, 2, 29),
+                LocalDate.of(2024, 3, 1), LocalDate.of(1900, 12, 31))) {
+            assertThat(MappedLogReader.toEpochDay(date.getYear(), date.getMonthValue(), date.getDayOfMonth()))
+                    .isEqualTo(date.toEpochDay());
+        }
+    }
+}
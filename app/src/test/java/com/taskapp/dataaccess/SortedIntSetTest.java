@@ -0,0 +1,37 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class SortedIntSetTest {
+    @Test
+    public void testKeepsValuesSortedAndUnique() {
+        SortedIntSet set = new SortedIntSet();
+        for (int value : new int[] {5, 1, 9, 5, 3, 100, -2}) {
+            set.add(value);
+        }
+        assertThat(set.size()).isEqualTo(6);
+        assertThat(set.after(Integer.MIN_VALUE, 10)).containsExactly(-2, 1, 3, 5, 9, 100);
+
+        assertThat(set.remove(5)).isTrue();
+        assertThat(set.remove(5)).isFalse();
+        assertThat(set.contains(5)).isFalse();
+    }
+
+    @Test
+    public void testAfterAndBefore() {
+        SortedIntSet set = new SortedIntSet();
+        for (int value = 0; value < 100; value += 10) {
+            set.add(value);
+        }
+
+        assertThat(set.after(20, 3)).containsExactly(30, 40, 50);
+        assertThat(set.after(25, 3)).containsExactly(30, 40, 50);
+        assertThat(set.after(80, 3)).containsExactly(90);
+        assertThat(set.before(50, 3)).containsExactly(20, 30, 40);
+        assertThat(set.before(15, 3)).containsExactly(0, 10);
+        assertThat(set.before(0, 3)).isEmpty();
+        assertThat(set.after(0, Integer.MAX_VALUE)).hasSize(9);
+    }
+}
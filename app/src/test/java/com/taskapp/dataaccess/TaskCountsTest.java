@@ -0,0 +1,94 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+public class TaskCountsTest {
+    @Test
+    public void testCountsByRepUserAndStatus() {
+        TaskCounts counts = new TaskCounts();
+        counts.add(1, 0);
+        counts.add(1, 0);
+        counts.add(1, 2);
+        counts.add(2, 0);
+        counts.remove(1, 0);
+
+        assertThat(counts.count(1, 0)).isEqualTo(1);
+        assertThat(counts.count(1, 2)).isEqualTo(1);
+        assertThat(counts.count(2, 1)).isZero();
+        assertThat(counts.count(1, null)).isEqualTo(2);
+        assertThat(counts.count(null, 0)).isEqualTo(2);
+        assertThat(counts.count(null, null)).isEqualTo(3);
+        assertThat(counts.count(9, null)).isZero();
+
+        counts.clear();
+        assertThat(counts.count(null, null)).isZero();
+    }
+
+    @Test
+    public void testManyUsers() {
+        TaskCounts counts = new TaskCounts();
+        for (int user = 1; user <= 1000; user++) {
+            for (int status = 0; status <= 2; status++) {
+                for (int i = 0; i < user % 5; i++) {
+                    counts.add(user, status);
+                }
+            }
+        }
+
+        for (int user = 1; user <= 1000; user++) {
+            assertThat(counts.count(user, 1)).isEqualTo(user % 5);
+            assertThat(counts.count(user, null)).isEqualTo(user % 5 * 3);
+        }
+        assertThat(counts.count(null, 2)).isEqualTo(2000);
+    }
+
+    @Test
+    public void testDiff() {
+        TaskCounts counts = new TaskCounts();
+        counts.add(1, 0);
+        counts.add(2, 1);
+        TaskCounts recounted = new TaskCounts();
+        recounted.add(1, 0);
+        recounted.add(2, 2);
+
+        assertThat(counts.diff(recounted)).containsExactly(
+                "担当ユーザー(全て)・ステータス1：集計=1、再集計=0",
+                "担当ユーザー(全て)・ステータス2：集計=0、再集計=1",
+                "担当ユーザー2・ステータス1：集計=1、再集計=0",
+                "担当ユーザー2・ステータス2：集計=0、再集計=1");
+
+        counts.remove(2, 1);
+        counts.add(2, 2);
+        assertThat(counts.diff(recounted)).isEmpty();
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        TaskCounts counts = new TaskCounts();
+        for (int user = 1; user <= 50; user++) {
+            counts.add(user, user % 3);
+        }
+        counts.remove(7, 1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            counts.writeTo(out);
+        }
+
+        TaskCounts loaded = new TaskCounts();
+        loaded.add(99, 0);
+        ByteBuffer in = ByteBuffer.wrap(bytes.toByteArray());
+        loaded.readFrom(in);
+
+        assertThat(in.hasRemaining()).isFalse();
+        assertThat(loaded.diff(counts)).isEmpty();
+        assertThat(loaded.count(99, null)).isZero();
+        assertThat(loaded.count(null, null)).isEqualTo(49);
+    }
+}
@@ -5,18 +5,39 @@ import static org.assertj.core.api.Assertions.*;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import com.taskapp.exception.VersionConflictException;
+import com.taskapp.metrics.MetricGroup;
+import com.taskapp.metrics.Metrics;
+import com.taskapp.model.Log;
 import com.taskapp.model.Task;
 import com.taskapp.model.User;
 
@@ -49,6 +70,32 @@ public class TaskDataAccessTest {
         Path backupFile = Paths.get(BACKUP_FILE_PATH);
         Files.copy(backupFile, originalFile, StandardCopyOption.REPLACE_EXISTING);
         Files.delete(backupFile);
+        Files.deleteIfExists(Paths.get(TEST_FILE_PATH + ".journal"));
+    }
+
+    @Test
+    public void testFindAllReadsUsersOnce() {
+        int[] userFileOpens = new int[1];
+        UserDataAccess countingUserDataAccess = new UserDataAccess(TEST_FILE_PATH_USER) {
+            @Override
+            public User findByCode(int code) {
+                userFileOpens[0]++;
+                return super.findByCode(code);
+            }
+
+            @Override
+            public Map<Integer, User> findAllAsMap() {
+                userFileOpens[0]++;
+                return super.findAllAsMap();
+            }
+        };
+        taskDataAccess = new TaskDataAccess(TEST_FILE_PATH, countingUserDataAccess);
+
+        List<Task> tasks = taskDataAccess.findAll();
+
+        assertThat(tasks).hasSize(4);
+        assertThat(tasks).allMatch(task -> task.getRepUser() != null);
+        assertThat(userFileOpens[0]).isEqualTo(1);
     }
 
     @Tag("Q3")
@@ -64,6 +111,46 @@ public class TaskDataAccessTest {
         assertThat(tasks).contains(newTask);
     }
 
+    @Test
+    public void testSaveAllSkipsDuplicateCodes() {
+        User repUser = new User(1, "鈴木一郎", "test1@example.com", "password1");
+        List<Task> newTasks = List.of(
+                new Task(5, "Task 5", 0, repUser),
+                new Task(2, "Task 2", 0, repUser),
+                new Task(6, "Task 6", 0, repUser),
+                new Task(5, "Task 5b", 0, repUser));
+
+        boolean[] saved = taskDataAccess.saveAll(newTasks);
+
+        assertThat(saved).containsExactly(true, false, true, false);
+        List<Task> tasks = readTasksFromFile(TEST_FILE_PATH);
+        assertThat(tasks).hasSize(6);
+        assertThat(tasks).extracting(Task::getName).contains("Task 5", "Task 6").doesNotContain("Task 5b");
+        assertThat(taskDataAccess.findByCode(6).getName()).isEqualTo("Task 6");
+        assertThat(new TaskDataAccess(TEST_FILE_PATH, userDataAccess).findByCode(5).getName()).isEqualTo("Task 5");
+    }
+
+    @Test
+    public void testFindAllAsTableIsASnapshot() {
+        TaskTable table = taskDataAccess.findAllAsTable();
+        List<Task> tasks = taskDataAccess.findAll();
+
+        assertThat(table.size()).isEqualTo(tasks.size());
+        for (int row = 0; row < table.size(); row++) {
+            assertThat(table.task(row)).isEqualToComparingFieldByField(tasks.get(row));
+            assertThat(table.repUser(row)).isSameAs(userDataAccess.findByCode(table.repUserCode(row)));
+        }
+
+        taskDataAccess.save(new Task(5, "Task 5", 0, userDataAccess.findByCode(1)));
+        taskDataAccess.delete(1);
+
+        assertThat(table.size()).isEqualTo(tasks.size());
+        assertThat(table.rowOf(1)).isZero();
+        assertThat(table.rowOf(5)).isEqualTo(-1);
+        assertThat(taskDataAccess.findAllAsTable().rowOf(5)).isGreaterThanOrEqualTo(0);
+        assertThat(taskDataAccess.findAllAsTable().rowOf(1)).isEqualTo(-1);
+    }
+
     @Tag("Q2")
     @Test
     public void testFindAll() {
@@ -72,6 +159,83 @@ public class TaskDataAccessTest {
         assertThat(actualList).isEqualTo(expectedList);
     }
 
+    @Test
+    public void testStreamAllReadsSnapshotOfFile() {
+        List<Task> expectedList = readTasksFromFile(TEST_FILE_PATH);
+        try (Stream<Task> tasks = taskDataAccess.streamAll()) {
+            Iterator<Task> iterator = tasks.iterator();
+            assertThat(iterator.next()).isEqualTo(expectedList.get(0));
+
+            // 読み込み中に書き換えられても、開いた時点のファイルを読み続ける
+            taskDataAccess.delete(expectedList.get(1).getCode());
+
+            List<Task> rest = new ArrayList<>();
+            iterator.forEachRemaining(rest::add);
+            assertThat(rest).isEqualTo(expectedList.subList(1, expectedList.size()));
+        }
+    }
+
+    @Test
+    public void testFindByStatusAndRepUserFollowsChanges() {
+        User user1 = new User(1, "鈴木一郎", "test1@example.com", "password1");
+        User user2 = new User(2, "鈴木二郎", "test2@example.com", "password2");
+
+        assertThat(taskDataAccess.findByStatusAndRepUser(0, null)).extracting(Task::getCode).containsExactly(1, 2);
+        assertThat(taskDataAccess.findByStatusAndRepUser(null, 2)).extracting(Task::getCode).containsExactly(2, 3, 4);
+        assertThat(taskDataAccess.findByStatusAndRepUser(0, 2)).extracting(Task::getCode).containsExactly(2);
+        assertThat(taskDataAccess.findByStatusAndRepUser(1, 1)).isEmpty();
+
+        taskDataAccess.save(new Task(5, "taskE", 0, user2));
+        taskDataAccess.update(new Task(2, "taskB", 1, user1));
+        taskDataAccess.delete(3);
+
+        assertThat(taskDataAccess.findByStatusAndRepUser(0, 2)).extracting(Task::getCode).containsExactly(5);
+        assertThat(taskDataAccess.findByStatusAndRepUser(1, 1)).extracting(Task::getCode).containsExactly(2);
+        assertThat(taskDataAccess.findByStatusAndRepUser(2, null)).isEmpty();
+        assertThat(taskDataAccess.findByStatusAndRepUser(null, null)).hasSize(4);
+    }
+
+    @Test
+    public void testCountByStatusAndRepUserFollowsChanges() {
+        User user1 = new User(1, "鈴木一郎", "test1@example.com", "password1");
+        User user2 = new User(2, "鈴木二郎", "test2@example.com", "password2");
+
+        assertThat(taskDataAccess.countByStatusAndRepUser(0, null)).isEqualTo(2);
+        assertThat(taskDataAccess.countByStatusAndRepUser(null, 2)).isEqualTo(3);
+        assertThat(taskDataAccess.countByStatusAndRepUser(0, 2)).isEqualTo(1);
+        assertThat(taskDataAccess.countByStatusAndRepUser(1, 1)).isZero();
+        assertThat(taskDataAccess.countByStatusAndRepUser(null, null)).isEqualTo(4);
+
+        taskDataAccess.save(new Task(5, "taskE", 0, user2));
+        taskDataAccess.update(new Task(2, "taskB", 1, user1));
+        taskDataAccess.delete(3);
+
+        assertThat(taskDataAccess.countByStatusAndRepUser(0, 2)).isEqualTo(1);
+        assertThat(taskDataAccess.countByStatusAndRepUser(1, 1)).isEqualTo(1);
+        assertThat(taskDataAccess.countByStatusAndRepUser(2, null)).isZero();
+        assertThat(taskDataAccess.countByStatusAndRepUser(null, null)).isEqualTo(4);
+        assertThat(taskDataAccess.verifyCounts()).isEmpty();
+
+        // 別のインスタンスによる変更も、読み直した際に数え直す
+        new TaskDataAccess(TEST_FILE_PATH, userDataAccess).save(new Task(6, "taskF", 0, user1));
+        assertThat(taskDataAccess.countByStatusAndRepUser(0, 1)).isEqualTo(2);
+        assertThat(taskDataAccess.verifyCounts()).isEmpty();
+    }
+
+    @Test
+    public void testFindPageAfterAndBefore() {
+        User repUser = new User(1, "鈴木一郎", "test1@example.com", "password1");
+        taskDataAccess.save(new Task(10, "taskJ", 0, repUser));
+        taskDataAccess.save(new Task(7, "taskG", 0, repUser));
+        taskDataAccess.delete(3);
+
+        assertThat(taskDataAccess.findPageAfter(Integer.MIN_VALUE, 3)).extracting(Task::getCode).containsExactly(1, 2, 4);
+        assertThat(taskDataAccess.findPageAfter(4, 3)).extracting(Task::getCode).containsExactly(7, 10);
+        assertThat(taskDataAccess.findPageAfter(10, 3)).isEmpty();
+        assertThat(taskDataAccess.findPageBefore(7, 2)).extracting(Task::getCode).containsExactly(2, 4);
+        assertThat(taskDataAccess.findPageBefore(1, 2)).isEmpty();
+    }
+
     @Tag("Q4")
     @Test
     public void testFindByCode() {
@@ -89,6 +253,20 @@ public class TaskDataAccessTest {
         assertThat(foundTask).isEqualTo(task2);
     }
 
+    @Test
+    public void testFindByCodeReloadsAfterFileChange() throws IOException {
+        assertThat(taskDataAccess.findByCode(9)).isNull();
+
+        Files.writeString(Paths.get(TEST_FILE_PATH), System.lineSeparator() + "9,taskZ,0,1",
+                StandardOpenOption.APPEND);
+
+        Task foundTask = taskDataAccess.findByCode(9);
+
+        assertThat(foundTask).isNotNull();
+        assertThat(foundTask.getName()).isEqualTo("taskZ");
+        assertThat(foundTask.getRepUser().getCode()).isEqualTo(1);
+    }
+
     @Tag("Q4")
     @Test
     public void testUpdate() {
@@ -129,6 +307,394 @@ public class TaskDataAccessTest {
         assertThat(tasks).doesNotContain(task2);
     }
 
+    @Test
+    public void testUpdateRejectsStaleVersion() {
+        TaskDataAccess other = new TaskDataAccess(TEST_FILE_PATH, userDataAccess);
+        Task mine = taskDataAccess.findByCode(1);
+        Task theirs = other.findByCode(1);
+
+        mine.setStatus(1);
+        taskDataAccess.update(mine);
+
+        theirs.setStatus(1);
+        assertThatThrownBy(() -> other.update(theirs)).isInstanceOf(VersionConflictException.class);
+        assertThat(readTasksFromFile(TEST_FILE_PATH).get(0).getStatus()).isEqualTo(1);
+
+        Task reloaded = other.findByCode(1);
+        assertThat(reloaded.getVersion()).isEqualTo(1);
+        reloaded.setStatus(2);
+        other.update(reloaded);
+        assertThat(new TaskDataAccess(TEST_FILE_PATH, userDataAccess).findByCode(1))
+                .extracting(Task::getStatus, Task::getVersion)
+                .containsExactly(2, 2);
+    }
+
+    @Test
+    public void testOnlyOneConcurrentStatusChangeWins() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger conflicted = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            TaskDataAccess session = new TaskDataAccess(TEST_FILE_PATH, userDataAccess);
+            futures.add(executor.submit(() -> {
+                start.await();
+                // TaskLogic#changeStatusと同じく、読み込んだステータスから1つ進める
+                Task task = session.findByCode(1);
+                if (task.getStatus() != 0) {
+                    conflicted.incrementAndGet();
+                    return null;
+                }
+                task.setStatus(1);
+                try {
+                    session.update(task);
+                    succeeded.incrementAndGet();
+                } catch (VersionConflictException e) {
+                    conflicted.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertThat(succeeded).hasValue(1);
+        assertThat(conflicted).hasValue(threads - 1);
+        assertThat(taskDataAccess.findByCode(1).getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    public void testJournaledUpdateAndDeleteKeepCsvUntilCompaction() throws IOException {
+        TaskDataAccess journaled = new TaskDataAccess(TEST_FILE_PATH, userDataAccess, true);
+        User repUser = new User(1, "鈴木一郎", "test1@example.com", "password1");
+        List<Task> before = readTasksFromFile(TEST_FILE_PATH);
+
+        journaled.save(new Task(5, "Task 5", 0, repUser));
+        journaled.update(new Task(2, "Updated Task 2", 1, repUser));
+        journaled.delete(3);
+
+        assertThat(readTasksFromFile(TEST_FILE_PATH)).isEqualTo(before);
+
+        TaskDataAccess reopened = new TaskDataAccess(TEST_FILE_PATH, userDataAccess, true);
+        List<Task> replayed = reopened.findAll();
+        assertThat(replayed).extracting(Task::getCode).containsExactly(1, 2, 4, 5);
+        assertThat(reopened.findByCode(2).getName()).isEqualTo("Updated Task 2");
+        assertThat(reopened.findByCode(3)).isNull();
+
+        reopened.compact();
+
+        assertThat(Files.exists(Paths.get(TEST_FILE_PATH + ".journal"))).isFalse();
+        List<Task> compacted = readTasksFromFile(TEST_FILE_PATH);
+        assertThat(compacted).extracting(Task::getCode).containsExactly(1, 2, 4, 5);
+        assertThat(compacted.get(1).getName()).isEqualTo("Updated Task 2");
+    }
+
+    @Test
+    public void testConcurrentWritesFromManyInstances() throws Exception {
+        int threads = 8;
+        int tasksPerThread = 100;
+        User repUser = userDataAccess.findByCode(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int base = (t + 1) * 1000;
+            // スレッドごとに別のインスタンスで同じファイルを操作する
+            TaskDataAccess session = new TaskDataAccess(TEST_FILE_PATH, userDataAccess);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < tasksPerThread; i++) {
+                    session.save(new Task(base + i, "task" + (base + i), 0, repUser));
+                    assertThat(session.findByCode(base + i)).isNotNull();
+                }
+                for (int i = 0; i < tasksPerThread; i++) {
+                    session.update(new Task(base + i, "task" + (base + i), 1, repUser));
+                }
+                for (int i = 0; i < tasksPerThread; i += 2) {
+                    session.delete(base + i);
+                    assertThat(session.findByCode(base + i)).isNull();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        List<Integer> expected = new ArrayList<>(List.of(1, 2, 3, 4));
+        for (int t = 0; t < threads; t++) {
+            for (int i = 1; i < tasksPerThread; i += 2) {
+                expected.add((t + 1) * 1000 + i);
+            }
+        }
+        List<Task> tasks = readTasksFromFile(TEST_FILE_PATH);
+        assertThat(tasks).extracting(Task::getCode).containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(tasks).filteredOn(task -> task.getCode() >= 1000).allMatch(task -> task.getStatus() == 1);
+        assertThat(taskDataAccess.findAll()).isEqualTo(tasks);
+    }
+
+    @Test
+    public void testConcurrentWritesFromChildProcesses(@TempDir Path dir) throws Exception {
+        Path tasksFile = dir.resolve("tasks.csv");
+        Path logsFile = dir.resolve("logs.csv");
+        Files.copy(Paths.get(TEST_FILE_PATH), tasksFile);
+        Files.writeString(logsFile, "Task_Code,Change_User_Code,Status,Change_Date" + System.lineSeparator());
+        int processes = 4;
+        int tasksPerProcess = 50;
+
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> children = new ArrayList<>();
+        for (int p = 0; p < processes; p++) {
+            children.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    ChildProcessWriter.class.getName(), tasksFile.toString(), TEST_FILE_PATH_USER,
+                    logsFile.toString(), String.valueOf((p + 1) * 1000), String.valueOf(tasksPerProcess))
+                    .redirectErrorStream(true)
+                    .redirectOutput(dir.resolve("child" + p + ".log").toFile())
+                    .start());
+        }
+        for (int p = 0; p < processes; p++) {
+            Process child = children.get(p);
+            assertThat(child.waitFor(120, TimeUnit.SECONDS)).isTrue();
+            assertThat(child.exitValue())
+                    .as(Files.readString(dir.resolve("child" + p + ".log")))
+                    .isZero();
+        }
+
+        List<Integer> expected = new ArrayList<>(List.of(1, 2, 3, 4));
+        for (int p = 0; p < processes; p++) {
+            for (int i = 1; i < tasksPerProcess; i += 2) {
+                expected.add((p + 1) * 1000 + i);
+            }
+        }
+        List<Task> tasks = readTasksFromFile(tasksFile.toString());
+        assertThat(tasks).extracting(Task::getCode).containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(tasks).filteredOn(task -> task.getCode() >= 1000).allMatch(task -> task.getStatus() == 1);
+
+        List<Log> logs = new LogDataAccess(logsFile.toString()).findAll();
+        assertThat(logs).hasSize(processes * tasksPerProcess);
+        assertThat(logs).allMatch(log -> log.getTaskCode() % 2 == 1);
+    }
+
+    @Test
+    public void testTasksFollowUserChanges(@TempDir Path dir) throws IOException {
+        Path usersFile = dir.resolve("users.csv");
+        Files.copy(Paths.get(TEST_FILE_PATH_USER), usersFile);
+        taskDataAccess = new TaskDataAccess(TEST_FILE_PATH, new UserDataAccess(usersFile.toString()));
+        assertThat(taskDataAccess.findByCode(1).getRepUser().getName()).isEqualTo("鈴木一郎");
+
+        List<String> lines = Files.readAllLines(usersFile);
+        lines.replaceAll(line -> line.replace("1,鈴木一郎,", "1,佐藤一郎,"));
+        Files.write(usersFile, lines);
+
+        assertThat(taskDataAccess.findByCode(1).getRepUser().getName()).isEqualTo("佐藤一郎");
+        assertThat(taskDataAccess.findAll()).filteredOn(task -> task.getRepUser().getCode() == 1)
+                .allMatch(task -> task.getRepUser().getName().equals("佐藤一郎"));
+    }
+
+    @Test
+    public void testSharedUsersReduceRetainedHeap(@TempDir Path dir) throws IOException {
+        int rows = 100_000;
+        int users = 20;
+        Path usersFile = dir.resolve("users.csv");
+        Path tasksFile = dir.resolve("tasks.csv");
+        writeManyTasks(usersFile, users, tasksFile, rows);
+        TaskDataAccess tasks = new TaskDataAccess(tasksFile.toString(), new UserDataAccess(usersFile.toString()));
+        tasks.findAll();
+
+        // 共有する場合: 担当ユーザーはユーザーごとに1つのインスタンス
+        long before = usedHeap();
+        List<Task> shared = tasks.findAll();
+        long sharedBytes = usedHeap() - before;
+
+        // 共有しない場合: 行ごとにユーザーを読み込んだ場合と同じく、タスクごとに別のUserと文字列
+        before = usedHeap();
+        List<Task> copied = new ArrayList<>(rows);
+        for (Task task : shared) {
+            User user = task.getRepUser();
+            copied.add(new Task(task.getCode(), task.getName(), task.getStatus(), new User(user.getCode(),
+                    new String(user.getName().toCharArray()), new String(user.getEmail().toCharArray()),
+                    new String(user.getPassword().toCharArray()))));
+        }
+        long copiedBytes = usedHeap() - before;
+
+        Set<User> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        shared.forEach(task -> distinct.add(task.getRepUser()));
+        assertThat(distinct).hasSize(users);
+        assertThat(copied).hasSize(rows);
+        assertThat(sharedBytes * 2).as("shared=%d bytes, per-task users=%d bytes", sharedBytes, copiedBytes)
+                .isLessThan(copiedBytes);
+    }
+
+    @Test
+    public void testColdStartLoadsIndexSnapshot(@TempDir Path dir) throws IOException {
+        Path usersFile = dir.resolve("users.csv");
+        Path tasksFile = dir.resolve("tasks.csv");
+        writeManyTasks(usersFile, 20, tasksFile, 100_000);
+        UserDataAccess users = new UserDataAccess(usersFile.toString());
+        List<Task> parsed = new TaskDataAccess(tasksFile.toString(), users).findAll();
+        assertThat(IndexSnapshot.path(tasksFile.toString())).exists();
+
+        MetricGroup metrics = Metrics.group("TaskDataAccess");
+        MetricGroup snapshotMetrics = Metrics.group("IndexSnapshot");
+        long before = metrics.getBytesRead();
+        long snapshotBefore = snapshotMetrics.getBytesRead();
+        TaskDataAccess restarted = new TaskDataAccess(tasksFile.toString(), users);
+
+        assertThat(restarted.findAll()).usingFieldByFieldElementComparator().containsExactlyElementsOf(parsed);
+        // csvは解析せず、スナップショット全体とcsvの先頭・末尾の一部だけを読み込む
+        assertThat(metrics.getBytesRead() - before).isZero();
+        assertThat(snapshotMetrics.getBytesRead() - snapshotBefore).isEqualTo(
+                Files.size(IndexSnapshot.path(tasksFile.toString())) + 2L * IndexSnapshot.CHECKSUM_SAMPLE_SIZE);
+        assertThat(restarted.findByStatusAndRepUser(0, 3)).hasSize(5000);
+        assertThat(restarted.findPageAfter(99_998, 10)).extracting(Task::getCode).containsExactly(99_999, 100_000);
+        assertThat(restarted.countByStatusAndRepUser(0, 3)).isEqualTo(5000);
+        assertThat(restarted.verifyCounts()).isEmpty();
+    }
+
+    @Test
+    public void testIndexSnapshotFollowsAppendsAndRewrites(@TempDir Path dir) throws IOException {
+        Path usersFile = dir.resolve("users.csv");
+        Path tasksFile = dir.resolve("tasks.csv");
+        writeManyTasks(usersFile, 20, tasksFile, 100_000);
+        UserDataAccess users = new UserDataAccess(usersFile.toString());
+        User repUser = users.findByCode(1);
+        TaskDataAccess first = new TaskDataAccess(tasksFile.toString(), users);
+        first.findAll();
+
+        first.save(new Task(100_001, "appended", 1, repUser));
+        TaskDataAccess restarted = new TaskDataAccess(tasksFile.toString(), users);
+        assertThat(restarted.findByCode(100_001).getName()).isEqualTo("appended");
+        assertThat(restarted.findAll()).hasSize(100_001);
+        assertThat(restarted.findByStatusAndRepUser(1, null)).extracting(Task::getCode).containsExactly(100_001);
+
+        restarted.update(new Task(1, "updated", 2, repUser));
+        restarted.delete(2);
+        TaskDataAccess rewritten = new TaskDataAccess(tasksFile.toString(), users);
+        assertThat(rewritten.findByCode(1).getName()).isEqualTo("updated");
+        assertThat(rewritten.findByCode(2)).isNull();
+        assertThat(rewritten.findAll()).hasSize(100_000);
+        assertThat(rewritten.findByStatusAndRepUser(2, null)).extracting(Task::getCode).containsExactly(1);
+        assertThat(rewritten.countByStatusAndRepUser(2, 1)).isEqualTo(1);
+        assertThat(rewritten.countByStatusAndRepUser(null, null)).isEqualTo(100_000);
+        assertThat(rewritten.verifyCounts()).isEmpty();
+    }
+
+    @Test
+    public void testJournaledIndexSnapshotCoversOnlyCsv(@TempDir Path dir) throws IOException {
+        Path usersFile = dir.resolve("users.csv");
+        Path tasksFile = dir.resolve("tasks.csv");
+        writeManyTasks(usersFile, 20, tasksFile, 100_000);
+        UserDataAccess users = new UserDataAccess(usersFile.toString());
+        TaskDataAccess first = new TaskDataAccess(tasksFile.toString(), users, true);
+        first.update(new Task(1, "journaled", 2, users.findByCode(1)));
+        first.delete(2);
+
+        TaskDataAccess restarted = new TaskDataAccess(tasksFile.toString(), users, true);
+        assertThat(restarted.findByCode(1).getName()).isEqualTo("journaled");
+        assertThat(restarted.findByCode(2)).isNull();
+        assertThat(restarted.countByStatusAndRepUser(2, null)).isEqualTo(1);
+        assertThat(restarted.countByStatusAndRepUser(null, null)).isEqualTo(99_999);
+        assertThat(restarted.verifyCounts()).isEmpty();
+
+        // スナップショットはジャーナルを適用する前のcsvの内容
+        TaskDataAccess csvOnly = new TaskDataAccess(tasksFile.toString(), users);
+        assertThat(csvOnly.findByCode(1).getName()).isEqualTo("task1");
+        assertThat(csvOnly.findByCode(2)).isNotNull();
+    }
+
+    @Test
+    public void testLegacyCsvIsRewrittenWithVersionColumn(@TempDir Path dir) throws IOException {
+        Path tasksFile = dir.resolve("tasks.csv");
+        Files.writeString(tasksFile, "Code,Name,Status,Rep_User_Code\n1,taskA,0,1\n2,taskB,0,2\n");
+        TaskDataAccess tasks = new TaskDataAccess(tasksFile.toString(), userDataAccess);
+
+        tasks.save(new Task(3, "taskC", 0, userDataAccess.findByCode(1)));
+        Task updated = tasks.findByCode(1);
+        updated.setStatus(1);
+        tasks.update(updated);
+
+        assertThat(Files.readAllLines(tasksFile)).containsExactly(
+                "Code,Name,Status,Rep_User_Code,Version",
+                "1,taskA,1,1,1",
+                "2,taskB,0,2,0",
+                "3,taskC,0,1,0");
+        tasks.save(new Task(4, "taskD", 0, userDataAccess.findByCode(2)));
+        assertThat(Files.readAllLines(tasksFile)).last().isEqualTo("4,taskD,0,2,0");
+        assertThat(new TaskDataAccess(tasksFile.toString(), userDataAccess).findByCode(1).getVersion()).isEqualTo(1);
+    }
+
+    /**
+     * ユーザーとタスクのcsvを作成します。タスクの担当ユーザーはユーザーコードの順に割り当てます。
+     * @param usersFile ユーザーのcsv
+     * @param users ユーザーの件数
+     * @param tasksFile タスクのcsv
+     * @param rows タスクの件数
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private static void writeManyTasks(Path usersFile, int users, Path tasksFile, int rows) throws IOException {
+        StringBuilder csv = new StringBuilder("Code,Name,Email,Password").append(System.lineSeparator());
+        for (int i = 1; i <= users; i++) {
+            csv.append(i).append(",user").append(i).append(",user").append(i).append("@example.com,password")
+                    .append(i).append(System.lineSeparator());
+        }
+        Files.writeString(usersFile, csv);
+        csv = new StringBuilder("Code,Name,Status,Rep_User_Code").append(System.lineSeparator());
+        for (int i = 1; i <= rows; i++) {
+            csv.append(i).append(",task").append(i).append(",0,").append(i % users + 1).append(System.lineSeparator());
+        }
+        Files.writeString(tasksFile, csv);
+    }
+
+    /**
+     * GCを実行した後の使用中のヒープのサイズを取得します。
+     * @return 使用中のヒープのバイト数
+     */
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            memory.gc();
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+
+    /**
+     * 複数プロセスからの同時書き込みを確認するために、子プロセスで実行する処理です。
+     * 引数は、タスクのcsvのパス、ユーザーのcsvのパス、ログのcsvのパス、タスクコードの開始値、件数の順です。
+     */
+    public static class ChildProcessWriter {
+        public static void main(String[] args) {
+            UserDataAccess users = new UserDataAccess(args[1]);
+            TaskDataAccess tasks = new TaskDataAccess(args[0], users);
+            LogDataAccess logs = new LogDataAccess(args[2]);
+            int base = Integer.parseInt(args[3]);
+            int count = Integer.parseInt(args[4]);
+            User repUser = users.findByCode(1);
+            LocalDate today = LocalDate.of(2024, 1, 1);
+
+            for (int i = 0; i < count; i++) {
+                tasks.save(new Task(base + i, "task" + (base + i), 0, repUser));
+                logs.save(new Log(base + i, 1, 0, today));
+            }
+            for (int i = 0; i < count; i++) {
+                tasks.update(new Task(base + i, "task" + (base + i), 1, repUser));
+                logs.save(new Log(base + i, 1, 1, today));
+            }
+            for (int i = 0; i < count; i += 2) {
+                tasks.delete(base + i);
+                logs.deleteByTaskCode(base + i);
+            }
+        }
+    }
+
     private List<Task> readTasksFromFile(String filePath) {
         List<Task> tasks = new ArrayList<>();
         try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
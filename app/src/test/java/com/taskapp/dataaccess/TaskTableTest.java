@@ -0,0 +1,188 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import org.junit.jupiter.api.Test;
+
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+public class TaskTableTest {
+    private static final User USER1 = new User(1, "鈴木一郎", "test1@example.com", "password1");
+    private static final User USER2 = new User(2, "鈴木二郎", "test2@example.com", "password2");
+
+    @Test
+    public void testAddAndMaterialize() {
+        TaskTable table = new TaskTable(Map.of(1, USER1, 2, USER2));
+
+        assertThat(table.add(1, "Task 1", 0, 1, 0)).isTrue();
+        assertThat(table.add(2, "Task 2", 2, 2, 3)).isTrue();
+        assertThat(table.add(1, "Task 1b", 1, 2, 0)).isFalse();
+
+        assertThat(table.size()).isEqualTo(3);
+        assertThat(table.rowOf(1)).isZero();
+        assertThat(table.rowOf(2)).isEqualTo(1);
+        assertThat(table.rowOf(9)).isEqualTo(-1);
+        Task task = table.task(1);
+        assertThat(task.getCode()).isEqualTo(2);
+        assertThat(task.getName()).isEqualTo("Task 2");
+        assertThat(task.getStatus()).isEqualTo(2);
+        assertThat(task.getRepUser()).isSameAs(USER2);
+        assertThat(task.getVersion()).isEqualTo(3);
+        assertThat(table.stream()).extracting(Task::getName).containsExactly("Task 1", "Task 2", "Task 1b");
+    }
+
+    @Test
+    public void testRepeatedNamesShareOneString() {
+        TaskTable table = new TaskTable(Map.of(1, USER1));
+        table.add(1, new String("資料作成"), 0, 1, 0);
+        table.add(2, new String("資料作成"), 0, 1, 0);
+
+        assertThat(table.name(1)).isSameAs(table.name(0));
+        assertThat(table.task(1).getName()).isSameAs(table.name(0));
+    }
+
+    @Test
+    public void testUpdateAndRemove() {
+        TaskTable table = new TaskTable(Map.of(1, USER1, 2, USER2));
+        table.add(1, "Task 1", 0, 1, 0);
+        table.add(2, "Task 2", 0, 1, 0);
+        table.add(1, "Task 1b", 0, 1, 0);
+        table.add(3, "Task 3", 0, 2, 0);
+
+        table.update(1, "Task 1c", 1, 2, 1);
+        assertThat(table.name(0)).isEqualTo("Task 1c");
+        assertThat(table.name(2)).isEqualTo("Task 1c");
+        assertThat(table.status(2)).isEqualTo(1);
+        assertThat(table.repUserCode(0)).isEqualTo(2);
+
+        assertThat(table.remove(1)).isTrue();
+        assertThat(table.remove(1)).isFalse();
+        assertThat(table.size()).isEqualTo(2);
+        assertThat(table.rowOf(1)).isEqualTo(-1);
+        assertThat(table.rowOf(3)).isEqualTo(1);
+        assertThat(table.name(1)).isEqualTo("Task 3");
+    }
+
+    @Test
+    public void testSnapshotIsNotAffectedByLaterChanges() {
+        TaskTable table = new TaskTable(Map.of(1, USER1));
+        for (int code = 1; code <= 10; code++) {
+            table.add(code, "Task " + code, 0, 1, 0);
+        }
+        TaskTable snapshot = table.snapshot();
+
+        for (int code = 11; code <= 100; code++) {
+            table.add(code, "Task " + code, 0, 1, 0);
+        }
+        table.update(1, "Updated", 2, 1, 1);
+        table.remove(2);
+
+        assertThat(snapshot.size()).isEqualTo(10);
+        assertThat(snapshot.name(0)).isEqualTo("Task 1");
+        assertThat(snapshot.status(0)).isZero();
+        assertThat(snapshot.rowOf(2)).isEqualTo(1);
+        assertThat(snapshot.rowOf(11)).isEqualTo(-1);
+        assertThat(table.name(0)).isEqualTo("Updated");
+        assertThat(table.rowOf(11)).isEqualTo(9);
+        assertThatThrownBy(() -> snapshot.add(200, "Task 200", 0, 1, 0))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    public void testWriteAndReadColumns() throws IOException {
+        TaskTable table = new TaskTable(Map.of(1, USER1, 2, USER2));
+        for (int code = 1; code <= 100; code++) {
+            table.add(code, "資料作成" + code % 7, code % 3, code % 2 + 1, code % 5);
+        }
+        table.add(1, "重複", 0, 1, 0);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            table.writeTo(out);
+        }
+
+        TaskTable loaded = new TaskTable(Map.of(1, USER1, 2, USER2));
+        ByteBuffer in = ByteBuffer.wrap(bytes.toByteArray());
+        loaded.readFrom(in);
+
+        assertThat(in.hasRemaining()).isFalse();
+        assertThat(loaded.size()).isEqualTo(101);
+        assertThat(loaded.stream()).usingFieldByFieldElementComparator()
+                .containsExactlyElementsOf(table.stream().toList());
+        assertThat(loaded.rowOf(1)).isZero();
+        assertThat(loaded.rowOf(100)).isEqualTo(99);
+        assertThat(loaded.name(7)).isSameAs(loaded.name(0));
+        assertThat(loaded.task(2).getRepUser()).isSameAs(USER2);
+
+        loaded.add(101, "資料作成1", 0, 1, 0);
+        assertThat(loaded.name(101)).isSameAs(loaded.name(0));
+        assertThat(loaded.rowOf(101)).isEqualTo(101);
+    }
+
+    @Test
+    public void testUsesLessHeapThanTaskObjects() {
+        long[] distinct = measureHeap(code -> "task" + code);
+        assertThat(distinct[0]).as("table=%d bytes, objects=%d bytes", distinct[0], distinct[1])
+                .isLessThan(distinct[1]);
+
+        long[] repeated = measureHeap(code -> "定例会議の資料作成" + code % 100);
+        assertThat(repeated[0] * 3).as("table=%d bytes, objects=%d bytes", repeated[0], repeated[1])
+                .isLessThan(repeated[1]);
+    }
+
+    /**
+     * 同じタスクを、列ごとの配列で保持する場合と、行ごとのTaskをListと主キー索引で保持する場合(以前のキャッシュ)の
+     * 使用するヒープのサイズを求めます。
+     * @param names タスクコードからタスク名を作成する処理
+     * @return 列ごとの配列で保持する場合と、行ごとのTaskで保持する場合のバイト数
+     */
+    private static long[] measureHeap(IntFunction<String> names) {
+        int rows = 200_000;
+        TaskTable table = new TaskTable(Map.of(1, USER1));
+        List<Task> tasks = new ArrayList<>();
+        IntHashMap<Task> index = new IntHashMap<>();
+
+        long before = usedHeap();
+        for (int code = 1; code <= rows; code++) {
+            table.add(code, names.apply(code), code % 3, 1, 0);
+        }
+        long tableBytes = usedHeap() - before;
+
+        before = usedHeap();
+        for (int code = 1; code <= rows; code++) {
+            Task task = new Task(code, names.apply(code), code % 3, USER1);
+            tasks.add(task);
+            index.put(code, task);
+        }
+        long objectBytes = usedHeap() - before;
+
+        assertThat(table.size()).isEqualTo(tasks.size());
+        assertThat(index.size()).isEqualTo(rows);
+        return new long[] { tableBytes, objectBytes };
+    }
+
+    /**
+     * GCを実行した後の使用中のヒープのサイズを取得します。
+     * @return 使用中のヒープのバイト数
+     */
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            memory.gc();
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+}
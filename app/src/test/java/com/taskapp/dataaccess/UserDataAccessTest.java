@@ -2,9 +2,17 @@ package com.taskapp.dataaccess;
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import com.taskapp.model.User;
 
@@ -12,6 +20,9 @@ public class UserDataAccessTest {
     private static final String TEST_FILE_PATH = "src/test/resources/test_users.csv";
     private UserDataAccess userDataAccess;
 
+    @TempDir
+    Path tempDir;
+
     @BeforeEach
     public void setUp() {
         userDataAccess = new UserDataAccess(TEST_FILE_PATH);
@@ -35,4 +46,73 @@ public class UserDataAccessTest {
 
         assertThat(actualUser).isEqualToComparingFieldByField(expectedUser);
     }
+
+    @Test
+    public void testFindByEmailAndPasswordRejectsWrongPassword() {
+        assertThat(userDataAccess.findByEmailAndPassword("test1@example.com", "password2")).isNull();
+        assertThat(userDataAccess.findByEmailAndPassword("unknown@example.com", "password1")).isNull();
+    }
+
+    @Test
+    public void testFindByEmailAndPasswordReloadsAfterFileChange() throws IOException {
+        Path file = tempDir.resolve("users.csv");
+        Files.copy(Paths.get(TEST_FILE_PATH), file);
+        UserDataAccess tempUserDataAccess = new UserDataAccess(file.toString());
+        assertThat(tempUserDataAccess.findByEmailAndPassword("test3@example.com", "password3")).isNull();
+
+        Files.writeString(file, System.lineSeparator() + "3,鈴木三郎,test3@example.com,password3",
+                StandardOpenOption.APPEND);
+
+        User actualUser = tempUserDataAccess.findByEmailAndPassword("test3@example.com", "password3");
+        assertThat(actualUser).isEqualToComparingFieldByField(new User(3, "鈴木三郎", "test3@example.com", "password3"));
+    }
+
+    @Test
+    public void testInstancesShareOneUserPerCode() {
+        UserDataAccess other = new UserDataAccess(Paths.get(TEST_FILE_PATH).toAbsolutePath().toString());
+
+        User user = userDataAccess.findByCode(1);
+        Map<Integer, User> users = other.findAllAsMap();
+
+        assertThat(other.findByCode(1)).isSameAs(user);
+        assertThat(users.get(1)).isSameAs(user);
+        assertThat(userDataAccess.findByEmailAndPassword("test1@example.com", "password1")).isSameAs(user);
+        assertThatThrownBy(() -> users.put(9, user)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    public void testFileChangeReplacesOnlyChangedUsers() throws IOException {
+        Path file = tempDir.resolve("users.csv");
+        Files.writeString(file, "Code,Name,Email,Password" + System.lineSeparator()
+                + "1,鈴木一郎,test1@example.com,password1" + System.lineSeparator()
+                + "2,鈴木二郎,test2@example.com,password2" + System.lineSeparator());
+        UserDataAccess tempUserDataAccess = new UserDataAccess(file.toString());
+        User unchanged = tempUserDataAccess.findByCode(1);
+        User changed = tempUserDataAccess.findByCode(2);
+        long generation = tempUserDataAccess.generation();
+
+        Files.writeString(file, "Code,Name,Email,Password" + System.lineSeparator()
+                + "1,鈴木一郎,test1@example.com,password1" + System.lineSeparator()
+                + "2,佐藤二郎,test2@example.com,password2" + System.lineSeparator()
+                + "3,鈴木三郎,test3@example.com,password3" + System.lineSeparator());
+
+        assertThat(tempUserDataAccess.findByCode(1)).isSameAs(unchanged);
+        assertThat(tempUserDataAccess.findByCode(2)).isNotSameAs(changed);
+        assertThat(tempUserDataAccess.findByCode(2).getName()).isEqualTo("佐藤二郎");
+        assertThat(tempUserDataAccess.findByCode(3).getName()).isEqualTo("鈴木三郎");
+        assertThat(tempUserDataAccess.generation()).isGreaterThan(generation);
+    }
+
+    @Test
+    public void testFindByEmailAndPasswordWithSharedEmail() throws IOException {
+        Path file = tempDir.resolve("users.csv");
+        Files.writeString(file, "Code,Name,Email,Password" + System.lineSeparator()
+                + "1,鈴木一郎,shared@example.com,password1" + System.lineSeparator()
+                + "2,鈴木二郎,shared@example.com,password2" + System.lineSeparator());
+        UserDataAccess tempUserDataAccess = new UserDataAccess(file.toString());
+
+        assertThat(tempUserDataAccess.findByEmailAndPassword("shared@example.com", "password1").getCode()).isEqualTo(1);
+        assertThat(tempUserDataAccess.findByEmailAndPassword("shared@example.com", "password2").getCode()).isEqualTo(2);
+        assertThat(tempUserDataAccess.findByEmailAndPassword("shared@example.com", "password3")).isNull();
+    }
 }
@@ -0,0 +1,159 @@
+package com.taskapp.logic;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.taskapp.dataaccess.LogDataAccess;
+import com.taskapp.model.Log;
+
+public class LogAnalyticsTest {
+    private static final String HEADER = "Task_Code,Change_User_Code,Status,Change_Date\n";
+
+    @TempDir
+    Path tempDir;
+
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    public void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testAnalyze() throws IOException {
+        Path file = tempDir.resolve("logs.csv");
+        // 2024-01-01は月曜日
+        Files.writeString(file, HEADER
+                + "1,1,0,2024-01-01\n"
+                + "2,1,0,2024-01-01\n"
+                + "1,2,1,2024-01-02\n"
+                + "1,2,2,2024-01-05\n"
+                + "2,1,1,2024-01-07\n"
+                + "2,1,2,2024-01-08\n"
+                + "3,2,0,2024-01-08\n");
+
+        LogStatistics statistics = new LogAnalytics(new LogDataAccess(file.toString()), pool).analyze();
+
+        assertThat(statistics.getLogCount()).isEqualTo(7);
+        assertThat(statistics.getTransitionsByDay()).containsExactly(
+                entry(LocalDate.of(2024, 1, 1), 2L),
+                entry(LocalDate.of(2024, 1, 2), 1L),
+                entry(LocalDate.of(2024, 1, 5), 1L),
+                entry(LocalDate.of(2024, 1, 7), 1L),
+                entry(LocalDate.of(2024, 1, 8), 2L));
+        assertThat(statistics.getCompletedByUserAndWeek()).containsOnlyKeys(1, 2);
+        assertThat(statistics.getCompletedByUserAndWeek().get(1))
+                .containsExactly(entry(LocalDate.of(2024, 1, 8), 1L));
+        assertThat(statistics.getCompletedByUserAndWeek().get(2))
+                .containsExactly(entry(LocalDate.of(2024, 1, 1), 1L));
+        // タスク1は4日、タスク2は7日。タスク3は完了していない
+        assertThat(statistics.getCycleCount()).isEqualTo(2);
+        assertThat(statistics.getAverageCycleDays()).isEqualTo(5.5);
+    }
+
+    @Test
+    public void testEmptyLog() throws IOException {
+        Path file = tempDir.resolve("logs.csv");
+        Files.writeString(file, HEADER);
+
+        LogStatistics statistics = new LogAnalytics(new LogDataAccess(file.toString()), pool).analyze();
+
+        assertThat(statistics.getLogCount()).isZero();
+        assertThat(statistics.getTransitionsByDay()).isEmpty();
+        assertThat(statistics.getCompletedByUserAndWeek()).isEmpty();
+        assertThat(statistics.getAverageCycleDays()).isZero();
+    }
+
+    @Test
+    public void testParallelRangesMatchSequentialAggregation() throws IOException {
+        Path file = tempDir.resolve("logs.csv");
+        Random random = new Random(42);
+        StringBuilder content = new StringBuilder(HEADER);
+        LocalDate first = LocalDate.of(2023, 12, 20);
+        // 複数の範囲に分かれるよう数MBにし、タスクの登録と完了が別の範囲に入るよう日付をずらして書く
+        for (int code = 1; content.length() < 4 * 1024 * 1024; code++) {
+            LocalDate created = first.plusDays(code / 500);
+            int user = random.nextInt(20) + 1;
+            content.append(code).append(',').append(user).append(",0,").append(created).append('\n');
+            if (code > 40_000 && random.nextInt(4) != 0) {
+                int done = code - 40_000;
+                content.append(done).append(',').append(user).append(",1,").append(created).append('\n');
+                content.append(done).append(',').append(user).append(",2,")
+                        .append(created.plusDays(random.nextInt(3))).append('\n');
+            }
+        }
+        Files.writeString(file, content);
+        LogDataAccess logDataAccess = new LogDataAccess(file.toString());
+
+        LogStatistics statistics = new LogAnalytics(logDataAccess, pool).analyze();
+
+        List<Log> logs = logDataAccess.findAll();
+        SortedMap<LocalDate, Long> transitions = new TreeMap<>();
+        SortedMap<Integer, SortedMap<LocalDate, Long>> completed = new TreeMap<>();
+        Map<Integer, LocalDate> created = new HashMap<>();
+        Map<Integer, LocalDate> done = new HashMap<>();
+        for (Log log : logs) {
+            transitions.merge(log.getChangeDate(), 1L, Long::sum);
+            if (log.getStatus() == 0) created.putIfAbsent(log.getTaskCode(), log.getChangeDate());
+            if (log.getStatus() != 2) continue;
+            done.putIfAbsent(log.getTaskCode(), log.getChangeDate());
+            completed.computeIfAbsent(log.getChangeUserCode(), user -> new TreeMap<>())
+                    .merge(log.getChangeDate().with(DayOfWeek.MONDAY), 1L, Long::sum);
+        }
+        long cycleDays = done.entrySet().stream()
+                .mapToLong(e -> e.getValue().toEpochDay() - created.get(e.getKey()).toEpochDay()).sum();
+
+        assertThat(statistics.getLogCount()).isEqualTo(logs.size());
+        assertThat(statistics.getTransitionsByDay()).isEqualTo(transitions);
+        assertThat(statistics.getCompletedByUserAndWeek()).isEqualTo(completed);
+        assertThat(statistics.getCycleCount()).isEqualTo(done.size());
+        assertThat(statistics.getAverageCycleDays()).isCloseTo((double) cycleDays / done.size(), within(1e-9));
+    }
+
+    @Test
+    public void testJournaledLogIsAggregatedSequentially() throws IOException {
+        Path file = tempDir.resolve("logs.csv");
+        Files.writeString(file, HEADER + "1,1,0,2024-01-01\n");
+        LogDataAccess logDataAccess = new LogDataAccess(file.toString(), true);
+        logDataAccess.save(new Log(1, 1, 1, LocalDate.of(2024, 1, 2)));
+        logDataAccess.save(new Log(1, 1, 2, LocalDate.of(2024, 1, 3)));
+
+        LogStatistics statistics = new LogAnalytics(logDataAccess, pool).analyze();
+
+        assertThat(statistics.getLogCount()).isEqualTo(3);
+        assertThat(statistics.getAverageCycleDays()).isEqualTo(2.0);
+        assertThat(statistics.getCompletedByUserAndWeek().get(1))
+                .containsExactly(entry(LocalDate.of(2024, 1, 1), 1L));
+    }
+
+    @Test
+    public void testWeekOf() {
+        for (LocalDate date = LocalDate.of(1969, 12, 1); date.isBefore(LocalDate.of(1970, 2, 1));
+                date = date.plusDays(1)) {
+            int week = LogAnalytics.weekOf((int) date.toEpochDay());
+            assertThat(LocalDate.ofEpochDay((long) week * 7 - 3)).isEqualTo(date.with(DayOfWeek.MONDAY));
+        }
+    }
+}
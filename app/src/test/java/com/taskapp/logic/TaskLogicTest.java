@@ -4,12 +4,19 @@ import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -17,6 +24,7 @@ import com.taskapp.dataaccess.LogDataAccess;
 import com.taskapp.dataaccess.TaskDataAccess;
 import com.taskapp.dataaccess.UserDataAccess;
 import com.taskapp.exception.AppException;
+import com.taskapp.exception.VersionConflictException;
 import com.taskapp.model.Log;
 import com.taskapp.model.Task;
 import com.taskapp.model.User;
@@ -48,15 +56,17 @@ public class TaskLogicTest {
         tasks.add(new Task(1, "Task 1", 0, new User(2, "Alice", "", "")));
         tasks.add(new Task(2, "Task 2", 1, new User(1, "John", "", "")));
 
-        // Mock the findAll method of taskDataAccess to return the mock tasks
-        when(taskDataAccess.findAll()).thenReturn(tasks);
+        // Mock the streamAll method of taskDataAccess to return the mock tasks
+        AtomicBoolean closed = new AtomicBoolean();
+        when(taskDataAccess.streamAll()).thenReturn(tasks.stream().onClose(() -> closed.set(true)));
 
         // Call the showAll method
         taskLogic.showAll(loginUser);
 
-        // Verify that the expected output is printed
-        verify(taskDataAccess).findAll();
+        // Verify that the expected output is printed and the stream is closed
+        verify(taskDataAccess).streamAll();
         assertThat(tasks).hasSize(2);
+        assertThat(closed).isTrue();
     }
 
     @Tag("Q3")
@@ -82,6 +92,34 @@ public class TaskLogicTest {
         verify(logDataAccess).save(any(Log.class));
     }
 
+    @Test
+    public void testSaveRejectsNameBreakingCsv() {
+        User loginUser = new User(1, "John", "", "");
+        when(userDataAccess.findByCode(2)).thenReturn(new User(2, "Alice", "", ""));
+
+        for (String name : new String[] { "a,9,0,2", "a\n9", "a\r9" }) {
+            assertThatThrownBy(() -> taskLogic.save(1, name, 2, loginUser))
+                    .isInstanceOf(AppException.class)
+                    .hasMessage("タスク名に「,」と改行は使用できません");
+        }
+        verify(taskDataAccess, never()).save(any(Task.class));
+        verify(logDataAccess, never()).save(any(Log.class));
+    }
+
+    @Test
+    public void testSaveRejectsEmptyOrLongName() {
+        User loginUser = new User(1, "John", "", "");
+        when(userDataAccess.findByCode(2)).thenReturn(new User(2, "Alice", "", ""));
+
+        for (String name : new String[] { "", "12345678901" }) {
+            assertThatThrownBy(() -> taskLogic.save(1, name, 2, loginUser))
+                    .isInstanceOf(AppException.class)
+                    .hasMessage("タスク名は10文字以内で入力してください");
+        }
+        verify(taskDataAccess, never()).save(any(Task.class));
+        verify(logDataAccess, never()).save(any(Log.class));
+    }
+
     @Tag("Q4")
     @Test
     public void testChangeStatus() throws AppException {
@@ -104,6 +142,18 @@ public class TaskLogicTest {
         verify(logDataAccess).save(any(Log.class));
     }
 
+    @Test
+    public void testChangeStatusFailsWhenTaskWasUpdatedConcurrently() {
+        User loginUser = new User(1, "John", "", "");
+        Task task = new Task(1, "Task 1", 0, new User(2, "Alice", "", ""), 3);
+        when(taskDataAccess.findByCode(1)).thenReturn(task);
+        doThrow(new VersionConflictException("conflict")).when(taskDataAccess).update(any(Task.class));
+
+        assertThatThrownBy(() -> taskLogic.changeStatus(1, 1, loginUser)).isInstanceOf(AppException.class);
+        verify(taskDataAccess).update(argThat(updated -> updated.getVersion() == 3 && updated.getStatus() == 1));
+        verify(logDataAccess, never()).save(any(Log.class));
+    }
+
     @Tag("Q5")
     @Test
     public void testDelete() throws AppException {
@@ -123,4 +173,103 @@ public class TaskLogicTest {
         verify(taskDataAccess).delete(code);
         verify(logDataAccess).deleteByTaskCode(code);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testShowFiltered() throws AppException {
+        User loginUser = new User(1, "John", "", "");
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Task(2, "Task 2", 1, loginUser));
+        when(taskDataAccess.findByStatusAndRepUser(1, 1)).thenReturn(tasks);
+
+        taskLogic.showFiltered(loginUser, 1, 1);
+
+        verify(taskDataAccess).findByStatusAndRepUser(1, 1);
+        assertThatThrownBy(() -> taskLogic.showFiltered(loginUser, 3, null)).isInstanceOf(AppException.class);
+    }
+
+    @Test
+    public void testCountTasks() throws AppException {
+        when(taskDataAccess.countByStatusAndRepUser(2, 1)).thenReturn(7);
+
+        assertThat(taskLogic.countTasks(2, 1)).isEqualTo(7);
+        verify(taskDataAccess, never()).findAll();
+        assertThatThrownBy(() -> taskLogic.countTasks(-1, null)).isInstanceOf(AppException.class);
+    }
+
+    @Test
+    public void testCheckTaskCounts() {
+        when(taskDataAccess.verifyCounts()).thenReturn(List.of("担当ユーザー1・ステータス0：集計=2、再集計=1"));
+
+        assertThat(taskLogic.checkTaskCounts()).containsExactly("担当ユーザー1・ステータス0：集計=2、再集計=1");
+    }
+
+    @Test
+    public void testSaveAllReportsInvalidRowsAndContinues() throws IOException {
+        User loginUser = new User(1, "John", "", "");
+        Map<Integer, User> users = new HashMap<>();
+        users.put(1, loginUser);
+        users.put(2, new User(2, "Alice", "", ""));
+        when(userDataAccess.findAllAsMap()).thenReturn(users);
+        // 2件目(タスクコード3)は既に登録されているものとする
+        when(taskDataAccess.saveAll(anyList())).thenReturn(new boolean[] { true, false, true });
+
+        String input = String.join("\n",
+                "Code,Name,Rep_User_Code",
+                "10,Task 10,1",
+                "x,Task x,1",
+                "3,Task 3,2",
+                "",
+                "11,Task 11,9",
+                "12,これは10文字を超えるタスク名です,1",
+                "13,Task 13",
+                "14,Task 14,2");
+        ImportResult result = taskLogic.saveAll(new StringReader(input), loginUser);
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getErrors()).hasSize(5);
+        assertThat(result.getErrors()).anyMatch(error -> error.startsWith("3行目："));
+        assertThat(result.getErrors()).anyMatch(error -> error.startsWith("4行目：") && error.contains("既に登録"));
+        assertThat(result.getErrors()).anyMatch(error -> error.startsWith("6行目：") && error.contains("ユーザーコード"));
+        verify(userDataAccess).findAllAsMap();
+        verify(userDataAccess, never()).findByCode(anyInt());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Log>> logs = ArgumentCaptor.forClass(List.class);
+        verify(logDataAccess).saveAll(logs.capture());
+        assertThat(logs.getValue()).extracting(Log::getTaskCode).containsExactly(10, 14);
+        assertThat(logs.getValue()).allMatch(log -> log.getChangeUserCode() == 1 && log.getStatus() == 0);
+    }
+
+    @Test
+    public void testSaveAllStopsWhenWriteFails() throws IOException {
+        User loginUser = new User(1, "John", "", "");
+        Map<Integer, User> users = new HashMap<>();
+        users.put(1, loginUser);
+        when(userDataAccess.findAllAsMap()).thenReturn(users);
+        when(taskDataAccess.saveAll(anyList())).thenThrow(new UncheckedIOException(new IOException("disk full")));
+
+        // 1回にまとめて書き込む件数より多い行を渡し、最初の書き込みの失敗で中止することを確認する
+        StringBuilder input = new StringBuilder("Code,Name,Rep_User_Code\n");
+        for (int code = 1; code <= 10_001; code++) {
+            input.append(code).append(",Task,1\n");
+        }
+        ImportResult result = taskLogic.saveAll(new StringReader(input.toString()), loginUser);
+
+        assertThat(result.getImported()).isZero();
+        assertThat(result.getErrors()).hasSize(1);
+        assertThat(result.getErrors().get(0)).startsWith("2行目：").contains("書き込みに失敗").doesNotContain("既に登録");
+        verify(taskDataAccess, times(1)).saveAll(anyList());
+        verify(logDataAccess, never()).saveAll(anyList());
+    }
+
+    @Test
+    public void testShowPage() {
+        User loginUser = new User(1, "John", "", "");
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Task(5, "Task 5", 0, loginUser));
+        when(taskDataAccess.findPageAfter(4, 10)).thenReturn(tasks);
+
+        assertThat(taskLogic.showPage(loginUser, 4, 10)).isEqualTo(tasks);
+        verify(taskDataAccess).findPageAfter(4, 10);
+    }
+}
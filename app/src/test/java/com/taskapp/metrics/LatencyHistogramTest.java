@@ -0,0 +1,36 @@
+package com.taskapp.metrics;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+    @Test
+    public void testBucketsCoverEveryValueWithinOneEighth() {
+        long[] samples = { 0, 1, 7, 8, 9, 15, 16, 17, 1_000, 123_456_789, Long.MAX_VALUE };
+        for (long nanos : samples) {
+            int bucket = LatencyHistogram.bucketOf(nanos);
+            long upper = LatencyHistogram.upperBound(bucket);
+            assertThat(upper).isGreaterThanOrEqualTo(nanos);
+            assertThat(upper - nanos).isLessThanOrEqualTo(Math.max(0, nanos / 8));
+            if (bucket > 0) assertThat(LatencyHistogram.upperBound(bucket - 1)).isLessThan(nanos);
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.percentileNanos(50)).isZero();
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000L);
+        }
+
+        assertThat(histogram.count()).isEqualTo(1000);
+        assertThat(histogram.meanNanos()).isEqualTo(500_500);
+        assertThat(histogram.maxNanos()).isEqualTo(1_000_000);
+        assertThat(histogram.percentileNanos(50)).isBetween(500_000L, 500_000L * 9 / 8);
+        assertThat(histogram.percentileNanos(99)).isBetween(990_000L, 1_000_000L);
+        assertThat(histogram.percentileNanos(100)).isEqualTo(1_000_000);
+    }
+}
@@ -0,0 +1,98 @@
+package com.taskapp.metrics;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.taskapp.dataaccess.UserDataAccess;
+import com.taskapp.logic.UserLogic;
+
+public class MetricsTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testMethodMetricsArePublishedAsMBean() throws Exception {
+        MetricGroup group = Metrics.group("MetricsTestGroup");
+        assertThat(Metrics.group("MetricsTestGroup")).isSameAs(group);
+        MethodMetrics method = group.method("work");
+
+        for (int i = 0; i < 3; i++) {
+            long start = method.start();
+            method.stop(start);
+        }
+        method.failed();
+        group.addBytesRead(100);
+        group.addBytesWritten(40);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = Metrics.objectName("MetricsTestGroup");
+        assertThat(server.getAttribute(name, "work.Calls")).isEqualTo(3L);
+        assertThat(server.getAttribute(name, "work.Errors")).isEqualTo(1L);
+        assertThat((Double) server.getAttribute(name, "work.P99Micros")).isGreaterThanOrEqualTo(0.0);
+        assertThat(server.getAttribute(name, "BytesRead")).isEqualTo(100L);
+        assertThat(server.getAttribute(name, "BytesWritten")).isEqualTo(40L);
+        assertThat(server.getMBeanInfo(name).getAttributes()).extracting(info -> info.getName())
+                .contains("work.Calls", "work.MaxMicros");
+    }
+
+    @Test
+    public void testTimeAndRunCountCallsAndErrors() {
+        MethodMetrics method = Metrics.group("MetricsTestTime").method("work");
+
+        assertThat(method.time(() -> 42)).isEqualTo(42);
+        method.run(() -> { });
+        assertThatThrownBy(() -> method.time(() -> {
+            throw new IOException("失敗");
+        })).isInstanceOf(IOException.class).hasMessage("失敗");
+        assertThatThrownBy(() -> method.run(() -> {
+            throw new IllegalStateException("失敗");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(method.getCalls()).isEqualTo(4);
+        assertThat(method.getErrors()).isEqualTo(2);
+    }
+
+    @Test
+    public void testDataAccessCallsAreCounted() throws Exception {
+        MethodMetrics login = Metrics.group("UserLogic").method("login");
+        long before = login.getCalls();
+
+        new UserLogic(new UserDataAccess("src/test/resources/test_users.csv")).login("test1@example.com", "password1");
+
+        assertThat(login.getCalls()).isEqualTo(before + 1);
+        assertThat(Metrics.group("UserDataAccess").method("findByEmailAndPassword").getCalls()).isPositive();
+    }
+
+    @Test
+    public void testDumpToWritesCalledMethods() throws Exception {
+        MethodMetrics method = Metrics.group("MetricsTestDump").method("called");
+        Metrics.group("MetricsTestDump").method("neverCalled");
+        method.stop(method.start());
+        Path file = tempDir.resolve("metrics.txt");
+
+        Metrics.dumpTo(file);
+
+        String dump = Files.readString(file);
+        assertThat(dump).contains("MetricsTestDump.called calls=1 errors=0");
+        assertThat(dump).doesNotContain("neverCalled");
+        assertThat(tempDir.resolve("metrics.txt.tmp")).doesNotExist();
+    }
+
+    @Test
+    public void testUtf8Length() {
+        assertThat(Metrics.utf8Length("abc")).isEqualTo(3);
+        assertThat(Metrics.utf8Length("鈴木")).isEqualTo("鈴木".getBytes(StandardCharsets.UTF_8).length);
+        assertThat(Metrics.utf8Length("é😀")).isEqualTo("é😀".getBytes(StandardCharsets.UTF_8).length);
+    }
+}
@@ -0,0 +1,47 @@
+package com.taskapp.server;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class JsonTest {
+    @Test
+    public void testParseObject() {
+        Map<String, Object> object = Json.parseObject(
+                " {\"code\": 12, \"name\": \"タスク\\n\\u0041\", \"ratio\": -1.5e1, \"done\": true, \"memo\": null,"
+                        + " \"tags\": [1, \"a\", {}]} ");
+
+        assertThat(object).containsEntry("code", 12L)
+                .containsEntry("name", "タスク\nA")
+                .containsEntry("ratio", -15.0)
+                .containsEntry("done", true)
+                .containsEntry("memo", null);
+        assertThat(object.get("tags")).isEqualTo(List.of(1L, "a", Map.of()));
+    }
+
+    @Test
+    public void testParseObjectRejectsMalformedJson() {
+        assertThatThrownBy(() -> Json.parseObject("{\"code\": }")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Json.parseObject("{\"code\": 1")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Json.parseObject("[1]")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Json.parseObject("{} x")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testWriteRoundTrips() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        object.put("name", "a\"b\\c\t\u0001");
+        object.put("code", 3);
+        object.put("list", List.of(true, "x"));
+        object.put("none", null);
+
+        String json = Json.write(object);
+
+        assertThat(json).isEqualTo("{\"name\":\"a\\\"b\\\\c\\t\\u0001\",\"code\":3,\"list\":[true,\"x\"],\"none\":null}");
+        assertThat(Json.parseObject(json)).containsEntry("name", "a\"b\\c\t\u0001").containsEntry("code", 3L);
+    }
+}
@@ -0,0 +1,131 @@
+package com.taskapp.server;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.taskapp.dataaccess.LogDataAccess;
+import com.taskapp.dataaccess.TaskDataAccess;
+import com.taskapp.dataaccess.UserDataAccess;
+import com.taskapp.logic.TaskLogic;
+import com.taskapp.logic.UserLogic;
+
+public class TaskServerTest {
+    @TempDir
+    Path dir;
+
+    private TaskServer server;
+    private HttpClient client;
+    private URI base;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Path users = dir.resolve("users.csv");
+        Path tasks = dir.resolve("tasks.csv");
+        Path logs = dir.resolve("logs.csv");
+        Files.copy(Paths.get("src/test/resources/test_users.csv"), users);
+        Files.copy(Paths.get("src/test/resources/test_tasks.csv"), tasks);
+        Files.writeString(logs, "Task_Code,Change_User_Code,Status,Change_Date\n");
+
+        UserDataAccess userDataAccess = new UserDataAccess(users.toString());
+        TaskLogic taskLogic = new TaskLogic(new TaskDataAccess(tasks.toString(), userDataAccess),
+                new LogDataAccess(logs.toString()), userDataAccess);
+        server = new TaskServer(taskLogic, new UserLogic(userDataAccess));
+        server.start(0);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        base = URI.create("http://localhost:" + server.port());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void testTaskLifecycle() throws Exception {
+        String token = LoadTestClient.login(client, base, "test1@example.com", "password1");
+
+        HttpResponse<String> created = send("POST", "/tasks", token, "{\"code\":10,\"name\":\"API\",\"repUserCode\":2}");
+        assertThat(created.statusCode()).isEqualTo(201);
+
+        HttpResponse<String> page = send("GET", "/tasks?after=3&limit=5", token, null);
+        assertThat(page.statusCode()).isEqualTo(200);
+        assertThat(page.body()).startsWith("[{\"code\":4,").contains("\"code\":10,\"name\":\"API\"");
+
+        assertThat(send("POST", "/tasks/10/status", token, "{\"status\":1}").statusCode()).isEqualTo(204);
+        HttpResponse<String> skipped = send("POST", "/tasks/10/status", token, "{\"status\":3}");
+        assertThat(skipped.statusCode()).isEqualTo(400);
+        assertThat(skipped.body()).contains("\"error\":");
+        assertThat(send("POST", "/tasks/10/status", token, "{\"status\":2}").statusCode()).isEqualTo(204);
+
+        HttpResponse<String> filtered = send("GET", "/tasks?status=2&repUserCode=2", token, null);
+        assertThat(filtered.body()).contains("\"code\":10,").contains("\"version\":2");
+
+        HttpResponse<String> logs = send("GET", "/tasks/10/logs", token, null);
+        assertThat(logs.body()).contains("\"status\":0").contains("\"status\":1").contains("\"status\":2");
+
+        assertThat(send("DELETE", "/tasks/10", token, null).statusCode()).isEqualTo(204);
+        assertThat(send("GET", "/tasks/10/logs", token, null).body()).isEqualTo("[]");
+    }
+
+    @Test
+    public void testRejectsMissingTokenAndBadRequests() throws Exception {
+        assertThat(send("GET", "/tasks", null, null).statusCode()).isEqualTo(401);
+        assertThat(send("POST", "/login", null, "{\"email\":\"test1@example.com\",\"password\":\"x\"}").statusCode())
+                .isEqualTo(400);
+
+        String token = LoadTestClient.login(client, base, "test1@example.com", "password1");
+        assertThat(send("POST", "/tasks", token, "{\"code\":").statusCode()).isEqualTo(400);
+        assertThat(send("POST", "/tasks", token, "{\"code\":\"1\",\"name\":\"a\",\"repUserCode\":1}").statusCode())
+                .isEqualTo(400);
+        // csvの列や行を増やすタスク名は登録しない
+        assertThat(send("POST", "/tasks", token, "{\"code\":11,\"name\":\"a,9,9\",\"repUserCode\":1}").statusCode())
+                .isEqualTo(400);
+        assertThat(send("POST", "/tasks", token, "{\"code\":12,\"name\":\"a\\n13,b\",\"repUserCode\":1}").statusCode())
+                .isEqualTo(400);
+        assertThat(send("GET", "/tasks?after=10&limit=5", token, null).body()).isEqualTo("[]");
+        assertThat(send("PUT", "/tasks", token, "{}").statusCode()).isEqualTo(405);
+        assertThat(send("GET", "/tasks/1/unknown", token, null).statusCode()).isEqualTo(404);
+        assertThat(send("POST", "/tasks", token, "{\"code\":13,\"name\":\"12345678901\",\"repUserCode\":1}")
+                .statusCode()).isEqualTo(400);
+        // コンテキストは前方一致で選ばれるが、最初の区切りが一致しないパスは処理しない
+        assertThat(send("GET", "/tasksfoo", token, null).statusCode()).isEqualTo(404);
+        assertThat(send("POST", "/loginX", null, "{}").statusCode()).isEqualTo(404);
+        assertThat(send("POST", "/logoutX", token, null).statusCode()).isEqualTo(404);
+        assertThat(send("POST", "/logout/x", token, null).statusCode()).isEqualTo(404);
+
+        assertThat(send("POST", "/logout", token, null).statusCode()).isEqualTo(204);
+        assertThat(send("GET", "/tasks", token, null).statusCode()).isEqualTo(401);
+    }
+
+    @Test
+    public void testLoadTestClientReportsThroughputAndLatency() throws Exception {
+        String token = LoadTestClient.login(client, base, "test1@example.com", "password1");
+
+        LoadTestClient.Report report = LoadTestClient.run(client, base, token, 4, Duration.ofMillis(300));
+
+        assertThat(report.requests()).isPositive();
+        assertThat(report.errors()).isZero();
+        assertThat(report.requestsPerSecond()).isPositive();
+        assertThat(report.percentile(50)).isPositive().isLessThanOrEqualTo(report.percentile(99));
+    }
+
+    private HttpResponse<String> send(String method, String path, String token, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(base.resolve(path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) request.header("Authorization", "Bearer " + token);
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -1,11 +1,14 @@
 package com.taskapp.ui;
 
 import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,6 +19,7 @@ import org.mockito.MockitoAnnotations;
 
 import com.taskapp.logic.TaskLogic;
 import com.taskapp.logic.UserLogic;
+import com.taskapp.model.Task;
 import com.taskapp.model.User;
 
 public class TaskUITest {
@@ -61,6 +65,18 @@ public class TaskUITest {
     //     verify(taskLogic).showAll(user);
     // }
 
+    @Test
+    public void testDisplayMenuLogsOutWithThree() throws Exception {
+        when(reader.readLine()).thenReturn("john@example.com", "password", "3");
+        when(userLogic.login("john@example.com", "password")).thenReturn(new User(1, "John", "", ""));
+
+        taskUI.displayMenu();
+
+        assertThat(outContent.toString())
+                .contains("1. タスク一覧, 2. タスク新規登録, 3. ログアウト")
+                .contains("ログアウトしました。");
+    }
+
     @Tag("Q1")
     @Test
     public void testInputLogin() throws Exception {
@@ -129,4 +145,61 @@ public class TaskUITest {
         assertThat(taskUI.isNumeric(null)).isFalse();
     }
 
-}
\ No newline at end of file
+
+    @Test
+    public void testBrowseTasksMovesBetweenPages() throws Exception {
+        List<Task> first = tasks(1, 20);
+        when(taskLogic.findPage(Integer.MIN_VALUE, 21)).thenReturn(tasks(1, 21));
+        when(taskLogic.findPage(20, 21)).thenReturn(tasks(21, 5));
+        when(taskLogic.showPageBefore(any(), eq(21), eq(20))).thenReturn(first);
+        when(reader.readLine()).thenReturn("n", "n", "p", "q");
+
+        taskUI.browseTasks();
+
+        verify(taskLogic).showTasks(any(), eq(first));
+        verify(taskLogic).showTasks(any(), eq(tasks(21, 5)));
+        // 2ページ目で次のページがないことは取得済みのため、再度取得しない
+        verify(taskLogic, never()).findPage(eq(25), anyInt());
+        verify(taskLogic).showPageBefore(any(), eq(21), eq(20));
+        assertThat(outContent.toString()).contains("これより後ろのタスクはありません");
+    }
+
+    @Test
+    public void testBrowseTasksSkipsNavigationForSinglePage() throws Exception {
+        when(taskLogic.findPage(Integer.MIN_VALUE, 21)).thenReturn(tasks(1, 3));
+
+        taskUI.browseTasks();
+
+        verify(reader, never()).readLine();
+    }
+
+    @Test
+    public void testBrowseTasksSkipsNavigationForExactlyOnePage() throws Exception {
+        when(taskLogic.findPage(Integer.MIN_VALUE, 21)).thenReturn(tasks(1, 20));
+
+        taskUI.browseTasks();
+
+        verify(taskLogic).showTasks(any(), eq(tasks(1, 20)));
+        verify(reader, never()).readLine();
+    }
+
+    @Test
+    public void testBrowseTasksAsksAgainForInvalidInput() throws Exception {
+        when(taskLogic.findPage(Integer.MIN_VALUE, 21)).thenReturn(tasks(1, 21));
+        when(reader.readLine()).thenReturn("1", "q");
+
+        taskUI.browseTasks();
+
+        verify(reader, times(2)).readLine();
+        assertThat(outContent.toString()).contains("選択肢が誤っています。n、p、qの中から選択してください。");
+    }
+
+    private List<Task> tasks(int from, int count) {
+        List<Task> tasks = new ArrayList<>();
+        for (int code = from; code < from + count; code++) {
+            tasks.add(new Task(code, "Task " + code, 0, new User(1, "John", "", "")));
+        }
+        return tasks;
+    }
+}
+